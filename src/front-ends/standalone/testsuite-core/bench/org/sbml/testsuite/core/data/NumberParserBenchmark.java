@@ -0,0 +1,205 @@
+//
+// @file   NumberParserBenchmark.java
+// @brief  JMH benchmark for NumberParser
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+package org.sbml.testsuite.core.data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares NumberParser against the conversion ResultSet used before it
+ * (trim, upper case, Double.parseDouble() inside try/catch), on every cell
+ * of the expected results of the semantic test cases.  Optionally, a
+ * percentage of the cells is replaced by malformed text, which is where
+ * the old conversion pays for an exception per cell.
+ * 
+ * Run with "ant bench -Djmh.lib=DIR", where DIR holds the JMH jars.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumberParserBenchmark
+{
+    /** The directory holding the semantic test cases. */
+    @Param("../../../../cases/semantic")
+    public String casesDir;
+
+    /** The percentage of cells to replace by malformed text. */
+    @Param({"0", "10"})
+    public int    malformedPercent;
+
+    private String[]   cells;
+    private ByteBuffer buffer;
+    private int[]      starts;
+    private int[]      ends;
+
+
+    /**
+     * Collects the cells of all NNNNN-results.csv files, both as strings
+     * and as ranges of one buffer holding their bytes.
+     */
+    @Setup
+    public void setUp()
+        throws IOException
+    {
+        File[] cases = new File(casesDir).listFiles();
+        if (cases == null)
+            throw new IOException("No test cases in " + casesDir);
+
+        List<String> found = new ArrayList<String>();
+        for (File dir : cases)
+        {
+            File results = new File(dir, dir.getName() + "-results.csv");
+            if (!results.isFile()) continue;
+
+            String[] lines = read(results).split("\r?\n");
+            for (int i = 1; i < lines.length; i++)
+                for (String cell : lines[i].split(","))
+                    found.add(cell);
+        }
+
+        Random random = new Random(42);
+        cells = found.toArray(new String[found.size()]);
+        for (int i = 0; i < cells.length; i++)
+            if (random.nextInt(100) < malformedPercent)
+                cells[i] = "n/a";
+
+        int size = 0;
+        for (String cell : cells)
+            size += cell.length();
+        buffer = ByteBuffer.allocate(size);
+        starts = new int[cells.length];
+        ends = new int[cells.length];
+        for (int i = 0; i < cells.length; i++)
+        {
+            starts[i] = buffer.position();
+            buffer.put(cells[i].getBytes("ISO-8859-1"));
+            ends[i] = buffer.position();
+        }
+    }
+
+
+    @Benchmark
+    public double previousConversion()
+    {
+        double sum = 0;
+        for (String cell : cells)
+            sum += previousConvert(cell, 0.0);
+        return sum;
+    }
+
+
+    @Benchmark
+    public double parseStrings()
+    {
+        NumberParser parser = new NumberParser();
+        double sum = 0;
+        for (String cell : cells)
+            sum += parser.toDouble(cell, 0.0);
+        return sum;
+    }
+
+
+    @Benchmark
+    public double parseBytes()
+    {
+        NumberParser parser = new NumberParser();
+        double sum = 0;
+        for (int i = 0; i < starts.length; i++)
+            sum += parser.toDouble(buffer, starts[i], ends[i], 0.0);
+        return sum;
+    }
+
+
+    /**
+     * The conversion ResultSet.saveConvert() did before NumberParser.
+     */
+    private static double previousConvert(String string, double defaultValue)
+    {
+        try
+        {
+            String text = string.trim().toUpperCase();
+
+            if (text.equals("INF") || text.equals("1.#INF"))
+                return Double.POSITIVE_INFINITY;
+            if (text.equals("-INF") || text.equals("-1.#INF"))
+                return Double.NEGATIVE_INFINITY;
+            if (text.contains("NAN") || text.equals("-1.#IND"))
+                return Double.NaN;
+
+            return Double.parseDouble(string);
+        }
+        catch (Exception ex)
+        {
+            return defaultValue;
+        }
+    }
+
+
+    private static String read(File file)
+        throws IOException
+    {
+        FileInputStream stream = new FileInputStream(file);
+        try
+        {
+            byte[] bytes = new byte[(int) file.length()];
+            int count = 0;
+            while (count < bytes.length)
+            {
+                int read = stream.read(bytes, count, bytes.length - count);
+                if (read < 0) break;
+                count += read;
+            }
+            return new String(bytes, 0, count, "ISO-8859-1");
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,471 @@
+//
+// @file   BulkResync.java
+// @brief  Recomputes all results of a wrapper in parallel
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+
+package org.sbml.testsuite.core;
+
+import java.io.File;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+import org.sbml.testsuite.core.data.StreamingComparator;
+
+/**
+ * BulkResync recomputes the results of a wrapper for all cases of a test
+ * suite at once.  Unlike WrapperSession.beginUpdate(), which schedules one
+ * task per case and lets each of them look for its result file, this lists
+ * the output directory a single time to refresh the wrapper's index of
+ * result files, splits the cases into chunks for a
+ * fork/join pool with one thread per processor, and stores the results of
+ * each chunk in the wrapper's cache with a single call.
+ * 
+ * The results are also recorded in a VerdictJournal for the output
+ * directory, and only those whose result file, expected result or
+ * unsupported tags changed since are computed again on the next run.
+ * ComparisonMatrix evaluates several wrappers the same way, through
+ * evaluate().
+ */
+public class BulkResync
+{
+    private final TestSuite      suite;
+    private final LevelVersion   lv;
+    private final WrapperConfig  wrapper;
+    private final WrapperSession session;
+
+    /**
+     * The thread that runs resyncs started with start(), one at a time, so
+     * that two resyncs of the same wrapper don't compete for its journal.
+     * It is a daemon thread, so a pending resync doesn't keep the program
+     * from exiting.
+     */
+    private static final ExecutorService background
+        = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "Bulk resync");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+
+    /**
+     * Constructs a new resync of the given wrapper's results
+     * 
+     * @param suite
+     *            the tests to compare against
+     * @param lv
+     *            the SBML Level/Version to use (null or 0 = highest)
+     * @param wrapper
+     *            the wrapper whose results should be recomputed
+     */
+    public BulkResync(TestSuite suite, LevelVersion lv, WrapperConfig wrapper)
+    {
+        this.suite = suite;
+        this.lv = (lv == null ? new LevelVersion() : lv);
+        this.wrapper = wrapper;
+        this.session = wrapper.getSession();
+    }
+
+
+    /**
+     * Recomputes the results of all cases and blocks until they are in the
+     * wrapper's cache.  Results recorded in the journal of the output
+     * directory are reused if their result file hasn't changed since, and
+     * the journal is updated with the results that had to be computed (see
+     * WrapperSession.getNumSkippedEvaluations() for those that were taken
+     * from a file with the same content).  Results put in the cache while
+     * the resync is going, e.g. by a run, are kept.  A view-only wrapper
+     * with a results snapshot for the Level/Version takes all results from
+     * it.
+     * 
+     * @return a report on what was done
+     */
+    public Report run()
+    {
+        long start = System.nanoTime();
+
+        Vector<TestCase> cases = suite.getCases();
+        Vector<WrapperConfig> wrappers = new Vector<WrapperConfig>();
+        wrappers.add(wrapper);
+        Pass pass = evaluate(cases.toArray(new TestCase[cases.size()]), lv,
+                             wrappers);
+        session.saveVerdicts();
+
+        return new Report(pass.columns[0], System.nanoTime() - start);
+    }
+
+
+    /**
+     * Starts the resync in the background and returns right away.  Resyncs
+     * started this way run one after the other in the order they were
+     * started; until a wrapper's resync is done, its results are computed
+     * on demand as usual.
+     * 
+     * @return a future that completes with the report of the resync
+     * @see #run()
+     */
+    public CompletableFuture<Report> start()
+    {
+        return submit(new Supplier<Report>() {
+            public Report get()
+            {
+                return run();
+            }
+        });
+    }
+
+
+    /**
+     * Queues a task behind the resyncs started so far.
+     * 
+     * @param task
+     *            the task
+     * @return a future that completes with the result of the task
+     */
+    static <T> CompletableFuture<T> submit(Supplier<T> task)
+    {
+        return CompletableFuture.supplyAsync(task, background);
+    }
+
+
+    /**
+     * Computes the results of the given wrappers for the given tests and
+     * blocks until they are in the wrappers' caches.  A wrapper with a
+     * results snapshot for the Level/Version takes its results from it.
+     * For the others, the output directory is listed once and results in
+     * the journal are reused if their file hasn't changed.  The expected
+     * result of a case is read once for all wrappers that need it.
+     * 
+     * @param tests
+     *            the tests
+     * @param lv
+     *            the SBML Level/Version to use
+     * @param wrappers
+     *            the wrappers
+     * @return the pass, holding one column of results per wrapper
+     */
+    static Pass evaluate(TestCase[] tests, LevelVersion lv,
+                         Vector<WrapperConfig> wrappers)
+    {
+        Pass pass = new Pass(tests, lv, wrappers);
+
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int chunkSize = Math.max(16, tests.length / (parallelism * 4));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try
+        {
+            pool.invoke(new Chunk(pass, 0, tests.length, chunkSize));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        return pass;
+    }
+
+
+    /**
+     * The state of one pass over all tests.
+     */
+    static class Pass
+    {
+        final TestCase[]   tests;
+        final LevelVersion lv;
+        final Column[]     columns;
+        final long         since;
+
+
+        Pass(TestCase[] tests, LevelVersion lv, Vector<WrapperConfig> wrappers)
+        {
+            this.tests = tests;
+            this.lv = lv;
+            this.since = DelayedResult.currentStamp();
+            this.columns = new Column[wrappers.size()];
+            for (int i = 0; i < columns.length; i++)
+                columns[i] = new Column(wrappers.get(i), tests, lv);
+        }
+    }
+
+
+    /**
+     * The state of one wrapper in a pass.  Unless the wrapper has a results
+     * snapshot, its output directory is listed once, bringing its index up
+     * to date, and the result file for every test is picked from the index.
+     */
+    static class Column
+    {
+        final WrapperSession  session;
+        final VerdictSnapshot snapshot;
+        final File[]          files;
+        final long[]          sizes;
+        final long[]          lastModified;
+        final ResultType[]    results;
+        final boolean[]       reused;
+        String                tags;
+        VerdictJournal        journal;
+
+
+        Column(WrapperConfig wrapper, TestCase[] tests, LevelVersion lv)
+        {
+            this.session = wrapper.getSession();
+            this.snapshot = session.getSnapshot(lv);
+            this.files = new File[tests.length];
+            this.sizes = new long[tests.length];
+            this.lastModified = new long[tests.length];
+            this.results = new ResultType[tests.length];
+            this.reused = new boolean[tests.length];
+            if (snapshot != null) return;
+
+            OutputIndex index = session.getOutputIndex();
+            index.refresh();
+            for (int i = 0; i < tests.length; i++)
+            {
+                OutputIndex.Entry entry = index.getEntry(tests[i].getId());
+                if (entry != null)
+                {
+                    files[i] = entry.file;
+                    sizes[i] = entry.size;
+                    lastModified[i] = entry.lastModified;
+                }
+            }
+            tags = VerdictJournal.tagsKey(wrapper.getUnsupportedTags());
+            journal = session.getVerdictJournal();
+        }
+
+
+        /**
+         * Takes the result of a test from the snapshot or the journal.
+         * 
+         * @return the result, or null if it has to be computed
+         */
+        ResultType reuse(TestCase test, int i, LevelVersion lv)
+        {
+            if (snapshot != null)
+                return snapshot.getResultType(test);
+            if (files[i] == null || journal == null)
+                return null;
+            return journal.get(test, lv, tags, files[i], sizes[i],
+                               lastModified[i]);
+        }
+    }
+
+
+    /**
+     * Computes the results of a range of tests, splitting it in two until
+     * it is no larger than the chunk size.
+     */
+    private static class Chunk
+        extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Pass        pass;
+        private final int         from;
+        private final int         to;
+        private final int         chunkSize;
+
+
+        Chunk(Pass pass, int from, int to, int chunkSize)
+        {
+            this.pass = pass;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > chunkSize)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Chunk(pass, from, middle, chunkSize),
+                          new Chunk(pass, middle, to, chunkSize));
+                return;
+            }
+
+            Vector<Map<String, DelayedResult>> batches
+                = new Vector<Map<String, DelayedResult>>();
+            for (int c = 0; c < pass.columns.length; c++)
+                batches.add(new TreeMap<String, DelayedResult>());
+
+            for (int i = from; i < to; i++)
+            {
+                TestCase test = pass.tests[i];
+                StreamingComparator comparator = null;
+                for (int c = 0; c < pass.columns.length; c++)
+                {
+                    Column column = pass.columns[c];
+                    ResultType result = null;
+                    try
+                    {
+                        result = column.reuse(test, i, pass.lv);
+                        column.reused[i] = (result != null);
+                        if (result == null)
+                        {
+                            if (comparator == null && column.files[i] != null)
+                                comparator = WrapperSession.newComparator(test);
+                            result = column.session.getResultTypeInternal(
+                                test, pass.lv, column.files[i], comparator);
+                        }
+                    }
+                    catch (RuntimeException e)
+                    {
+                        e.printStackTrace();
+                        result = ResultType.Unknown;
+                    }
+                    column.results[i] = result;
+                    batches.get(c).put(test.getId(),
+                                       new DelayedResult(result, pass.lv));
+                }
+            }
+
+            for (int c = 0; c < pass.columns.length; c++)
+                pass.columns[c].session.putCachedResults(pass.lv,
+                                                         batches.get(c),
+                                                         pass.since);
+        }
+    }
+
+
+    /**
+     * Summary of a completed resync.
+     */
+    public static class Report
+    {
+        private final int[] counts = new int[ResultType.values().length];
+        private final int   numCases;
+        private final int   numResultFiles;
+        private final int   numReused;
+        private final long  elapsedNanos;
+
+
+        Report(Column column, long elapsedNanos)
+        {
+            int numResultFiles = 0;
+            int numReused = 0;
+            for (int i = 0; i < column.results.length; i++)
+            {
+                counts[column.results[i].ordinal()]++;
+                if (column.files[i] != null) numResultFiles++;
+                if (column.reused[i]) numReused++;
+            }
+            this.numCases = column.results.length;
+            this.numResultFiles = numResultFiles;
+            this.numReused = numReused;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+
+        /**
+         * @return the number of cases whose result was computed
+         */
+        public int getNumCases()
+        {
+            return numCases;
+        }
+
+
+        /**
+         * @return the number of cases for which a result file was found
+         */
+        public int getNumResultFiles()
+        {
+            return numResultFiles;
+        }
+
+
+        /**
+         * @return the number of results taken from the journal of the
+         *         output directory instead of being computed
+         */
+        public int getNumReused()
+        {
+            return numReused;
+        }
+
+
+        /**
+         * Returns the number of cases that got the given result
+         * 
+         * @param type
+         *            the result type
+         * @return the number of cases
+         */
+        public int getCount(ResultType type)
+        {
+            return counts[type.ordinal()];
+        }
+
+
+        /**
+         * @return the time the resync took, in milliseconds
+         */
+        public long getElapsedMillis()
+        {
+            return elapsedNanos / 1000000;
+        }
+
+
+        /**
+         * @return the number of cases processed per second
+         */
+        public double getCasesPerSecond()
+        {
+            if (elapsedNanos <= 0) return 0;
+            return numCases * 1e9 / elapsedNanos;
+        }
+
+
+        /**
+         * @return a one-line summary of this report
+         */
+        @Override
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d cases (%d result files, %d unchanged) in %d ms, %.0f cases/s",
+                                    numCases, numResultFiles, numReused,
+                                    getElapsedMillis(), getCasesPerSecond()));
+            for (ResultType type : ResultType.values())
+                if (counts[type.ordinal()] > 0)
+                    sb.append(", ").append(type).append(": ")
+                      .append(counts[type.ordinal()]);
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+//
+// @file   CancelToken.java
+// @brief  Cancellation request that notifies its listeners
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+
+
+package org.sbml.testsuite.core;
+
+import java.util.Vector;
+
+/**
+ * A CancelCallback that is cancelled once, by calling cancel(), and tells
+ * the listeners registered with it when that happens.  Operations that
+ * wait for something, such as a running wrapper process, can thereby stop
+ * as soon as they are cancelled instead of asking the callback again
+ * every now and then.
+ */
+public class CancelToken
+    implements CancelCallback
+{
+    private final Vector<Runnable> listeners = new Vector<Runnable>();
+    private volatile boolean       cancelled;
+
+
+    /**
+     * Requests the cancellation and runs all registered listeners, in the
+     * calling thread.  Calling this again has no effect.
+     */
+    public void cancel()
+    {
+        Runnable[] toRun;
+        synchronized (listeners)
+        {
+            if (cancelled) return;
+            cancelled = true;
+            toRun = listeners.toArray(new Runnable[listeners.size()]);
+            listeners.clear();
+        }
+        for (Runnable listener : toRun)
+            listener.run();
+    }
+
+
+    /**
+     * @return true if cancel() has been called
+     */
+    @Override
+    public boolean cancellationRequested()
+    {
+        return cancelled;
+    }
+
+
+    /**
+     * Registers a listener to run when this is cancelled.  If it already
+     * is, the listener is run right away, in the calling thread.
+     * 
+     * @param listener
+     *            the listener
+     */
+    public void addListener(Runnable listener)
+    {
+        synchronized (listeners)
+        {
+            if (!cancelled)
+            {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+
+    /**
+     * Removes a listener that is no longer interested in the cancellation.
+     * 
+     * @param listener
+     *            the listener
+     */
+    public void removeListener(Runnable listener)
+    {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,282 @@
+//
+// @file   ComparisonMatrix.java
+// @brief  Results of several wrappers side by side
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+
+package org.sbml.testsuite.core;
+
+import java.io.PrintStream;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * ComparisonMatrix computes the results of several wrappers for all cases
+ * of a test suite at once, as a table with one row per case and one column
+ * per wrapper.
+ * 
+ * The results are computed like those of a BulkResync, which this shares
+ * its evaluation with: each case is handled by one thread, which obtains
+ * the expected result once and compares the output of every wrapper
+ * against it, unless the result is in the wrapper's journal or snapshot.
+ * The results are also stored in each wrapper's cache, so that switching
+ * to one of the wrappers afterwards costs nothing.
+ */
+public class ComparisonMatrix
+{
+    private final TestSuite               suite;
+    private final LevelVersion            lv;
+    private final Vector<WrapperConfig>   wrappers;
+    private final TestCase[]              tests;
+    private final ResultType[][]          results;
+    private long                          elapsedNanos;
+
+
+    /**
+     * Constructs a new matrix for the given wrappers.  Nothing is computed
+     * until compute() is called.
+     * 
+     * @param suite
+     *            the tests to compare against
+     * @param lv
+     *            the SBML Level/Version to use (null or 0 = highest)
+     * @param wrappers
+     *            the wrappers, one per column
+     */
+    public ComparisonMatrix(TestSuite suite, LevelVersion lv,
+                            Vector<WrapperConfig> wrappers)
+    {
+        this.suite = suite;
+        this.lv = (lv == null ? new LevelVersion() : lv);
+        this.wrappers = new Vector<WrapperConfig>(wrappers);
+        Vector<TestCase> cases = suite.getSortedCases();
+        this.tests = cases.toArray(new TestCase[cases.size()]);
+        this.results = new ResultType[tests.length][this.wrappers.size()];
+    }
+
+
+    /**
+     * Computes all results and blocks until they are known.
+     * 
+     * @return this matrix
+     */
+    public ComparisonMatrix compute()
+    {
+        long start = System.nanoTime();
+
+        BulkResync.Pass pass = BulkResync.evaluate(tests, lv, wrappers);
+        for (int column = 0; column < wrappers.size(); column++)
+            for (int row = 0; row < tests.length; row++)
+                results[row][column] = pass.columns[column].results[row];
+
+        elapsedNanos = System.nanoTime() - start;
+        return this;
+    }
+
+
+    /**
+     * Starts computing all results in the background and returns right
+     * away.  The matrix is computed after any resyncs started before it,
+     * on the same thread.
+     * 
+     * @return a future that completes with this matrix
+     * @see BulkResync#start()
+     */
+    public CompletableFuture<ComparisonMatrix> start()
+    {
+        return BulkResync.submit(new Supplier<ComparisonMatrix>() {
+            public ComparisonMatrix get()
+            {
+                return compute();
+            }
+        });
+    }
+
+
+    /**
+     * @return the test suite
+     */
+    public TestSuite getSuite()
+    {
+        return suite;
+    }
+
+
+    /**
+     * @return the SBML Level/Version the results are for
+     */
+    public LevelVersion getLevelVersion()
+    {
+        return lv;
+    }
+
+
+    /**
+     * @return the number of rows, i.e., cases
+     */
+    public int getNumCases()
+    {
+        return tests.length;
+    }
+
+
+    /**
+     * @return the number of columns, i.e., wrappers
+     */
+    public int getNumWrappers()
+    {
+        return wrappers.size();
+    }
+
+
+    /**
+     * Returns the case of the given row
+     * 
+     * @param row
+     *            the row index
+     * @return the case
+     */
+    public TestCase getCase(int row)
+    {
+        return tests[row];
+    }
+
+
+    /**
+     * Returns the wrapper of the given column
+     * 
+     * @param column
+     *            the column index
+     * @return the wrapper
+     */
+    public WrapperConfig getWrapper(int column)
+    {
+        return wrappers.get(column);
+    }
+
+
+    /**
+     * Returns the result of the given case and wrapper
+     * 
+     * @param row
+     *            the row index
+     * @param column
+     *            the column index
+     * @return the result, or null if compute() hasn't been called
+     */
+    public ResultType get(int row, int column)
+    {
+        return results[row][column];
+    }
+
+
+    /**
+     * Returns the number of cases for which the given wrapper got the
+     * given result
+     * 
+     * @param column
+     *            the column index
+     * @param type
+     *            the result type
+     * @return the number of cases
+     */
+    public int getCount(int column, ResultType type)
+    {
+        int count = 0;
+        for (ResultType[] row : results)
+            if (row[column] == type) count++;
+        return count;
+    }
+
+
+    /**
+     * Returns whether all wrappers got the same result for the given case
+     * 
+     * @param row
+     *            the row index
+     * @return true if the results agree
+     */
+    public boolean isUnanimous(int row)
+    {
+        for (int column = 1; column < results[row].length; column++)
+            if (results[row][column] != results[row][0]) return false;
+        return true;
+    }
+
+
+    /**
+     * @return the time compute() took, in milliseconds
+     */
+    public long getElapsedMillis()
+    {
+        return elapsedNanos / 1000000;
+    }
+
+
+    /**
+     * Prints the matrix as a text table, followed by the number of each
+     * result for every wrapper.
+     * 
+     * @param stream
+     *            the stream to print to
+     * @param onlyDisagreements
+     *            if true, only cases for which the wrappers got different
+     *            results are listed
+     */
+    public void print(PrintStream stream, boolean onlyDisagreements)
+    {
+        int width = 0;
+        for (ResultType type : ResultType.values())
+            width = Math.max(width, type.name().length());
+        for (WrapperConfig wrapper : wrappers)
+            width = Math.max(width, wrapper.getName().length());
+        String cell = "  %-" + width + "s";
+
+        stream.print(String.format("%-11s", "Case"));
+        for (WrapperConfig wrapper : wrappers)
+            stream.print(String.format(cell, wrapper.getName()));
+        stream.println();
+
+        for (int row = 0; row < tests.length; row++)
+        {
+            if (onlyDisagreements && isUnanimous(row)) continue;
+            stream.print(String.format("%-11s", tests[row].getId()));
+            for (ResultType result : results[row])
+                stream.print(String.format(cell, result));
+            stream.println();
+        }
+
+        stream.println();
+        for (ResultType type : ResultType.values())
+        {
+            stream.print(String.format("%-11s", type));
+            for (int column = 0; column < wrappers.size(); column++)
+                stream.print(String.format(cell, getCount(column, type)));
+            stream.println();
+        }
+    }
+}
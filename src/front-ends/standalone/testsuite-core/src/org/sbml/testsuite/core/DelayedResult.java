@@ -32,40 +32,40 @@
 
 package org.sbml.testsuite.core;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Asynchronous determination of the result type for a given wrapper and test
  * 
+ * A DelayedResult is a handle on a CompletableFuture, which takes care of
+ * making the result visible to all threads once it is known.  Callers that
+ * can't afford to wait, such as the UI thread, should register a callback
+ * on getFuture() or use getResultIfDone() rather than call getResult().
  */
 public class DelayedResult
 {
     /**
-     * boolean indicating whether the operation completed
+     * the computation of the result
      */
-    private boolean             isDone;
-
-    /**
-     * computed result type
-     */
-    ResultType                  result;
+    private final CompletableFuture<ResultType> future;
 
     /**
      * Level and Version for which this result was computed.
      */
-    LevelVersion                levelVersion;
+    private final LevelVersion                  levelVersion;
 
     /**
-     * asynchronous worker computing the result
+     * Numbers the results in the order they were created, so that a batch
+     * of results that took a while to compute can tell which cached results
+     * are newer than the batch.
      */
-    FutureTask<ResultType>      worker;
+    private static final AtomicLong             stamps = new AtomicLong();
 
-    /**
-     * wrapper configuration
-     */
-    private final WrapperConfig wrapperConfig;
+    private final long                          stamp = stamps.incrementAndGet();
 
 
     /**
@@ -78,10 +78,7 @@ public class DelayedResult
      */
     public DelayedResult(ResultType result)
     {
-        this.result = result;
-        this.levelVersion = new LevelVersion();
-        wrapperConfig = null;
-        isDone = true;
+        this(result, new LevelVersion());
     }
 
 
@@ -97,10 +94,7 @@ public class DelayedResult
      */
     public DelayedResult(ResultType result, LevelVersion lv)
     {
-        this.result = result;
-        this.levelVersion = lv;
-        wrapperConfig = null;
-        isDone = true;
+        this(CompletableFuture.completedFuture(result), lv);
     }
 
 
@@ -116,28 +110,33 @@ public class DelayedResult
      * @param lv
      *            the SBML Level/Version to use for the test case
      */
-    public DelayedResult(WrapperConfig wrapperConfig, final TestCase test,
+    public DelayedResult(final WrapperConfig wrapperConfig, final TestCase test,
                          final LevelVersion lv)
     {
-        this.wrapperConfig = wrapperConfig;
-        this.levelVersion = lv;
-        result = ResultType.Unknown;
-        isDone = false;
-
-        worker = new FutureTask<ResultType>(new Callable<ResultType>() {
+        this(CompletableFuture.supplyAsync(new Supplier<ResultType>() {
+                 public ResultType get()
+                 {
+                     return wrapperConfig.getResultTypeInternal(test,
+                                                                lv.getLevel(),
+                                                                lv.getVersion());
+                 }
+             }, WrapperSession.executor), lv);
+    }
 
-            public ResultType call()
-                throws Exception
-            {
-                WrapperConfig wrapper = DelayedResult.this.wrapperConfig;
-                result = wrapper.getResultTypeInternal(test, lv.getLevel(),
-                                                       lv.getVersion());
-                isDone = true;
-                return result;
-            }
 
-        });
-        WrapperConfig.executor.execute(worker);
+    /**
+     * Constructs a new DelayedResult for a result that is computed
+     * elsewhere, for example as part of a batch.
+     * 
+     * @param future
+     *            the computation of the result
+     * @param lv
+     *            the level and version to which the result applies
+     */
+    DelayedResult(CompletableFuture<ResultType> future, LevelVersion lv)
+    {
+        this.future = future;
+        this.levelVersion = lv;
     }
 
 
@@ -145,30 +144,49 @@ public class DelayedResult
      * Return the result type computed. If the operation did not yet
      * complete it will wait for the result to be computed first.
      * 
-     * @return
+     * @return the result type, or Unknown if it could not be computed
      */
     public ResultType getResult()
     {
-        if (isDone) return result;
-
         try
         {
-            result = worker.get();
-        }
-        catch (InterruptedException e)
-        {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+            return future.join();
         }
-        catch (ExecutionException e)
+        catch (CompletionException e)
         {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+            e.getCause().printStackTrace();
+            return ResultType.Unknown;
         }
-        isDone = true;
-        worker = null;
-        return result;
+    }
+
+
+    /**
+     * Returns the result type if it has been computed, without waiting.
+     * 
+     * @return the result type, or null if it is not known yet
+     */
+    public ResultType getResultIfDone()
+    {
+        if (!future.isDone()) return null;
+        return getResult();
+    }
+
 
+    /**
+     * Returns the computation of the result, on which callers can register
+     * callbacks instead of waiting for it.  The future completes with
+     * Unknown if the result could not be computed.
+     * 
+     * @return the future result type
+     */
+    public CompletableFuture<ResultType> getFuture()
+    {
+        return future.exceptionally(new Function<Throwable, ResultType>() {
+            public ResultType apply(Throwable e)
+            {
+                return ResultType.Unknown;
+            }
+        });
     }
 
 
@@ -178,13 +196,32 @@ public class DelayedResult
     }
 
 
+    /**
+     * @return the number of this result in the order of creation
+     */
+    long getStamp()
+    {
+        return stamp;
+    }
+
+
+    /**
+     * @return the number of the result created last; results created from
+     *         now on have higher numbers
+     */
+    static long currentStamp()
+    {
+        return stamps.get();
+    }
+
+
     /**
      * 
      * @return boolean indicating whether the current task is complete
      */
     public boolean isDone()
     {
-        return isDone;
+        return future.isDone();
     }
 
 }
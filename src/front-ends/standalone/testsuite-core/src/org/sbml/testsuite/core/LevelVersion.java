@@ -79,4 +79,15 @@ public class LevelVersion
         LevelVersion other = (LevelVersion) obj;
         return (level == other.getLevel() && version == other.getVersion());
     }
+
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode()
+    {
+        return 31 * level + version;
+    }
 }
@@ -31,6 +31,10 @@
 
 package org.sbml.testsuite.core;
 
+import java.io.File;
+import java.io.IOException;
+import java.text.DateFormat;
+import java.util.Date;
 import java.util.Vector;
 import org.sbml.testsuite.core.RunOutcome.Code;
 import org.sbml.testsuite.core.commandline.TestSuiteArguments;
@@ -61,6 +65,30 @@ public class Main
         {
             runWrapper(args);
         }
+        else if (args.isShouldSync())
+        {
+            syncWrapper(args);
+        }
+        else if (args.isShouldCompare())
+        {
+            compareWrappers(args);
+        }
+        else if (args.isShouldExport())
+        {
+            exportSnapshot(args);
+        }
+        else if (args.isShouldImport())
+        {
+            importSnapshot(args);
+        }
+        else if (args.isShouldShowChanges())
+        {
+            showChanges(args);
+        }
+        else if (args.isShouldShowHistory())
+        {
+            showHistory(args);
+        }
         else if (args.isShouldListReleases())
         {
             Vector<String> archives = Util.getCaseArchiveURLs(args.getPublishDate());
@@ -84,6 +112,260 @@ public class Main
     }
 
 
+    /**
+     * Recomputes all results of the specified wrapper from the files in its
+     * output directory.
+     * 
+     * @param args
+     *            the parsed arguments
+     */
+    public static void syncWrapper(TestSuiteArguments args)
+    {
+        TestSuiteSettings settings = TestSuiteSettings.loadDefault();
+        WrapperConfig wrapper = settings.getWrapper(args.getWrapperName());
+        if (wrapper == null)
+        {
+            System.out.println(String.format("The wrapper '%s' does not exist.",
+                                             args.getWrapperName()));
+            System.exit(1);
+        }
+
+        System.out.println(String.format("Synchronizing results of wrapper %s",
+                                         wrapper.getName()));
+        // Resyncs run one at a time on a background thread; wait for this
+        // one, after any that were started before it.
+
+        BulkResync.Report report
+            = new BulkResync(settings.getSuite(), settings.getLastLevelVersion(),
+                             wrapper).start().join();
+        System.out.println(report);
+        printSkipped(wrapper);
+        System.out.println();
+        System.out.println("done ...");
+        System.exit(0);
+    }
+
+
+    /**
+     * Prints the results of the specified wrappers side by side.
+     * 
+     * @param args
+     *            the parsed arguments
+     */
+    public static void compareWrappers(TestSuiteArguments args)
+    {
+        TestSuiteSettings settings = TestSuiteSettings.loadDefault();
+        Vector<WrapperConfig> wrappers = new Vector<WrapperConfig>();
+        for (String name : args.getWrapperNames())
+            wrappers.add(settings.getWrapper(name));
+
+        ComparisonMatrix matrix
+            = new ComparisonMatrix(settings.getSuite(),
+                                   settings.getLastLevelVersion(),
+                                   wrappers).start().join();
+        matrix.print(System.out, false);
+        System.out.println();
+        System.out.println(String.format("%d cases x %d wrappers in %d ms",
+                                         matrix.getNumCases(),
+                                         matrix.getNumWrappers(),
+                                         matrix.getElapsedMillis()));
+        for (WrapperConfig wrapper : wrappers)
+            wrapper.saveVerdicts();
+        System.exit(0);
+    }
+
+
+    /**
+     * Writes the results of the specified wrapper to a snapshot file.
+     * 
+     * @param args
+     *            the parsed arguments
+     */
+    public static void exportSnapshot(TestSuiteArguments args)
+    {
+        TestSuiteSettings settings = TestSuiteSettings.loadDefault();
+        WrapperConfig wrapper = settings.getWrapper(args.getWrapperName());
+        LevelVersion lv = settings.getLastLevelVersion();
+        File file = new File(args.getSnapshotFile());
+
+        System.out.println(String.format("Writing results of wrapper %s for %s to %s",
+                                         wrapper.getName(), describe(lv),
+                                         file));
+        try
+        {
+            VerdictSnapshot.of(settings.getSuite(), lv, wrapper).join()
+                           .write(file);
+        }
+        catch (IOException e)
+        {
+            System.out.println("Unable to write the snapshot: " + e.getMessage());
+            System.exit(1);
+        }
+        wrapper.saveVerdicts();
+        System.out.println(String.format("... wrote %d bytes", file.length()));
+        System.exit(0);
+    }
+
+
+    /**
+     * Adds a view-only wrapper for the specified snapshot file.
+     * 
+     * @param args
+     *            the parsed arguments
+     */
+    public static void importSnapshot(TestSuiteArguments args)
+    {
+        File file = new File(args.getSnapshotFile());
+        VerdictSnapshot snapshot = null;
+        try
+        {
+            snapshot = VerdictSnapshot.read(file);
+        }
+        catch (IOException e)
+        {
+            System.out.println("Unable to read the snapshot: " + e.getMessage());
+            System.exit(1);
+        }
+
+        TestSuiteSettings settings = TestSuiteSettings.loadDefault();
+        WrapperConfig wrapper = snapshot.importInto(settings, file);
+        System.out.println(String.format("Added %d results of wrapper %s for %s "
+                                         + "as view-only wrapper %s",
+                                         snapshot.getNumCases(),
+                                         snapshot.getWrapperName(),
+                                         describe(snapshot.getLevelVersion()),
+                                         wrapper.getName()));
+        System.exit(0);
+    }
+
+
+    /**
+     * Lists the cases whose result changed between two runs of the
+     * specified wrapper, or all cases of one run.
+     * 
+     * @param args
+     *            the parsed arguments
+     */
+    public static void showChanges(TestSuiteArguments args)
+    {
+        TestSuiteSettings settings = TestSuiteSettings.loadDefault();
+        WrapperConfig wrapper = settings.getWrapper(args.getWrapperName());
+        RunHistory history = openHistory(wrapper);
+
+        String[] range = args.getRunRange().split("-");
+        try
+        {
+            if (range.length == 1)
+            {
+                int run = Integer.parseInt(range[0]);
+                Vector<RunHistory.Entry> entries = history.getRun(run);
+                System.out.println(String.format("Run %d of wrapper %s: %d cases",
+                                                 run, wrapper.getName(),
+                                                 entries.size()));
+                for (RunHistory.Entry entry : entries)
+                    System.out.println("\t" + entry);
+            }
+            else if (range.length == 2)
+            {
+                int from = Integer.parseInt(range[0]);
+                int to = Integer.parseInt(range[1]);
+                Vector<RunHistory.Change> changes = history.getChanges(from, to);
+                System.out.println(String.format("Cases of wrapper %s whose result "
+                                                 + "changed from run %d to run %d: %d",
+                                                 wrapper.getName(), from, to,
+                                                 changes.size()));
+                for (RunHistory.Change change : changes)
+                    System.out.println("\t" + change);
+            }
+            else
+            {
+                System.out.println(String.format("Invalid run range '%s' specified",
+                                                 args.getRunRange()));
+                System.exit(1);
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            System.out.println(String.format("Invalid run range '%s' specified",
+                                             args.getRunRange()));
+            System.exit(1);
+        }
+        catch (IOException e)
+        {
+            System.out.println("Unable to read the history: " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println(String.format("(%d runs recorded)", history.getNumRuns()));
+        wrapper.closeHistory();
+        System.exit(0);
+    }
+
+
+    /**
+     * Lists the past runs of a case by the specified wrapper, oldest first.
+     * 
+     * @param args
+     *            the parsed arguments
+     */
+    public static void showHistory(TestSuiteArguments args)
+    {
+        TestSuiteSettings settings = TestSuiteSettings.loadDefault();
+        WrapperConfig wrapper = settings.getWrapper(args.getWrapperName());
+        RunHistory history = openHistory(wrapper);
+
+        String id = args.getCaseId();
+        try
+        {
+            id = String.format("%05d", Integer.parseInt(id));
+        }
+        catch (NumberFormatException e)
+        {
+            System.out.println(String.format("Invalid case '%s' specified", id));
+            System.exit(1);
+        }
+
+        try
+        {
+            Vector<RunHistory.Entry> entries = history.getHistory(id);
+            System.out.println(String.format("Runs of case %s by wrapper %s: %d",
+                                             id, wrapper.getName(),
+                                             entries.size()));
+            DateFormat format = DateFormat.getDateTimeInstance();
+            for (RunHistory.Entry entry : entries)
+                System.out.println("\t" + format.format(new Date(entry.getStarted()))
+                                   + "  " + entry);
+        }
+        catch (IOException e)
+        {
+            System.out.println("Unable to read the history: " + e.getMessage());
+            System.exit(1);
+        }
+        wrapper.closeHistory();
+        System.exit(0);
+    }
+
+
+    private static RunHistory openHistory(WrapperConfig wrapper)
+    {
+        RunHistory history = wrapper.getHistory();
+        if (history == null)
+        {
+            System.out.println(String.format("There is no history of wrapper %s.",
+                                             wrapper.getName()));
+            System.exit(1);
+        }
+        return history;
+    }
+
+
+    private static String describe(LevelVersion lv)
+    {
+        if (lv == null || lv.isHighest())
+            return "the highest SBML Level/Version";
+        return lv.toString();
+    }
+
+
     /**
      * Runs the specified wrapper for over the given range.
      * 
@@ -108,6 +390,9 @@ public class Main
             System.exit(1);
         }
 
+        if (wrapper.getHistory() != null)
+            wrapper.getHistory().beginRun();
+
         TestCase test = settings.getSuite().get(args.getTestOrTestRange());
         if (test != null)
         {
@@ -116,17 +401,7 @@ public class Main
             RunOutcome result = wrapper.run(test, settings.getSuite()
                                                           .getCasesDirectory()
                                                           .getAbsolutePath());
-
-            if (result.getCode() == Code.success)
-            {
-                System.out.println(String.format("... run succeeded, result is: "
-                    + wrapper.getResultType(test).toString()));
-            }
-            else
-            {
-                System.out.println(result.getMessage());
-            }
-
+            printOutcome(wrapper, test, result);
         }
         else
         {
@@ -143,25 +418,46 @@ public class Main
                 int lower = Integer.parseInt(range[0]);
                 int end = Integer.parseInt(range[1]);
 
+                Vector<TestCase> tests = new Vector<TestCase>();
                 for (int i = lower; i >= 0 && i <= end
                     && i < settings.getSuite().getNumCases(); i++)
+                    tests.add(settings.getSuite().get(i - 1));
+
+                if (wrapper.isBatchMode() && !tests.isEmpty())
                 {
-                    test = settings.getSuite().get(i - 1);
-                    System.out.println(String.format("Starting Wrapper %s for case %s",
+                    // The wrapper is started once per batch of up to
+                    // WrapperSession.MAX_BATCH_SIZE cases.
+
+                    System.out.println(String.format("Starting Wrapper %s for %d cases",
                                                      wrapper.getName(),
-                                                     test.getId()));
-                    RunOutcome result = wrapper.run(test,
-                                                    settings.getSuite()
-                                                            .getCasesDirectory()
-                                                            .getAbsolutePath());
-                    if (result.getCode() == Code.success)
-                    {
-                        System.out.println(String.format("... run succeeded, result is: "
-                            + wrapper.getResultType(test).toString()));
-                    }
-                    else
+                                                     tests.size()));
+                    final WrapperConfig batchWrapper = wrapper;
+                    wrapper.runBatch(tests, null,
+                                     settings.getSuite()
+                                             .getCasesDirectory()
+                                             .getAbsolutePath(),
+                                     250, null, true,
+                                     new WrapperSession.BatchListener() {
+                        public void caseDone(TestCase test, RunOutcome result)
+                        {
+                            System.out.println(String.format("... case %s",
+                                                             test.getId()));
+                            printOutcome(batchWrapper, test, result);
+                        }
+                    });
+                }
+                else
+                {
+                    for (TestCase current : tests)
                     {
-                        System.out.println(result.getMessage());
+                        System.out.println(String.format("Starting Wrapper %s for case %s",
+                                                         wrapper.getName(),
+                                                         current.getId()));
+                        RunOutcome result = wrapper.run(current,
+                                                        settings.getSuite()
+                                                                .getCasesDirectory()
+                                                                .getAbsolutePath());
+                        printOutcome(wrapper, current, result);
                     }
                 }
             }
@@ -173,8 +469,51 @@ public class Main
             }
 
         }
+        for (String id : wrapper.findLateResultFiles())
+            System.out.println(String.format("... found the result file of case %s "
+                                             + "after the run, result is: %s", id,
+                                             wrapper.getResultType(settings.getSuite()
+                                                                           .get(id))));
+        wrapper.saveVerdicts();
+        wrapper.closeHistory();
+        wrapper.stopWorkers();
+        printSkipped(wrapper);
         System.out.println();
         System.out.println("done ...");
         System.exit(0);
     }
+
+
+    /**
+     * Prints the result of running the given case, or what went wrong.
+     */
+    private static void printOutcome(WrapperConfig wrapper, TestCase test,
+                                     RunOutcome result)
+    {
+        if (result.getCode() == Code.success)
+        {
+            System.out.println(String.format("... run succeeded, result is: "
+                + wrapper.getResultType(test).toString()));
+        }
+        else
+        {
+            System.out.println(result.getMessage());
+        }
+    }
+
+
+    /**
+     * Prints how many results of the given wrapper were taken from earlier
+     * evaluations of the same output, if any.
+     * 
+     * @param wrapper
+     *            the wrapper
+     */
+    private static void printSkipped(WrapperConfig wrapper)
+    {
+        long skipped = wrapper.getNumSkippedEvaluations();
+        if (skipped > 0)
+            System.out.println(String.format("%d results taken from earlier "
+                + "evaluations of identical output", skipped));
+    }
 }
@@ -0,0 +1,334 @@
+//
+// @file   OutputCapture.java
+// @brief  Bounded capture of the output of a wrapper process
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+
+
+package org.sbml.testsuite.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.List;
+
+/**
+ * OutputCapture collects what a wrapper process writes to its standard
+ * output and error streams.  The streams are redirected to files by the
+ * operating system, so no thread has to read them while the process runs,
+ * and only the beginning and the end of each are read back afterwards, so
+ * a wrapper that prints megabytes costs no more memory than one that
+ * prints a page.
+ * 
+ * The files are either temporary ones, deleted by dispose(), or log files
+ * for the case in the wrapper's output directory that are kept for the
+ * user to look at.
+ */
+public class OutputCapture
+{
+    /**
+     * How many bytes from the beginning of a stream are kept.
+     */
+    public static final int HEAD_SIZE = 16 * 1024;
+
+    /**
+     * How many bytes from the end of a stream are kept.
+     */
+    public static final int TAIL_SIZE = 16 * 1024;
+
+    private final File      outputFile;
+    private final File      errorFile;
+    private final boolean   keep;
+
+
+    private OutputCapture(File outputFile, File errorFile, boolean keep)
+    {
+        this.outputFile = outputFile;
+        this.errorFile = errorFile;
+        this.keep = keep;
+    }
+
+
+    /**
+     * Creates a capture for running the given test.
+     * 
+     * @param test
+     *            the test
+     * @param logDir
+     *            the directory in which to keep the complete output as
+     *            "NNNNN-stdout.log" and "NNNNN-stderr.log", or null to keep
+     *            it only until dispose() is called
+     * @return the capture
+     * @throws IOException
+     *             if temporary files can't be created
+     */
+    public static OutputCapture forTest(TestCase test, File logDir)
+        throws IOException
+    {
+        return forName(test.getId(), logDir);
+    }
+
+
+    /**
+     * Creates a capture for running the given tests in one invocation of
+     * the wrapper.
+     * 
+     * @param tests
+     *            the tests
+     * @param logDir
+     *            the directory in which to keep the complete output as
+     *            "NNNNN-MMMMM-stdout.log" and "NNNNN-MMMMM-stderr.log",
+     *            after the first and last case, or null to keep it only
+     *            until dispose() is called
+     * @return the capture
+     * @throws IOException
+     *             if temporary files can't be created
+     */
+    public static OutputCapture forBatch(List<TestCase> tests, File logDir)
+        throws IOException
+    {
+        String first = tests.get(0).getId();
+        String last = tests.get(tests.size() - 1).getId();
+        return forName(first.equals(last) ? first : first + "-" + last,
+                       logDir);
+    }
+
+
+    /**
+     * Creates a capture for a worker process that runs one case after
+     * another.
+     * 
+     * @param number
+     *            the number of the worker
+     * @param logDir
+     *            the directory in which to keep the complete output as
+     *            "worker-N-stdout.log" and "worker-N-stderr.log", or null
+     *            to keep it only until dispose() is called
+     * @return the capture
+     * @throws IOException
+     *             if temporary files can't be created
+     */
+    public static OutputCapture forWorker(int number, File logDir)
+        throws IOException
+    {
+        // A worker may still be running when the program exits.
+
+        OutputCapture capture = forName("worker-" + number, logDir);
+        if (!capture.keep)
+        {
+            capture.outputFile.deleteOnExit();
+            capture.errorFile.deleteOnExit();
+        }
+        return capture;
+    }
+
+
+    private static OutputCapture forName(String name, File logDir)
+        throws IOException
+    {
+        if (logDir != null)
+            return new OutputCapture(new File(logDir, name + "-stdout.log"),
+                                     new File(logDir, name + "-stderr.log"),
+                                     true);
+        File outputFile = File.createTempFile("wrapper-" + name, ".out");
+        File errorFile = File.createTempFile("wrapper-" + name, ".err");
+        return new OutputCapture(outputFile, errorFile, false);
+    }
+
+
+    /**
+     * Sends the output and error streams of the process the given builder
+     * starts to this capture.
+     * 
+     * @param builder
+     *            the process builder
+     * @return the builder
+     */
+    public ProcessBuilder redirect(ProcessBuilder builder)
+    {
+        return builder.redirectOutput(Redirect.to(outputFile))
+                      .redirectError(Redirect.to(errorFile));
+    }
+
+
+    /**
+     * Sends only the error stream of the process the given builder starts
+     * to this capture, for processes whose output is read as it comes.
+     * 
+     * @param builder
+     *            the process builder
+     * @return the builder
+     */
+    public ProcessBuilder redirectErrors(ProcessBuilder builder)
+    {
+        return builder.redirectError(Redirect.to(errorFile));
+    }
+
+
+    /**
+     * @return the beginning and end of the standard output of the process
+     */
+    public String getOutput()
+    {
+        return excerpt(outputFile, 0, Long.MAX_VALUE);
+    }
+
+
+    /**
+     * @return the beginning and end of the standard error of the process
+     */
+    public String getErrors()
+    {
+        return excerpt(errorFile, 0, Long.MAX_VALUE);
+    }
+
+
+    /**
+     * @param start
+     *            the position in the output, such as an earlier length of
+     *            the output file
+     * @param end
+     *            the position after the last byte to read
+     * @return the beginning and end of the standard output in between
+     */
+    public String getOutputBetween(long start, long end)
+    {
+        return excerpt(outputFile, start, end);
+    }
+
+
+    /**
+     * @param start
+     *            the position in the error stream, such as an earlier
+     *            length of the error file
+     * @param end
+     *            the position after the last byte to read
+     * @return the beginning and end of the standard error in between
+     */
+    public String getErrorsBetween(long start, long end)
+    {
+        return excerpt(errorFile, start, end);
+    }
+
+
+    /**
+     * @return the file the standard output is written to
+     */
+    public File getOutputFile()
+    {
+        return outputFile;
+    }
+
+
+    /**
+     * @return the file the standard error is written to
+     */
+    public File getErrorFile()
+    {
+        return errorFile;
+    }
+
+
+    /**
+     * Deletes the files of this capture, unless they are log files to keep.
+     */
+    public void dispose()
+    {
+        if (keep) return;
+        if (!outputFile.delete()) outputFile.deleteOnExit();
+        if (!errorFile.delete()) errorFile.deleteOnExit();
+    }
+
+
+    /**
+     * Reads the given part of the given file if that's small, or else its
+     * first HEAD_SIZE and last TAIL_SIZE bytes, cut at line breaks where
+     * possible, with a note on how much was left out in between.
+     */
+    private static String excerpt(File file, long start, long end)
+    {
+        RandomAccessFile raf = null;
+        try
+        {
+            raf = new RandomAccessFile(file, "r");
+            long length = Math.min(raf.length(), end) - start;
+            if (length <= 0)
+                return "";
+            raf.seek(start);
+            if (length <= HEAD_SIZE + TAIL_SIZE)
+            {
+                byte[] all = new byte[(int) length];
+                raf.readFully(all);
+                return new String(all);
+            }
+
+            byte[] head = new byte[HEAD_SIZE];
+            raf.readFully(head);
+            byte[] tail = new byte[TAIL_SIZE];
+            raf.seek(start + length - TAIL_SIZE);
+            raf.readFully(tail);
+
+            int headEnd = HEAD_SIZE;
+            for (int i = HEAD_SIZE - 1; i >= 0; i--)
+                if (head[i] == '\n')
+                {
+                    headEnd = i + 1;
+                    break;
+                }
+            int tailStart = 0;
+            for (int i = 0; i < TAIL_SIZE; i++)
+                if (tail[i] == '\n')
+                {
+                    tailStart = i + 1;
+                    break;
+                }
+
+            long omitted = length - headEnd - (TAIL_SIZE - tailStart);
+            return new String(head, 0, headEnd)
+                + "[... " + omitted + " bytes omitted ...]\n"
+                + new String(tail, tailStart, TAIL_SIZE - tailStart);
+        }
+        catch (IOException e)
+        {
+            return "";
+        }
+        finally
+        {
+            if (raf != null)
+            {
+                try
+                {
+                    raf.close();
+                }
+                catch (IOException e)
+                {
+                    // Nothing we can do.
+                }
+            }
+        }
+    }
+}
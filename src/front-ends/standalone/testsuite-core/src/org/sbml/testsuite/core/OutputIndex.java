@@ -0,0 +1,327 @@
+//
+// @file   OutputIndex.java
+// @brief  Index of the result files in a wrapper output directory
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+
+package org.sbml.testsuite.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * OutputIndex knows which result files a wrapper output directory holds
+ * for which case, so that finding the result file of a case doesn't
+ * require listing the directory.
+ * 
+ * A file is a result file for a case if its name ends in ".csv" (in any
+ * case) and contains the 5-digit case id, as allowed by the online SBML
+ * Test Suite.  A file named exactly "NNNNN.csv" is preferred; otherwise the
+ * first file found that contains the id is used.  If we ever change what's
+ * allowed to be uploaded in the online system, we need to make
+ * corresponding changes here.
+ * 
+ * The index is built with a single pass over the directory the first time
+ * it is needed.  After that, it is kept up to date through refresh(),
+ * which lists the directory again, and update(), which only looks at one
+ * file.  All methods are thread-safe.
+ */
+class OutputIndex
+{
+    /**
+     * The number of digits of a case id
+     */
+    static final int                    ID_LENGTH = 5;
+
+    private final String                directory;
+    private boolean                     built;
+
+    /**
+     * All result files, by file name, in the order they were found
+     */
+    private final Map<String, Entry>    files = new LinkedHashMap<String, Entry>();
+
+    /**
+     * The names of the result files of each case id, in the order they were
+     * found
+     */
+    private final Map<String, Vector<String>> candidates
+        = new HashMap<String, Vector<String>>();
+
+    /**
+     * The result file chosen for each case id
+     */
+    private final Map<String, Entry>    byId = new HashMap<String, Entry>();
+
+
+    /**
+     * Constructs an index of the given directory, which is built when it
+     * is first used.
+     * 
+     * @param directory
+     *            the wrapper output directory
+     */
+    OutputIndex(String directory)
+    {
+        this.directory = (directory == null ? "" : directory);
+    }
+
+
+    /**
+     * @return the directory this index is for
+     */
+    String getDirectory()
+    {
+        return directory;
+    }
+
+
+    /**
+     * Returns the result file for the case with the given id
+     * 
+     * @param id
+     *            the case id
+     * @return the result file, or null if there is none
+     */
+    File get(String id)
+    {
+        Entry entry = getEntry(id);
+        return (entry == null ? null : entry.file);
+    }
+
+
+    /**
+     * Returns the result file for the case with the given id, along with
+     * its size and modification time as of the last time it was seen.
+     * 
+     * @param id
+     *            the case id
+     * @return the entry, or null if there is no result file
+     */
+    synchronized Entry getEntry(String id)
+    {
+        if (!built) refresh();
+        return byId.get(id);
+    }
+
+
+    /**
+     * Lists the directory again and rebuilds the index from scratch.
+     */
+    synchronized void refresh()
+    {
+        files.clear();
+        built = true;
+        if (directory.length() > 0)
+        {
+            try (DirectoryStream<Path> stream
+                    = Files.newDirectoryStream(new File(directory).toPath()))
+            {
+                for (Path path : stream)
+                {
+                    Entry entry = read(path);
+                    if (entry != null) files.put(entry.file.getName(), entry);
+                }
+            }
+            catch (IOException e)
+            {
+                // Same as an empty directory: there are no results yet.
+            }
+            catch (InvalidPathException e)
+            {
+                // An output path that isn't a valid path has no results.
+            }
+        }
+        candidates.clear();
+        for (String name : files.keySet())
+            addCandidate(name);
+        byId.clear();
+        for (String id : candidates.keySet())
+            choose(id);
+    }
+
+
+    /**
+     * Brings the index up to date with respect to the file with the given
+     * name, which may have been created, modified or deleted.
+     * 
+     * @param name
+     *            the file name, relative to the directory
+     */
+    synchronized void update(String name)
+    {
+        if (!built || !isCandidate(name)) return;
+
+        Entry entry = null;
+        try
+        {
+            entry = read(new File(directory, name).toPath());
+        }
+        catch (InvalidPathException e)
+        {
+            // Can't be a result file then.
+        }
+
+        if (entry != null)
+        {
+            // A known file keeps its place.
+            if (files.put(name, entry) == null) addCandidate(name);
+        }
+        else if (files.remove(name) != null)
+            removeCandidate(name);
+        else
+            return;
+
+        // Only the cases this file belongs to can have another result file
+        // now.
+
+        for (String id : new LinkedHashSet<String>(idsIn(name)))
+            choose(id);
+    }
+
+
+    /**
+     * Returns the ids of all cases whose result file the given file could
+     * be.
+     * 
+     * @param name
+     *            the file name
+     * @return the case ids, which are empty if it can't be a result file
+     */
+    static Vector<String> idsIn(String name)
+    {
+        Vector<String> ids = new Vector<String>();
+        if (!isCandidate(name)) return ids;
+        int run = 0;
+        for (int i = 0; i < name.length(); i++)
+        {
+            run = (Character.isDigit(name.charAt(i)) ? run + 1 : 0);
+            if (run >= ID_LENGTH)
+                ids.add(name.substring(i + 1 - ID_LENGTH, i + 1));
+        }
+        return ids;
+    }
+
+
+    private static boolean isCandidate(String name)
+    {
+        return name.toLowerCase().endsWith(".csv");
+    }
+
+
+    private static Entry read(Path path)
+    {
+        if (!isCandidate(path.getFileName().toString())) return null;
+        try
+        {
+            BasicFileAttributes attrs
+                = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attrs.isRegularFile()) return null;
+            return new Entry(path.toFile(), attrs.size(),
+                             attrs.lastModifiedTime().toMillis());
+        }
+        catch (IOException e)
+        {
+            return null;                // Vanished in the meantime.
+        }
+    }
+
+
+    private void addCandidate(String name)
+    {
+        for (String id : new LinkedHashSet<String>(idsIn(name)))
+        {
+            Vector<String> names = candidates.get(id);
+            if (names == null)
+            {
+                names = new Vector<String>(1);
+                candidates.put(id, names);
+            }
+            names.add(name);
+        }
+    }
+
+
+    private void removeCandidate(String name)
+    {
+        for (String id : new LinkedHashSet<String>(idsIn(name)))
+        {
+            Vector<String> names = candidates.get(id);
+            if (names == null) continue;
+            names.remove(name);
+            if (names.isEmpty()) candidates.remove(id);
+        }
+    }
+
+
+    /**
+     * Picks the result file of the case with the given id from the files
+     * that contain its id: the one named exactly "NNNNN.csv" if there is
+     * one, or else the first one found.
+     */
+    private void choose(String id)
+    {
+        Vector<String> names = candidates.get(id);
+        if (names == null)
+        {
+            byId.remove(id);
+            return;
+        }
+        String chosen = names.firstElement();
+        if (names.contains(id + ".csv")) chosen = id + ".csv";
+        byId.put(id, files.get(chosen));
+    }
+
+
+    /**
+     * A result file, with its size and modification time as of the last
+     * time it was seen.
+     */
+    static class Entry
+    {
+        final File file;
+        final long size;
+        final long lastModified;
+
+
+        Entry(File file, long size, long lastModified)
+        {
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
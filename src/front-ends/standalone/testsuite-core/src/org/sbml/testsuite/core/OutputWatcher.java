@@ -0,0 +1,307 @@
+//
+// @file   OutputWatcher.java
+// @brief  Watches a wrapper output directory for changed result files
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+
+package org.sbml.testsuite.core;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OutputWatcher keeps the results of a wrapper up to date while other
+ * programs, such as a batch job on a cluster, write result files into its
+ * output directory.
+ * 
+ * Changes are collected until the directory has been quiet for a short
+ * while, so that a file written in several steps is only looked at once.
+ * The wrapper's index of result files is updated for the changed files,
+ * their names are mapped to case ids, the wrapper's cached results for
+ * those cases are dropped, and the results are computed again on the
+ * wrapper thread pool.  If the file system reports
+ * that it lost track of the changes, all results are computed again.
+ */
+public class OutputWatcher
+{
+    /**
+     * Receives the results that were computed again.  It is called on the
+     * watcher thread.
+     */
+    public interface Listener
+    {
+        /**
+         * Called after the results of some cases were computed again.
+         * 
+         * @param results
+         *            a map with test ids / new result types
+         */
+        void resultsChanged(SortedMap<String, ResultType> results);
+    }
+
+
+    /**
+     * Milliseconds without further changes after which changes are handled
+     */
+    public static final long              QUIET_PERIOD = 500;
+
+    private final TestSuite               suite;
+    private final LevelVersion            lv;
+    private final WrapperConfig           wrapper;
+    private final Listener                listener;
+    private final Map<String, TestCase>   tests = new HashMap<String, TestCase>();
+
+    private WatchService                  service;
+    private Thread                        thread;
+
+
+    /**
+     * Constructs a new watcher for the output directory of the given
+     * wrapper.  Nothing is watched until start() is called.
+     * 
+     * @param suite
+     *            the tests to compare against
+     * @param lv
+     *            the SBML Level/Version to use (null or 0 = highest)
+     * @param wrapper
+     *            the wrapper whose output directory to watch
+     * @param listener
+     *            the listener to notify of new results, or null
+     */
+    public OutputWatcher(TestSuite suite, LevelVersion lv,
+                         WrapperConfig wrapper, Listener listener)
+    {
+        this.suite = suite;
+        this.lv = (lv == null ? new LevelVersion() : lv);
+        this.wrapper = wrapper;
+        this.listener = listener;
+        for (TestCase test : suite.getCases())
+            tests.put(test.getId(), test);
+    }
+
+
+    /**
+     * Starts watching the output directory in a background thread.
+     * 
+     * @throws IOException
+     *             if the output directory can't be watched, e.g., because
+     *             it doesn't exist
+     */
+    public synchronized void start()
+        throws IOException
+    {
+        if (thread != null) return;
+
+        String outputPath = wrapper.getOutputPath();
+        if (outputPath == null || outputPath.length() == 0)
+            throw new IOException("The wrapper has no output directory");
+
+        final WatchService watchService
+            = FileSystems.getDefault().newWatchService();
+        try
+        {
+            Paths.get(outputPath)
+                 .register(watchService,
+                           StandardWatchEventKinds.ENTRY_CREATE,
+                           StandardWatchEventKinds.ENTRY_MODIFY,
+                           StandardWatchEventKinds.ENTRY_DELETE);
+        }
+        catch (IOException e)
+        {
+            watchService.close();
+            throw e;
+        }
+        catch (RuntimeException e)      // E.g., an invalid path.
+        {
+            watchService.close();
+            throw new IOException(e);
+        }
+
+        service = watchService;
+        thread = new Thread(new Runnable() {
+            public void run()
+            {
+                watch(watchService);
+            }
+        }, "Output watcher for " + wrapper.getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+
+    /**
+     * Stops watching.  Results that are being computed are still stored.
+     */
+    public synchronized void stop()
+    {
+        if (service == null) return;
+        try
+        {
+            service.close();
+        }
+        catch (IOException e)
+        {
+            // Nothing more we can do.
+        }
+        service = null;
+        thread = null;
+    }
+
+
+    /**
+     * @return true if the output directory is being watched
+     */
+    public synchronized boolean isRunning()
+    {
+        return thread != null;
+    }
+
+
+    private void watch(WatchService watchService)
+    {
+        try
+        {
+            while (true)
+            {
+                TreeSet<String> ids = new TreeSet<String>();
+                boolean overflow = collect(watchService.take(), ids);
+
+                // Wait until things calm down.
+
+                WatchKey key;
+                while ((key = watchService.poll(QUIET_PERIOD,
+                                                TimeUnit.MILLISECONDS)) != null)
+                    overflow |= collect(key, ids);
+
+                if (overflow)
+                    resyncAll();
+                else if (!ids.isEmpty())
+                    resync(ids);
+            }
+        }
+        catch (ClosedWatchServiceException e)
+        {
+            // stop() was called.
+        }
+        catch (InterruptedException e)
+        {
+            // Ditto, more or less.
+        }
+    }
+
+
+    /**
+     * Adds the ids of the cases affected by the events of the given key.
+     * 
+     * @return true if events were lost
+     */
+    private boolean collect(WatchKey key, TreeSet<String> ids)
+    {
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents())
+        {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                overflow = true;
+            else
+                addIdsForName(((Path) event.context()).toString(), ids);
+        }
+        key.reset();
+        return overflow;
+    }
+
+
+    /**
+     * Updates the wrapper's index of result files for the given file and
+     * adds the ids of all cases whose result file it could be.
+     */
+    private void addIdsForName(String name, TreeSet<String> ids)
+    {
+        wrapper.getSession().getOutputIndex().update(name);
+        for (String id : OutputIndex.idsIn(name))
+            if (tests.containsKey(id)) ids.add(id);
+    }
+
+
+    private void resync(TreeSet<String> ids)
+        throws InterruptedException
+    {
+        Vector<Callable<Object>> tasks = new Vector<Callable<Object>>();
+        final SortedMap<String, ResultType> results
+            = new TreeMap<String, ResultType>();
+        for (String id : ids)
+        {
+            final TestCase test = tests.get(id);
+            wrapper.getSession().invalidate(id);
+            tasks.add(new Callable<Object>() {
+                public Object call()
+                {
+                    ResultType result = wrapper.getResultTypeInternal(test, lv);
+                    synchronized (results)
+                    {
+                        results.put(test.getId(), result);
+                    }
+                    return null;
+                }
+            });
+        }
+        WrapperSession.executor.invokeAll(tasks);
+
+        Map<String, DelayedResult> batch = new TreeMap<String, DelayedResult>();
+        for (Map.Entry<String, ResultType> entry : results.entrySet())
+            batch.put(entry.getKey(), new DelayedResult(entry.getValue(), lv));
+        wrapper.getSession().putCachedResults(lv, batch);
+
+        if (listener != null && !results.isEmpty())
+            listener.resultsChanged(results);
+    }
+
+
+    private void resyncAll()
+    {
+        new BulkResync(suite, lv, wrapper).run();
+
+        SortedMap<String, ResultType> results = new TreeMap<String, ResultType>();
+        for (String id : tests.keySet())
+            results.put(id, wrapper.getCachedResult(id, lv));
+        if (listener != null)
+            listener.resultsChanged(results);
+    }
+}
@@ -0,0 +1,219 @@
+//
+// @file   ResultCache.java
+// @brief  Results of a wrapper by case and SBML Level/Version
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+
+package org.sbml.testsuite.core;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * ResultCache holds the results of a wrapper for every combination of test
+ * case and SBML Level/Version that has been looked at, so that switching
+ * between Levels/Versions doesn't throw away the results for the others.
+ * 
+ * Reads never block; results can be dropped for one case, for one
+ * Level/Version or all at once.
+ */
+public class ResultCache
+{
+    private final ConcurrentMap<LevelVersion, ConcurrentSkipListMap<String, DelayedResult>> results
+        = new ConcurrentHashMap<LevelVersion, ConcurrentSkipListMap<String, DelayedResult>>();
+
+
+    /**
+     * Returns the cached result for the given test and Level/Version
+     * 
+     * @param id
+     *            the test id
+     * @param lv
+     *            the SBML Level/Version (null = highest)
+     * @return the result, or null if there is none
+     */
+    public DelayedResult get(String id, LevelVersion lv)
+    {
+        Map<String, DelayedResult> map = results.get(key(lv));
+        return (map == null ? null : map.get(id));
+    }
+
+
+    /**
+     * Returns the cached results for the given Level/Version
+     * 
+     * @param lv
+     *            the SBML Level/Version (null = highest)
+     * @return an unmodifiable, live map with test ids / results
+     */
+    public SortedMap<String, DelayedResult> get(LevelVersion lv)
+    {
+        return Collections.unmodifiableSortedMap(forLevelVersion(key(lv)));
+    }
+
+
+    /**
+     * Stores the result for the given test and Level/Version
+     * 
+     * @param id
+     *            the test id
+     * @param lv
+     *            the SBML Level/Version (null = highest)
+     * @param result
+     *            the result
+     */
+    public void put(String id, LevelVersion lv, DelayedResult result)
+    {
+        forLevelVersion(key(lv)).put(id, result);
+    }
+
+
+    /**
+     * Stores a batch of results for the given Level/Version
+     * 
+     * @param lv
+     *            the SBML Level/Version (null = highest)
+     * @param batch
+     *            a map with test ids / results
+     */
+    public void putAll(LevelVersion lv, Map<String, DelayedResult> batch)
+    {
+        forLevelVersion(key(lv)).putAll(batch);
+    }
+
+
+    /**
+     * Stores a batch of results for the given Level/Version, except where
+     * the cache holds a result created after the given point, e.g. by a
+     * run that finished while the batch was computed.
+     * 
+     * @param lv
+     *            the SBML Level/Version (null = highest)
+     * @param batch
+     *            a map with test ids / results
+     * @param since
+     *            the value of DelayedResult.currentStamp() when the batch
+     *            was started
+     */
+    public void putAllUnlessNewer(LevelVersion lv,
+                                  Map<String, DelayedResult> batch, long since)
+    {
+        ConcurrentSkipListMap<String, DelayedResult> map = forLevelVersion(key(lv));
+        for (Map.Entry<String, DelayedResult> entry : batch.entrySet())
+        {
+            String id = entry.getKey();
+            while (true)
+            {
+                DelayedResult old = map.get(id);
+                if (old == null)
+                {
+                    if (map.putIfAbsent(id, entry.getValue()) == null) break;
+                }
+                else if (old.getStamp() > since
+                         || map.replace(id, old, entry.getValue()))
+                    break;
+            }
+        }
+    }
+
+
+    /**
+     * Drops the results of the given test for all Levels/Versions
+     * 
+     * @param id
+     *            the test id
+     */
+    public void invalidate(String id)
+    {
+        for (Map<String, DelayedResult> map : results.values())
+            map.remove(id);
+    }
+
+
+    /**
+     * Drops the result of the given test for the given Level/Version
+     * 
+     * @param id
+     *            the test id
+     * @param lv
+     *            the SBML Level/Version (null = highest)
+     */
+    public void invalidate(String id, LevelVersion lv)
+    {
+        Map<String, DelayedResult> map = results.get(key(lv));
+        if (map != null) map.remove(id);
+    }
+
+
+    /**
+     * Drops the results of all tests for the given Level/Version
+     * 
+     * @param lv
+     *            the SBML Level/Version (null = highest)
+     */
+    public void invalidate(LevelVersion lv)
+    {
+        results.remove(key(lv));
+    }
+
+
+    /**
+     * Drops all results.
+     */
+    public void clear()
+    {
+        results.clear();
+    }
+
+
+    private ConcurrentSkipListMap<String, DelayedResult> forLevelVersion(LevelVersion lv)
+    {
+        ConcurrentSkipListMap<String, DelayedResult> map = results.get(lv);
+        if (map == null)
+        {
+            map = new ConcurrentSkipListMap<String, DelayedResult>();
+            ConcurrentSkipListMap<String, DelayedResult> existing
+                = results.putIfAbsent(lv, map);
+            if (existing != null) map = existing;
+        }
+        return map;
+    }
+
+
+    /**
+     * Returns a key for the given Level/Version that won't change even if
+     * the caller's object does.
+     */
+    private static LevelVersion key(LevelVersion lv)
+    {
+        if (lv == null || lv.isHighest()) return new LevelVersion(0, 0);
+        return new LevelVersion(lv.getLevel(), lv.getVersion());
+    }
+}
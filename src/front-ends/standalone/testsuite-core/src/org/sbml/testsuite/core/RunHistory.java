@@ -0,0 +1,937 @@
+//
+// @file   RunHistory.java
+// @brief  Append-only log of the results of the runs of a wrapper
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+
+package org.sbml.testsuite.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.Vector;
+
+/**
+ * RunHistory keeps a log of every case run by a wrapper, so that it can
+ * later be told when a case started or stopped failing.  The log is only
+ * ever appended to; each run of one or more cases gets the next run number
+ * and each case run in it adds one fixed-size record:
+ * 
+ * <pre>
+ *   int     run number, starting at 1
+ *   int     case id
+ *   byte    SBML Level
+ *   byte    SBML Version
+ *   byte    result type, as the ordinal of ResultType
+ *   byte    outcome, as the ordinal of RunOutcome.Code
+ *   long    time the case was started, in milliseconds since the epoch
+ *   int     wall time taken, in milliseconds
+ *   long    content hash of the result file, or 0 if there was none
+ * </pre>
+ * 
+ * An index next to the log holds the first record of each run and the
+ * records of each case, so that the history of a case or the changes
+ * between two runs are found without reading the whole log.  The index is
+ * written by save(); records appended since then are added to it the next
+ * time the log is opened.  Records are read through a mapping of the log,
+ * so that a query doesn't take a system call per record.  Both files are
+ * kept in the result cache directory.
+ * <p>
+ * The window and the command line may append to the same log at once.
+ * Each append locks the log and first adds the records written by others
+ * to the index, so that records are never overwritten and run numbers are
+ * never handed out twice.
+ */
+public class RunHistory
+{
+    private static final int    MAGIC       = 0x53545248; // "STRH"
+    private static final int    INDEX_MAGIC = 0x53545249; // "STRI"
+    private static final int    VERSION     = 1;
+    private static final int    HEADER_SIZE = 8;
+    private static final int    RECORD_SIZE = 32;
+
+    private final File          logFile;
+    private final File          indexFile;
+    private final String        wrapperName;
+    private final FileChannel   channel;
+    private MappedByteBuffer    mapped;
+
+    private int                 numRecords;
+    private int[]               runFirst    = new int[16];
+    private int                 numRuns;
+    private int                 currentRun;
+    private final Map<Integer, Positions> cases
+        = new HashMap<Integer, Positions>();
+    private boolean             runPending  = true;
+    private boolean             modified;
+
+
+    private RunHistory(File logFile, File indexFile, String wrapperName)
+        throws IOException
+    {
+        this.logFile = logFile;
+        this.indexFile = indexFile;
+        this.wrapperName = wrapperName;
+        this.channel = FileChannel.open(logFile.toPath(),
+                                        StandardOpenOption.CREATE,
+                                        StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE);
+    }
+
+
+    /**
+     * Opens the history of the given wrapper, creating it if it doesn't
+     * exist yet.
+     * 
+     * @param wrapperName
+     *            the name of the wrapper
+     * @param cacheDir
+     *            the directory holding the histories
+     * @return the history
+     * @throws IOException
+     *             if the log can't be opened, or exists but isn't a history
+     */
+    static RunHistory open(String wrapperName, File cacheDir)
+        throws IOException
+    {
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs())
+            throw new IOException("Unable to create " + cacheDir.getPath());
+
+        String base = baseName(wrapperName);
+        RunHistory history = new RunHistory(new File(cacheDir, base + ".log"),
+                                            new File(cacheDir, base + ".idx"),
+                                            wrapperName);
+        try
+        {
+            history.load();
+        }
+        catch (IOException e)
+        {
+            history.close();
+            throw e;
+        }
+        return history;
+    }
+
+
+    /**
+     * Returns the name of the files of a wrapper's history, without the
+     * extension: the wrapper name with all but letters, digits, '-' and '_'
+     * replaced, so that the files can be told apart by eye, followed by a
+     * digest of the full name, so that no two wrappers share the files.
+     * 
+     * @param wrapperName
+     *            the name of the wrapper
+     * @return the base name of the files
+     */
+    static String baseName(String wrapperName)
+    {
+        StringBuilder base = new StringBuilder("history-");
+        for (int i = 0; i < wrapperName.length() && i < 32; i++)
+        {
+            char c = wrapperName.charAt(i);
+            if (c < 128 && (Character.isLetterOrDigit(c) || c == '-'))
+                base.append(c);
+            else
+                base.append('_');
+        }
+        base.append('-');
+
+        byte[] digest;
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-256")
+                                  .digest(wrapperName.getBytes(StandardCharsets.UTF_8));
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+        for (int i = 0; i < 8; i++)
+            base.append(String.format("%02x", digest[i]));
+        return base.toString();
+    }
+
+
+    /**
+     * @param wrapperName
+     *            the name of a wrapper
+     * @return true if this is the history of the given wrapper
+     */
+    boolean isFor(String wrapperName)
+    {
+        return this.wrapperName.equals(wrapperName);
+    }
+
+
+    /**
+     * Starts a new run.  The records added from now on belong to it.  The
+     * run gets its number when its first record is added, so that runs
+     * without any cases don't show up in the history.  If another process
+     * records a run while this one is going, the rest of this one is
+     * recorded as a new run, so that the records of a run stay together.
+     */
+    public synchronized void beginRun()
+    {
+        runPending = true;
+    }
+
+
+    /**
+     * @return the number of runs recorded, which is also the number of the
+     *         last run
+     */
+    public synchronized int getNumRuns()
+    {
+        return numRuns;
+    }
+
+
+    /**
+     * @return the number of records in the history
+     */
+    public synchronized int getNumRecords()
+    {
+        return numRecords;
+    }
+
+
+    /**
+     * Appends a record to the current run, starting a new run first if
+     * beginRun() was called since the last record, or if another process
+     * recorded a run since.
+     * 
+     * @param test
+     *            the test case that was run
+     * @param lv
+     *            the SBML Level/Version it was run for
+     * @param type
+     *            the resulting result type
+     * @param code
+     *            the outcome of running the wrapper
+     * @param started
+     *            the time the case was started, in milliseconds since the
+     *            epoch
+     * @param wallTime
+     *            the time taken, in milliseconds
+     * @param hash
+     *            the content hash of the result file, or 0 if there is none
+     * @throws IOException
+     *             if the record can't be written
+     */
+    public synchronized void add(TestCase test, LevelVersion lv,
+                                 ResultType type, RunOutcome.Code code,
+                                 long started, long wallTime, long hash)
+        throws IOException
+    {
+        int id;
+        try
+        {
+            id = Integer.parseInt(test.getId());
+        }
+        catch (NumberFormatException e)
+        {
+            return;                     // Not a case of the SBML Test Suite.
+        }
+
+        FileLock lock = channel.lock();
+        try
+        {
+            catchUp();
+            int run = (runPending || currentRun != numRuns) ? numRuns + 1
+                                                             : numRuns;
+            append(run, id, lv, type, code, started, wallTime, hash);
+            runPending = false;
+            currentRun = run;
+        }
+        finally
+        {
+            lock.release();
+        }
+    }
+
+
+    /**
+     * Writes a record after the last one in the log and adds it to the
+     * index.  The caller holds the lock on the log.
+     */
+    private void append(int run, int id, LevelVersion lv, ResultType type,
+                        RunOutcome.Code code, long started, long wallTime,
+                        long hash)
+        throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        buffer.putInt(run);
+        buffer.putInt(id);
+        buffer.put((byte) lv.getLevel());
+        buffer.put((byte) lv.getVersion());
+        buffer.put((byte) type.ordinal());
+        buffer.put((byte) (code == null ? -1 : code.ordinal()));
+        buffer.putLong(started);
+        buffer.putInt((int) Math.min(wallTime, Integer.MAX_VALUE));
+        buffer.putLong(hash);
+        buffer.flip();
+
+        long position = HEADER_SIZE + (long) numRecords * RECORD_SIZE;
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+
+        addToIndex(numRecords++, run, id);
+    }
+
+
+    /**
+     * Returns all records of the given case, oldest first.
+     * 
+     * @param id
+     *            the case id
+     * @return the records
+     * @throws IOException
+     *             if the log can't be read
+     */
+    public synchronized Vector<Entry> getHistory(String id)
+        throws IOException
+    {
+        refresh();
+        Vector<Entry> history = new Vector<Entry>();
+        Positions positions = positionsOf(id);
+        if (positions == null) return history;
+        for (int i = 0; i < positions.size; i++)
+            history.add(read(positions.items[i]));
+        return history;
+    }
+
+
+    /**
+     * Returns all records of the given run.
+     * 
+     * @param run
+     *            the run number
+     * @return the records, in the order they were added
+     * @throws IOException
+     *             if the log can't be read
+     */
+    public synchronized Vector<Entry> getRun(int run)
+        throws IOException
+    {
+        refresh();
+        Vector<Entry> records = new Vector<Entry>();
+        if (run < 1 || run > numRuns) return records;
+        int first = runFirst[run - 1];
+        int end = (run < numRuns ? runFirst[run] : numRecords);
+        ByteBuffer buffer = records(first, end - first);
+        while (buffer.hasRemaining())
+            records.add(new Entry(buffer));
+        return records;
+    }
+
+
+    /**
+     * Returns the cases whose result type in run 'to' differs from the one
+     * they had as of run 'from'.  For every case and SBML Level/Version run
+     * in 'to', its last record in that run is compared to its last record
+     * in any run up to and including 'from'; cases that hadn't been run for
+     * that Level/Version by then are left out.
+     * 
+     * @param from
+     *            the earlier run number
+     * @param to
+     *            the later run number
+     * @return the changes, ordered by case id and Level/Version
+     * @throws IOException
+     *             if the log can't be read
+     */
+    public synchronized Vector<Change> getChanges(int from, int to)
+        throws IOException
+    {
+        TreeMap<Long, Entry> latest = new TreeMap<Long, Entry>();
+        for (Entry entry : getRun(to))
+            latest.put(entry.sortKey(), entry);
+
+        Vector<Change> changes = new Vector<Change>();
+        if (from < 1) return changes;
+        int limit = (from < numRuns ? runFirst[from] : numRecords);
+        for (Entry after : latest.values())
+        {
+            Entry before = lastBefore(after, limit);
+            if (before != null && before.getResultType() != after.getResultType())
+                changes.add(new Change(before, after));
+        }
+        return changes;
+    }
+
+
+    /**
+     * Writes the index, so that the log need not be read the next time it
+     * is opened.  Failures are ignored; the index will be rebuilt from the
+     * log.
+     */
+    public synchronized void save()
+    {
+        if (!modified) return;
+
+        File temp = null;
+        try
+        {
+            temp = File.createTempFile("history", ".tmp",
+                                       indexFile.getParentFile());
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)));
+            try
+            {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(wrapperName);
+                out.writeInt(numRecords);
+                out.writeInt(numRuns);
+                for (int i = 0; i < numRuns; i++)
+                    out.writeInt(runFirst[i]);
+                out.writeInt(cases.size());
+                for (Map.Entry<Integer, Positions> item : cases.entrySet())
+                {
+                    Positions positions = item.getValue();
+                    out.writeInt(item.getKey());
+                    out.writeInt(positions.size);
+                    for (int i = 0; i < positions.size; i++)
+                        out.writeInt(positions.items[i]);
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+
+            // On some platforms, renameTo() won't replace an existing file.
+            if (!temp.renameTo(indexFile))
+            {
+                indexFile.delete();
+                if (temp.renameTo(indexFile)) temp = null;
+            }
+            else
+                temp = null;
+            modified = false;
+        }
+        catch (IOException e)
+        {
+            // Nevermind; the index is rebuilt from the log next time.
+        }
+        finally
+        {
+            if (temp != null) temp.delete();
+        }
+    }
+
+
+    /**
+     * Writes the index and closes the log.
+     */
+    public synchronized void close()
+    {
+        save();
+        mapped = null;
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+        }
+    }
+
+
+    private void load()
+        throws IOException
+    {
+        FileLock lock = channel.lock();
+        try
+        {
+            load(channel.size());
+        }
+        finally
+        {
+            lock.release();
+        }
+    }
+
+
+    private void load(long size)
+        throws IOException
+    {
+        if (size < HEADER_SIZE)
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.truncate(0);
+            while (header.hasRemaining())
+                channel.write(header, HEADER_SIZE - header.remaining());
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining())
+            if (channel.read(header, header.position()) < 0) break;
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION)
+            throw new IOException(logFile.getPath() + " is not a run history");
+
+        // A record that is cut short, because the program died while
+        // writing it, is simply overwritten by the next one.
+
+        int total = (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+        if (!readIndex(total))
+        {
+            numRecords = 0;
+            numRuns = 0;
+            cases.clear();
+        }
+        scan(total);
+    }
+
+
+    /**
+     * Reads the index, if there is one that matches the log.
+     */
+    private boolean readIndex(int total)
+    {
+        if (!indexFile.isFile()) return false;
+
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile)));
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != VERSION
+                || !wrapperName.equals(in.readUTF()))
+                return false;
+
+            int records = in.readInt();
+            if (records > total) return false;
+            numRuns = in.readInt();
+            runFirst = new int[Math.max(16, numRuns)];
+            for (int i = 0; i < numRuns; i++)
+                runFirst[i] = in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                Integer id = in.readInt();
+                Positions positions = new Positions(in.readInt());
+                for (int j = 0; j < positions.items.length; j++)
+                    positions.add(in.readInt());
+                cases.put(id, positions);
+            }
+            numRecords = records;
+            return true;
+        }
+        catch (IOException e)
+        {
+            return false;
+        }
+        finally
+        {
+            if (in != null)
+                try
+                {
+                    in.close();
+                }
+                catch (IOException e)
+                {
+                }
+        }
+    }
+
+
+    /**
+     * Adds the records that other processes appended since the log was
+     * last read to the index, holding a shared lock on the log.
+     */
+    private void refresh()
+        throws IOException
+    {
+        FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+        try
+        {
+            catchUp();
+        }
+        finally
+        {
+            lock.release();
+        }
+    }
+
+
+    /**
+     * Adds the records that other processes appended since the log was
+     * last read to the index.  The caller holds a lock on the log.
+     */
+    private void catchUp()
+        throws IOException
+    {
+        scan((int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE));
+    }
+
+
+    /**
+     * Adds the records from numRecords up to 'total' to the index.
+     */
+    private void scan(int total)
+        throws IOException
+    {
+        if (numRecords >= total) return;
+        ByteBuffer buffer = records(numRecords, total - numRecords);
+        for (int offset = 0; offset < buffer.limit(); offset += RECORD_SIZE)
+            addToIndex(numRecords++, buffer.getInt(offset),
+                       buffer.getInt(offset + 4));
+    }
+
+
+    private void addToIndex(int record, int run, int id)
+    {
+        if (run > numRuns)
+        {
+            if (numRuns == runFirst.length)
+            {
+                int[] larger = new int[runFirst.length * 2];
+                System.arraycopy(runFirst, 0, larger, 0, numRuns);
+                runFirst = larger;
+            }
+            runFirst[numRuns++] = record;
+        }
+
+        Positions positions = cases.get(id);
+        if (positions == null)
+        {
+            positions = new Positions(4);
+            cases.put(id, positions);
+        }
+        positions.add(record);
+        modified = true;
+    }
+
+
+    private Positions positionsOf(String id)
+    {
+        try
+        {
+            return cases.get(Integer.parseInt(id));
+        }
+        catch (NumberFormatException e)
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * Returns the last record of the same case and Level/Version as the
+     * given one that comes before record number 'limit'.
+     */
+    private Entry lastBefore(Entry entry, int limit)
+        throws IOException
+    {
+        Positions positions = cases.get(entry.id);
+        if (positions == null) return null;
+
+        // Record numbers are in ascending order; find the first one that
+        // isn't before the limit, then walk back to the Level/Version.
+
+        int low = 0;
+        int high = positions.size;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (positions.items[middle] < limit)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        for (int i = low - 1; i >= 0; i--)
+        {
+            Entry candidate = read(positions.items[i]);
+            if (candidate.level == entry.level
+                && candidate.version == entry.version)
+                return candidate;
+        }
+        return null;
+    }
+
+
+    private Entry read(int record)
+        throws IOException
+    {
+        return new Entry(records(record, 1));
+    }
+
+
+    /**
+     * Returns a buffer holding 'count' records starting at the given one.
+     * The log is mapped again if it has grown beyond the current mapping.
+     */
+    private ByteBuffer records(int first, int count)
+        throws IOException
+    {
+        long start = HEADER_SIZE + (long) first * RECORD_SIZE;
+        long end = start + (long) count * RECORD_SIZE;
+        if (mapped == null || mapped.capacity() < end)
+        {
+            long size = channel.size();
+            if (size < end)
+                throw new IOException(logFile.getPath() + " is truncated");
+            if (size > Integer.MAX_VALUE)
+                throw new IOException(logFile.getPath() + " is too large");
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        ByteBuffer buffer = mapped.duplicate();
+        buffer.limit((int) end).position((int) start);
+        return buffer.slice();
+    }
+
+
+    /**
+     * The record numbers of one case, in ascending order.
+     */
+    private static class Positions
+    {
+        int[] items;
+        int   size;
+
+
+        Positions(int capacity)
+        {
+            items = new int[Math.max(capacity, 1)];
+        }
+
+
+        void add(int record)
+        {
+            if (size == items.length)
+            {
+                int[] larger = new int[items.length * 2];
+                System.arraycopy(items, 0, larger, 0, size);
+                items = larger;
+            }
+            items[size++] = record;
+        }
+    }
+
+
+    /**
+     * One record of the history.
+     */
+    public static class Entry
+    {
+        private final int             run;
+        private final int             id;
+        private final int             level;
+        private final int             version;
+        private final ResultType      resultType;
+        private final RunOutcome.Code outcome;
+        private final long            started;
+        private final int             wallTime;
+        private final long            contentHash;
+
+
+        Entry(ByteBuffer buffer)
+        {
+            run = buffer.getInt();
+            id = buffer.getInt();
+            level = buffer.get();
+            version = buffer.get();
+            int type = buffer.get();
+            int code = buffer.get();
+            ResultType[] types = ResultType.values();
+            RunOutcome.Code[] codes = RunOutcome.Code.values();
+            resultType = (type >= 0 && type < types.length ? types[type]
+                                                           : ResultType.Unknown);
+            outcome = (code >= 0 && code < codes.length ? codes[code] : null);
+            started = buffer.getLong();
+            wallTime = buffer.getInt();
+            contentHash = buffer.getLong();
+        }
+
+
+        /**
+         * @return the number of the run this record belongs to
+         */
+        public int getRun()
+        {
+            return run;
+        }
+
+
+        /**
+         * @return the id of the case
+         */
+        public String getCaseId()
+        {
+            return String.format("%05d", id);
+        }
+
+
+        /**
+         * @return the SBML Level/Version the case was run for
+         */
+        public LevelVersion getLevelVersion()
+        {
+            return new LevelVersion(level, version);
+        }
+
+
+        /**
+         * @return the result type
+         */
+        public ResultType getResultType()
+        {
+            return resultType;
+        }
+
+
+        /**
+         * @return the outcome of running the wrapper, or null if unknown
+         */
+        public RunOutcome.Code getOutcome()
+        {
+            return outcome;
+        }
+
+
+        /**
+         * @return the time the case was started, in milliseconds since the
+         *         epoch
+         */
+        public long getStarted()
+        {
+            return started;
+        }
+
+
+        /**
+         * @return the time taken, in milliseconds
+         */
+        public int getWallTime()
+        {
+            return wallTime;
+        }
+
+
+        /**
+         * @return the content hash of the result file, or 0 if there was
+         *         none
+         */
+        public long getContentHash()
+        {
+            return contentHash;
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return String.format("run %d: %s %s %s (%s, %d ms)", run,
+                                 getCaseId(), getLevelVersion(), resultType,
+                                 outcome, wallTime);
+        }
+
+
+        /**
+         * @return a key that orders records by case id and Level/Version
+         */
+        long sortKey()
+        {
+            return ((long) id << 16) | (level << 8) | version;
+        }
+    }
+
+
+    /**
+     * A case whose result type differs between two runs.
+     */
+    public static class Change
+    {
+        private final Entry before;
+        private final Entry after;
+
+
+        Change(Entry before, Entry after)
+        {
+            this.before = before;
+            this.after = after;
+        }
+
+
+        /**
+         * @return the id of the case
+         */
+        public String getCaseId()
+        {
+            return after.getCaseId();
+        }
+
+
+        /**
+         * @return the record as of the earlier run
+         */
+        public Entry getBefore()
+        {
+            return before;
+        }
+
+
+        /**
+         * @return the record of the later run
+         */
+        public Entry getAfter()
+        {
+            return after;
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s %s: %s (run %d) -> %s (run %d)",
+                                 getCaseId(), after.getLevelVersion(),
+                                 before.getResultType(), before.getRun(),
+                                 after.getResultType(), after.getRun());
+        }
+    }
+}
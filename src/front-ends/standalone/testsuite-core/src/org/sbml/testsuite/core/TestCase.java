@@ -37,12 +37,21 @@ import java.io.IOException;
 import java.util.TreeSet;
 import java.util.Vector;
 import org.sbml.testsuite.core.data.ResultSet;
+import org.sbml.testsuite.core.data.ResultSetCache;
 
 /**
  * Implementation of a Testcase
  */
 public class TestCase
 {
+    /**
+     * Parsed expected results, shared by all wrappers and threads.  The
+     * expected results of all test cases together take a few megabytes,
+     * so they normally all fit.
+     */
+    private static final ResultSetCache expectedResults
+        = new ResultSetCache(Util.getResultCacheDir(), 32L * 1024 * 1024);
+
 
     /**
      * Creates a test case for the given directory
@@ -216,11 +225,23 @@ public class TestCase
 
 
     /**
+     * Returns the expected result of this test.  The result set comes from
+     * a cache shared by everyone and must not be modified.
+     * 
      * @return the result set of the expected result
      */
     public ResultSet getExpectedResult()
     {
-        return ResultSet.fromFile(getExpectedResultFile());
+        return expectedResults.get(getExpectedResultFile());
+    }
+
+
+    /**
+     * @return the cache of expected results, e.g., for its statistics
+     */
+    public static ResultSetCache getExpectedResultCache()
+    {
+        return expectedResults;
     }
 
 
@@ -885,7 +906,11 @@ public class TestCase
     public boolean updateIfNewer()
     {
         boolean changed = hasChanged();
-        if (changed) initializeFromDirectory(caseDirectory);
+        if (changed)
+        {
+            expectedResults.invalidate(getExpectedResultFile());
+            initializeFromDirectory(caseDirectory);
+        }
         return changed;
     }
 
@@ -402,14 +402,16 @@ public class TestSuiteSettings
 
 
     /**
+     * Sets the suite.  Nothing is computed yet; the results of a wrapper
+     * are computed when they are first asked for, or all at once by a
+     * BulkResync.
+     *
      * @param suite
      *            the suite to set
      */
     public void setSuite(TestSuite suite)
     {
         this.suite = suite;
-        for (WrapperConfig config : getWrappers())
-            config.beginUpdate(suite, lastLVcombo);
     }
 
 
@@ -692,6 +692,16 @@ public class Util
     }
 
 
+    /**
+     * @return the directory for binary copies of expected results, next to
+     *         the directory of the bundled test suite
+     */
+    public static File getResultCacheDir()
+    {
+        return new File(getUserDir() + File.separator + ".test-suite-cache");
+    }
+
+
     /**
      * Parses the given level / version string in the formats:
      * 
@@ -0,0 +1,541 @@
+//
+// @file   VerdictJournal.java
+// @brief  Persistent store of the verdicts for a wrapper output directory
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+
+package org.sbml.testsuite.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * VerdictJournal remembers the result types computed for the files in a
+ * wrapper output directory, so that they need not be computed again the
+ * next time the program starts.
+ * 
+ * An entry is found by case id, SBML Level/Version and the set of
+ * unsupported tags of the wrapper.  It is only used if the result file
+ * still has the recorded name, size and modification time, and the
+ * expected result file and the tolerances of the case are unchanged.
+ * Results for cases without a result file are cheap to determine and are
+ * not recorded.
+ * 
+ * Each entry also records a hash of the content of the result file.
+ * Running a case again often produces exactly the same output; a new
+ * result file with the same content hash as the recorded one has the same
+ * result type, whatever its name and modification time.
+ * 
+ * Journals are kept in the result cache directory rather than in the
+ * output directory itself, so that they don't end up in archives of the
+ * output directory that are uploaded to the online test suite.  The file
+ * is a DataOutputStream stream laid out as follows:
+ * 
+ * <pre>
+ *   int     magic number
+ *   int     format version
+ *   UTF     absolute path of the output directory
+ *   int     number of entries, each of which is:
+ *     UTF     key (case id, level, version, unsupported tags)
+ *     UTF     name of the result file
+ *     long    size of the result file
+ *     long    modification time of the result file
+ *     long    content hash of the result file
+ *     long    size of the expected result file
+ *     long    modification time of the expected result file
+ *     double  absolute tolerance
+ *     double  relative tolerance
+ *     UTF     result type
+ * </pre>
+ */
+class VerdictJournal
+{
+    private static final int           MAGIC   = 0x5354564a; // "STVJ"
+    private static final int           VERSION = 3;
+
+    /**
+     * Files at least this large are mapped into memory to compute their
+     * content hash; smaller ones are simply read.  Mapping has a setup cost
+     * that doesn't pay off for small files, and on Windows a mapped file
+     * can't be deleted until the mapping is garbage collected, which would
+     * get in the way of the next run of the case.
+     */
+    private static final int           MAP_THRESHOLD = 1 << 20;
+    private static final int           MAP_CHUNK     = 1 << 26;
+
+    private final File                 file;
+    private final String               outputPath;
+    private final Map<String, Entry>   entries
+        = new ConcurrentHashMap<String, Entry>();
+    private volatile boolean           modified;
+
+
+    private VerdictJournal(File file, String outputPath)
+    {
+        this.file = file;
+        this.outputPath = outputPath;
+    }
+
+
+    /**
+     * Loads the journal for the given output directory.  A journal that
+     * doesn't exist, or can't be read, results in an empty journal.
+     * 
+     * @param outputPath
+     *            the wrapper output directory
+     * @param cacheDir
+     *            the directory holding the journals
+     * @return the journal
+     */
+    static VerdictJournal load(String outputPath, File cacheDir)
+    {
+        String path = new File(outputPath).getAbsolutePath();
+        File file = new File(cacheDir, "verdicts-"
+            + Integer.toHexString(path.hashCode()) + ".bin");
+        VerdictJournal journal = new VerdictJournal(file, path);
+        if (file.isFile()) journal.read();
+        return journal;
+    }
+
+
+    /**
+     * @param outputPath
+     *            a wrapper output directory
+     * @return true if this is the journal for the given output directory
+     */
+    boolean isFor(String outputPath)
+    {
+        return this.outputPath.equals(new File(outputPath).getAbsolutePath());
+    }
+
+
+    /**
+     * Returns the canonical form of a set of unsupported tags for use in
+     * lookups, which doesn't depend on the order of the tags.
+     * 
+     * @param tags
+     *            the unsupported tags
+     * @return the tags, sorted and separated by commas
+     */
+    static String tagsKey(Vector<String> tags)
+    {
+        if (tags == null) return "";
+        return Util.toString(new Vector<String>(new TreeSet<String>(tags)));
+    }
+
+
+    /**
+     * Returns the recorded result type for the given test, if it is still
+     * valid.
+     * 
+     * @param test
+     *            the test
+     * @param lv
+     *            the SBML Level/Version
+     * @param tags
+     *            the unsupported tags, as returned by tagsKey()
+     * @param result
+     *            the result file
+     * @param size
+     *            the size of the result file
+     * @param lastModified
+     *            the modification time of the result file
+     * @return the result type, or null if there is no valid entry
+     */
+    ResultType get(TestCase test, LevelVersion lv, String tags, File result,
+                   long size, long lastModified)
+    {
+        Entry entry = entries.get(key(test, lv, tags));
+        if (entry == null) return null;
+        Entry current = Entry.of(test, result, size, lastModified, 0, null);
+        return current.sameAs(entry) ? entry.type : null;
+    }
+
+
+    /**
+     * Returns the recorded result type for the given test if the recorded
+     * result file had the same content as the given one, as judged by its
+     * size and content hash, and the expected result file and tolerances
+     * of the test are unchanged.
+     * 
+     * @param test
+     *            the test
+     * @param lv
+     *            the SBML Level/Version
+     * @param tags
+     *            the unsupported tags, as returned by tagsKey()
+     * @param size
+     *            the size of the result file
+     * @param hash
+     *            the content hash of the result file, as returned by
+     *            contentHash()
+     * @return the result type, or null if there is no such entry
+     */
+    ResultType getByContent(TestCase test, LevelVersion lv, String tags,
+                            long size, long hash)
+    {
+        Entry entry = entries.get(key(test, lv, tags));
+        if (entry == null) return null;
+        Entry current = Entry.of(test, null, size, 0, hash, null);
+        return current.sameContentAs(entry) ? entry.type : null;
+    }
+
+
+    /**
+     * Returns the content hash recorded for the given test if it was
+     * recorded for the given result file as it is now, so that the file
+     * doesn't have to be read again to hash it.
+     * 
+     * @param test
+     *            the test
+     * @param lv
+     *            the SBML Level/Version
+     * @param tags
+     *            the unsupported tags, as returned by tagsKey()
+     * @param result
+     *            the result file
+     * @param size
+     *            the size of the result file
+     * @param lastModified
+     *            the modification time of the result file
+     * @return the hash, or null if there is no entry for this file
+     */
+    Long getHash(TestCase test, LevelVersion lv, String tags, File result,
+                 long size, long lastModified)
+    {
+        Entry entry = entries.get(key(test, lv, tags));
+        if (entry == null) return null;
+        Entry current = Entry.of(test, result, size, lastModified, 0, null);
+        return current.sameFileAs(entry) ? entry.resultHash : null;
+    }
+
+
+    /**
+     * Records the result type for the given test.
+     * 
+     * @param test
+     *            the test
+     * @param lv
+     *            the SBML Level/Version
+     * @param tags
+     *            the unsupported tags, as returned by tagsKey()
+     * @param result
+     *            the result file
+     * @param size
+     *            the size of the result file when the result was computed
+     * @param lastModified
+     *            the modification time of the result file when the result
+     *            was computed
+     * @param hash
+     *            the content hash of the result file
+     * @param type
+     *            the result type
+     */
+    void put(TestCase test, LevelVersion lv, String tags, File result,
+             long size, long lastModified, long hash, ResultType type)
+    {
+        entries.put(key(test, lv, tags),
+                    Entry.of(test, result, size, lastModified, hash, type));
+        modified = true;
+    }
+
+
+    /**
+     * Computes a 64-bit hash of the content of the given file.  The hash
+     * is only meant to recognize files that are unchanged, not to resist
+     * deliberate collisions.
+     * 
+     * @param file
+     *            the file
+     * @return the hash
+     * @throws IOException
+     *             if the file can't be read
+     */
+    static long contentHash(File file)
+        throws IOException
+    {
+        FileChannel channel = FileChannel.open(file.toPath(),
+                                               StandardOpenOption.READ);
+        try
+        {
+            long size = channel.size();
+            long hash = 0xcbf29ce484222325L ^ size;
+            if (size < MAP_THRESHOLD)
+            {
+                ByteBuffer buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining())
+                    if (channel.read(buffer) < 0) break;
+                buffer.flip();
+                hash = mix(hash, buffer);
+            }
+            else
+            {
+                for (long position = 0; position < size; position += MAP_CHUNK)
+                    hash = mix(hash, channel.map(FileChannel.MapMode.READ_ONLY,
+                                                 position, Math.min(MAP_CHUNK,
+                                                                    size - position)));
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+
+    /**
+     * Mixes the remaining content of the buffer into the hash, eight bytes
+     * at a time.
+     */
+    private static long mix(long hash, ByteBuffer buffer)
+    {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.remaining() >= 8)
+        {
+            hash = (hash ^ buffer.getLong()) * 0x9e3779b97f4a7c15L;
+            hash = Long.rotateLeft(hash, 29);
+        }
+        while (buffer.hasRemaining())
+            hash = (hash ^ (buffer.get() & 0xff)) * 0x100000001b3L;
+        return hash;
+    }
+
+
+    /**
+     * Writes the journal if entries were added since it was loaded.  The
+     * journal is written to a temporary file first and then renamed, so
+     * that readers never see a partial journal.  Failures are ignored; the
+     * results will simply be computed again next time.
+     */
+    void save()
+    {
+        if (!modified) return;
+
+        File dir = file.getParentFile();
+        File temp = null;
+        try
+        {
+            if (!dir.isDirectory() && !dir.mkdirs()) return;
+
+            temp = File.createTempFile("verdicts", ".tmp", dir);
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)));
+            try
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(outputPath);
+                Map<String, Entry> snapshot
+                    = new HashMap<String, Entry>(entries);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> item : snapshot.entrySet())
+                {
+                    Entry entry = item.getValue();
+                    out.writeUTF(item.getKey());
+                    out.writeUTF(entry.resultName);
+                    out.writeLong(entry.resultSize);
+                    out.writeLong(entry.resultModified);
+                    out.writeLong(entry.resultHash);
+                    out.writeLong(entry.expectedSize);
+                    out.writeLong(entry.expectedModified);
+                    out.writeDouble(entry.absoluteError);
+                    out.writeDouble(entry.relativeError);
+                    out.writeUTF(entry.type.name());
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+
+            // On some platforms, renameTo() won't replace an existing file.
+            if (!temp.renameTo(file))
+            {
+                file.delete();
+                if (temp.renameTo(file)) temp = null;
+            }
+            else
+                temp = null;
+            modified = false;
+        }
+        catch (IOException e)
+        {
+            // Nevermind; we'll compute the results again next time.
+        }
+        finally
+        {
+            if (temp != null) temp.delete();
+        }
+    }
+
+
+    private void read()
+    {
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                || !outputPath.equals(in.readUTF()))
+                return;
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                String key = in.readUTF();
+                Entry entry = new Entry(in.readUTF(), in.readLong(),
+                                        in.readLong(), in.readLong(),
+                                        in.readLong(), in.readLong(),
+                                        in.readDouble(),
+                                        in.readDouble(),
+                                        ResultType.valueOf(in.readUTF()));
+                entries.put(key, entry);
+            }
+        }
+        catch (IOException e)
+        {
+            entries.clear();
+        }
+        catch (IllegalArgumentException e)  // Unknown result type.
+        {
+            entries.clear();
+        }
+        finally
+        {
+            if (in != null)
+                try
+                {
+                    in.close();
+                }
+                catch (IOException e)
+                {
+                }
+        }
+    }
+
+
+    private static String key(TestCase test, LevelVersion lv, String tags)
+    {
+        return test.getId() + " " + lv.getLevel() + " " + lv.getVersion()
+            + " " + tags;
+    }
+
+
+    /**
+     * What a result type was computed from.
+     */
+    private static class Entry
+    {
+        final String     resultName;
+        final long       resultSize;
+        final long       resultModified;
+        final long       resultHash;
+        final long       expectedSize;
+        final long       expectedModified;
+        final double     absoluteError;
+        final double     relativeError;
+        final ResultType type;
+
+
+        Entry(String resultName, long resultSize, long resultModified,
+              long resultHash, long expectedSize, long expectedModified,
+              double absoluteError, double relativeError, ResultType type)
+        {
+            this.resultName = resultName;
+            this.resultSize = resultSize;
+            this.resultModified = resultModified;
+            this.resultHash = resultHash;
+            this.expectedSize = expectedSize;
+            this.expectedModified = expectedModified;
+            this.absoluteError = absoluteError;
+            this.relativeError = relativeError;
+            this.type = type;
+        }
+
+
+        static Entry of(TestCase test, File result, long size,
+                        long lastModified, long hash, ResultType type)
+        {
+            File expected = test.getExpectedResultFile();
+            return new Entry(result == null ? "" : result.getName(), size,
+                             lastModified, hash,
+                             expected.length(), expected.lastModified(),
+                             test.getSettings().getAbsoluteError(),
+                             test.getSettings().getRelativeError(), type);
+        }
+
+
+        boolean sameAs(Entry other)
+        {
+            return sameFileAs(other) && sameExpectationsAs(other);
+        }
+
+
+        boolean sameFileAs(Entry other)
+        {
+            return resultName.equals(other.resultName)
+                && resultSize == other.resultSize
+                && resultModified == other.resultModified;
+        }
+
+
+        boolean sameContentAs(Entry other)
+        {
+            return resultSize == other.resultSize
+                && resultHash == other.resultHash
+                && sameExpectationsAs(other);
+        }
+
+
+        boolean sameExpectationsAs(Entry other)
+        {
+            return expectedSize == other.expectedSize
+                && expectedModified == other.expectedModified
+                && Double.compare(absoluteError, other.absoluteError) == 0
+                && Double.compare(relativeError, other.relativeError) == 0;
+        }
+    }
+}
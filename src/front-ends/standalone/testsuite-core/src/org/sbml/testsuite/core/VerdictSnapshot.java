@@ -0,0 +1,560 @@
+//
+// @file   VerdictSnapshot.java
+// @brief  Portable snapshot of the results of a wrapper
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+
+package org.sbml.testsuite.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.sbml.testsuite.core.data.ComparisonResult;
+
+/**
+ * VerdictSnapshot holds the results of one wrapper for one SBML
+ * Level/Version, together with the error statistics of the cases for which
+ * the wrapper produced a result file that could be compared.  A snapshot
+ * is written to a small file that can be passed on instead of the output
+ * directory of the wrapper; a view-only wrapper that refers to a snapshot
+ * takes its results from it instead of computing them from result files.
+ * 
+ * The file is a gzip-compressed DataOutputStream stream laid out as
+ * follows:
+ * 
+ * <pre>
+ *   int     magic number
+ *   int     format version
+ *   UTF     name of the wrapper
+ *   UTF     unsupported tags of the wrapper
+ *   int     SBML Level (0 = highest)
+ *   int     SBML Version (0 = highest)
+ *   long    time the snapshot was taken
+ *   int     number of cases, each of which is:
+ *     UTF     case id
+ *     UTF     result type
+ *     boolean whether error statistics follow:
+ *       boolean whether the values were within tolerance
+ *       double  absolute tolerance
+ *       double  relative tolerance
+ *       int     number of rows compared
+ *       UTF     column with the largest error, or empty
+ *       double  largest absolute difference in that column
+ *       double  largest normalized error in that column
+ *       int     first row out of tolerance, or -1
+ *       UTF     first column out of tolerance in that row, or empty
+ *       UTF     missing columns, separated by spaces
+ * </pre>
+ */
+public class VerdictSnapshot
+{
+    private static final int              MAGIC   = 0x53545653; // "STVS"
+    private static final int              VERSION = 1;
+
+    private final String                  wrapperName;
+    private final String                  unsupportedTags;
+    private final LevelVersion            levelVersion;
+    private final long                    created;
+    private final Map<String, ResultType> results
+        = new TreeMap<String, ResultType>();
+    private final Map<String, Statistics> statistics
+        = new TreeMap<String, Statistics>();
+
+
+    private VerdictSnapshot(String wrapperName, String unsupportedTags,
+                            LevelVersion levelVersion, long created)
+    {
+        this.wrapperName = wrapperName;
+        this.unsupportedTags = unsupportedTags;
+        this.levelVersion = levelVersion;
+        this.created = created;
+    }
+
+
+    /**
+     * Starts taking a snapshot of the results of the given wrapper in the
+     * background and returns right away.  The results of all cases are
+     * brought up to date first, by a resync queued behind any others.
+     * 
+     * @param suite
+     *            the test suite
+     * @param lv
+     *            the SBML Level/Version
+     * @param wrapper
+     *            the wrapper
+     * @return a future that completes with the snapshot
+     * @see BulkResync#start()
+     */
+    public static CompletableFuture<VerdictSnapshot> of(final TestSuite suite,
+                                                        LevelVersion lv,
+                                                        final WrapperConfig wrapper)
+    {
+        final LevelVersion level
+            = (lv == null ? new LevelVersion() : lv);   // Defaults to highest.
+        return new BulkResync(suite, level, wrapper).start().thenApply(
+            new Function<BulkResync.Report, VerdictSnapshot>() {
+                public VerdictSnapshot apply(BulkResync.Report report)
+                {
+                    return collect(suite, level, wrapper);
+                }
+            });
+    }
+
+
+    /**
+     * Takes a snapshot of the cached results of the given wrapper.
+     */
+    private static VerdictSnapshot collect(TestSuite suite, LevelVersion lv,
+                                           WrapperConfig wrapper)
+    {
+        VerdictSnapshot snapshot
+            = new VerdictSnapshot(wrapper.getName(),
+                                  wrapper.getUnsupportedTagsString(),
+                                  new LevelVersion(lv.getLevel(),
+                                                   lv.getVersion()),
+                                  System.currentTimeMillis());
+        for (TestCase test : suite.getCases())
+        {
+            ResultType type = wrapper.getResultType(test, lv);
+            snapshot.results.put(test.getId(), type);
+            if (type != ResultType.Match && type != ResultType.NoMatch)
+                continue;
+
+            ComparisonResult comparison = wrapper.getComparison(test);
+            if (comparison != null)
+                snapshot.statistics.put(test.getId(),
+                                        new Statistics(comparison));
+        }
+        return snapshot;
+    }
+
+
+    /**
+     * Reads a snapshot from a file.
+     * 
+     * @param file
+     *            the file
+     * @return the snapshot
+     * @throws IOException
+     *             if the file can't be read or isn't a snapshot
+     */
+    public static VerdictSnapshot read(File file)
+        throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+            new GZIPInputStream(new FileInputStream(file))));
+        try
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException(file.getPath()
+                    + " is not a results snapshot");
+
+            VerdictSnapshot snapshot
+                = new VerdictSnapshot(in.readUTF(), in.readUTF(),
+                                      new LevelVersion(in.readInt(),
+                                                       in.readInt()),
+                                      in.readLong());
+            int count = in.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                String id = in.readUTF();
+                snapshot.results.put(id, ResultType.valueOf(in.readUTF()));
+                if (in.readBoolean())
+                    snapshot.statistics.put(id, new Statistics(in));
+            }
+            return snapshot;
+        }
+        catch (IllegalArgumentException e)  // Unknown result type.
+        {
+            throw new IOException(file.getPath() + " is not a results "
+                + "snapshot of this version of the test suite");
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+
+    /**
+     * Writes this snapshot to a file.
+     * 
+     * @param file
+     *            the file
+     * @throws IOException
+     *             if the file can't be written
+     */
+    public void write(File file)
+        throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new GZIPOutputStream(new FileOutputStream(file))));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(wrapperName);
+            out.writeUTF(unsupportedTags);
+            out.writeInt(levelVersion.getLevel());
+            out.writeInt(levelVersion.getVersion());
+            out.writeLong(created);
+            out.writeInt(results.size());
+            for (Map.Entry<String, ResultType> entry : results.entrySet())
+            {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue().name());
+                Statistics stats = statistics.get(entry.getKey());
+                out.writeBoolean(stats != null);
+                if (stats != null) stats.write(out);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+
+    /**
+     * Adds a view-only wrapper that takes its results from the given
+     * snapshot file to the settings, or updates the one that already does,
+     * and makes it the last used wrapper along with the Level/Version of
+     * the snapshot.  The wrapper is named after the wrapper the snapshot
+     * was taken of, unless a different wrapper by that name exists.
+     * 
+     * @param settings
+     *            the settings
+     * @param file
+     *            the snapshot file this snapshot was read from
+     * @return the wrapper
+     */
+    public WrapperConfig importInto(TestSuiteSettings settings, File file)
+    {
+        String path = file.getAbsolutePath();
+        String name = wrapperName;
+        WrapperConfig wrapper = settings.getWrapper(name);
+        for (int i = 2; wrapper != null && !path.equals(wrapper.getSnapshotPath()); i++)
+        {
+            name = wrapperName + " (snapshot"
+                + (i > 2 ? " " + (i - 1) : "") + ")";
+            wrapper = settings.getWrapper(name);
+        }
+
+        if (wrapper == null)
+        {
+            wrapper = new WrapperConfig(name, "", "", "", unsupportedTags,
+                                        false, false, true);
+            settings.getWrappers().add(wrapper);
+        }
+        wrapper.setSnapshotPath(path);
+        wrapper.getResultCache().clear();
+        settings.setLastLevelVersion(levelVersion);
+        settings.setLastWrapper(wrapper);
+        return wrapper;
+    }
+
+
+    /**
+     * @param lv
+     *            an SBML Level/Version
+     * @return true if this snapshot holds the results for it
+     */
+    public boolean isFor(LevelVersion lv)
+    {
+        if (lv == null || lv.isHighest()) return levelVersion.isHighest();
+        return lv.equals(levelVersion);
+    }
+
+
+    /**
+     * Returns the results for all cases of the given suite, for storing
+     * them in a wrapper's cache.  Cases the snapshot doesn't know about,
+     * e.g., because they were added to the suite since, are Unavailable if
+     * they don't exist for the Level/Version of the snapshot and Unknown
+     * otherwise.
+     * 
+     * @param suite
+     *            the test suite
+     * @return the results by case id
+     */
+    public Map<String, DelayedResult> getResults(TestSuite suite)
+    {
+        Map<String, DelayedResult> map = new TreeMap<String, DelayedResult>();
+        for (TestCase test : suite.getCases())
+            map.put(test.getId(), new DelayedResult(getResultType(test),
+                                                    levelVersion));
+        return map;
+    }
+
+
+    /**
+     * @param test
+     *            a test case
+     * @return the result of the test, as for getResults()
+     */
+    public ResultType getResultType(TestCase test)
+    {
+        ResultType type = results.get(test.getId());
+        if (type != null) return type;
+        if (!levelVersion.isHighest() && !test.supportsLevelVersion(levelVersion))
+            return ResultType.Unavailable;
+        return ResultType.Unknown;
+    }
+
+
+    /**
+     * @param id
+     *            a case id
+     * @return the error statistics of the case, or null if there are none
+     */
+    public Statistics getStatistics(String id)
+    {
+        return statistics.get(id);
+    }
+
+
+    /**
+     * @return the name of the wrapper the snapshot was taken of
+     */
+    public String getWrapperName()
+    {
+        return wrapperName;
+    }
+
+
+    /**
+     * @return the unsupported tags of the wrapper, separated by commas
+     */
+    public String getUnsupportedTags()
+    {
+        return unsupportedTags;
+    }
+
+
+    /**
+     * @return the SBML Level/Version of the results
+     */
+    public LevelVersion getLevelVersion()
+    {
+        return levelVersion;
+    }
+
+
+    /**
+     * @return the time the snapshot was taken, in milliseconds since the
+     *         epoch
+     */
+    public long getCreated()
+    {
+        return created;
+    }
+
+
+    /**
+     * @return the number of cases in the snapshot
+     */
+    public int getNumCases()
+    {
+        return results.size();
+    }
+
+
+    /**
+     * The error statistics of a comparison, as computed by
+     * ComparisonResult, without the data that was compared.
+     */
+    public static class Statistics
+    {
+        private final boolean match;
+        private final double  absoluteError;
+        private final double  relativeError;
+        private final int     numRows;
+        private final String  worstColumn;
+        private final double  maxAbsoluteError;
+        private final double  maxNormalizedError;
+        private final int     firstFailingRow;
+        private final String  firstFailingColumn;
+        private final String  missingColumns;
+
+
+        Statistics(ComparisonResult comparison)
+        {
+            int worst = comparison.getWorstColumn();
+            match = comparison.isMatch();
+            absoluteError = comparison.getAbsoluteError();
+            relativeError = comparison.getRelativeError();
+            numRows = comparison.getNumRows();
+            worstColumn = (worst == -1 ? "" : comparison.getColumns().get(worst));
+            maxAbsoluteError = (worst == -1 ? 0
+                                : comparison.getMaxAbsoluteError(worst));
+            maxNormalizedError = comparison.getMaxNormalizedError();
+            firstFailingRow = comparison.getFirstFailingRow();
+            firstFailingColumn = (comparison.getFirstFailingColumn() == null
+                                  ? "" : comparison.getFirstFailingColumn());
+            Vector<String> missing = comparison.getMissingColumns();
+            StringBuilder builder = new StringBuilder();
+            for (String column : missing)
+                builder.append(builder.length() > 0 ? " " : "").append(column);
+            missingColumns = builder.toString();
+        }
+
+
+        Statistics(DataInputStream in)
+            throws IOException
+        {
+            match = in.readBoolean();
+            absoluteError = in.readDouble();
+            relativeError = in.readDouble();
+            numRows = in.readInt();
+            worstColumn = in.readUTF();
+            maxAbsoluteError = in.readDouble();
+            maxNormalizedError = in.readDouble();
+            firstFailingRow = in.readInt();
+            firstFailingColumn = in.readUTF();
+            missingColumns = in.readUTF();
+        }
+
+
+        void write(DataOutputStream out)
+            throws IOException
+        {
+            out.writeBoolean(match);
+            out.writeDouble(absoluteError);
+            out.writeDouble(relativeError);
+            out.writeInt(numRows);
+            out.writeUTF(worstColumn);
+            out.writeDouble(maxAbsoluteError);
+            out.writeDouble(maxNormalizedError);
+            out.writeInt(firstFailingRow);
+            out.writeUTF(firstFailingColumn);
+            out.writeUTF(missingColumns);
+        }
+
+
+        /**
+         * @return true if all values were within tolerance
+         */
+        public boolean isMatch()
+        {
+            return match;
+        }
+
+
+        /**
+         * @return the number of rows compared
+         */
+        public int getNumRows()
+        {
+            return numRows;
+        }
+
+
+        /**
+         * @return the column with the largest normalized error, or null if
+         *         no columns were compared
+         */
+        public String getWorstColumn()
+        {
+            return (worstColumn.length() == 0 ? null : worstColumn);
+        }
+
+
+        /**
+         * @return the largest absolute difference in getWorstColumn()
+         */
+        public double getMaxAbsoluteError()
+        {
+            return maxAbsoluteError;
+        }
+
+
+        /**
+         * @return the largest normalized error over all columns (greater
+         *         than 1 means failure)
+         */
+        public double getMaxNormalizedError()
+        {
+            return maxNormalizedError;
+        }
+
+
+        /**
+         * @return the first row with a value out of tolerance, or -1 if
+         *         there is none
+         */
+        public int getFirstFailingRow()
+        {
+            return firstFailingRow;
+        }
+
+
+        /**
+         * @return the (first) column with a value out of tolerance in
+         *         getFirstFailingRow(), or null if there is none
+         */
+        public String getFirstFailingColumn()
+        {
+            return (firstFailingColumn.length() == 0 ? null
+                                                     : firstFailingColumn);
+        }
+
+
+        /**
+         * @return a short, human-readable summary, in the same form as
+         *         ComparisonResult.getSummary()
+         */
+        public String getSummary()
+        {
+            StringBuilder builder = new StringBuilder();
+            builder.append(match ? "Within tolerance" : "Not within tolerance");
+            builder.append(" (absolute error " + absoluteError
+                           + ", relative error " + relativeError + ").\n");
+            if (missingColumns.length() > 0)
+                builder.append("Missing columns: " + missingColumns + "\n");
+            if (worstColumn.length() > 0)
+                builder.append("Largest error: " + maxAbsoluteError
+                               + " in " + worstColumn + ", "
+                               + String.format("%.3g", maxNormalizedError)
+                               + " times the tolerance.\n");
+            if (firstFailingRow != -1)
+                builder.append("First failure: row " + (firstFailingRow + 1)
+                               + ", column " + firstFailingColumn + ".\n");
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,398 @@
+//
+// @file   WorkerPool.java
+// @brief  Long-running wrapper processes that take one case after another
+// @date   Created 2026-10-18
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+
+
+package org.sbml.testsuite.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Vector;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * WorkerPool keeps wrapper processes running from one case to the next,
+ * for simulators that take long to start or get faster as they warm up.
+ * A worker reads a request from its standard input for each case,
+ * 
+ *     RUN NNNNN level version casesDir outputDir
+ * 
+ * writes the result file of the case as usual, and answers on its
+ * standard output with
+ * 
+ *     DONE NNNNN status
+ * 
+ * where a status of 0 or OK means success.  Anything else the worker
+ * prints goes to its output log.  A worker should exit when its standard
+ * input ends.
+ * 
+ * Workers are started as they're needed, so there are as many as there are
+ * threads running cases, and kept until close() is called.  One that has
+ * died, or was started with a different command line, is replaced by a new
+ * one for the next case.
+ */
+class WorkerPool
+{
+    /**
+     * How long a worker gets to exit by itself once its standard input is
+     * closed.
+     */
+    static final int     STOP_TIMEOUT = 2000;
+
+    private final Vector<Worker> idle = new Vector<Worker>();
+
+    private int                  numWorkers;
+
+    private int                  numStarted;
+
+    private int                  generation;
+
+
+    /**
+     * Returns an idle worker started with the given command line, or
+     * starts a new one if fewer than the given number of workers are
+     * running, or else waits for a worker to become idle.  The worker must
+     * be given back with release().
+     * 
+     * @param command
+     *            the command line of the worker
+     * @param logDir
+     *            the directory in which to keep the output of a new worker,
+     *            or null to discard it when the worker stops
+     * @param limit
+     *            the largest number of workers to run at a time
+     * @return the worker
+     * @throws IOException
+     *             if a worker can't be started
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     */
+    Worker acquire(String command, File logDir, int limit)
+        throws IOException, InterruptedException
+    {
+        int number;
+        int workerGeneration;
+        synchronized (this)
+        {
+            while (true)
+            {
+                while (!idle.isEmpty())
+                {
+                    Worker worker = idle.remove(idle.size() - 1);
+                    if (worker.isAlive() && worker.getCommand().equals(command))
+                        return worker;
+                    worker.stop();
+                    numWorkers--;
+                }
+                if (numWorkers < limit) break;
+                wait();
+            }
+            numWorkers++;
+            number = ++numStarted;
+            workerGeneration = generation;
+        }
+
+        boolean started = false;
+        try
+        {
+            Worker worker = new Worker(command, logDir, number,
+                                       workerGeneration);
+            started = true;
+            return worker;
+        }
+        finally
+        {
+            if (!started)
+                synchronized (this)
+                {
+                    numWorkers--;
+                    notifyAll();
+                }
+        }
+    }
+
+
+    /**
+     * Gives back a worker obtained from acquire().  It's kept for the next
+     * case unless it has died or the pool was closed in the meantime.
+     * 
+     * @param worker
+     *            the worker
+     */
+    synchronized void release(Worker worker)
+    {
+        if (worker.isAlive() && worker.generation == generation)
+            idle.add(worker);
+        else
+        {
+            worker.stop();
+            numWorkers--;
+        }
+        notifyAll();
+    }
+
+
+    /**
+     * Stops the idle workers, and the busy ones once they're released.  The
+     * pool starts new workers if it's used again.
+     */
+    synchronized void close()
+    {
+        generation++;
+        for (Worker worker : idle)
+            worker.stop();
+        numWorkers -= idle.size();
+        idle.clear();
+        notifyAll();
+    }
+
+
+    /**
+     * One worker process.  A thread of its own reads the standard output of
+     * the process, queueing the answers and writing everything else to the
+     * output log.
+     */
+    static class Worker
+    {
+        /**
+         * The answer after the last one, when the output of the worker has
+         * ended.  It's compared by identity.
+         */
+        static final String                       END = new String("END");
+
+        private final String                      command;
+        private final int                         generation;
+        private final OutputCapture               capture;
+        private final Process                     process;
+        private final Writer                      requests;
+        private final LinkedBlockingQueue<String> answers
+            = new LinkedBlockingQueue<String>();
+        private volatile boolean                  ended;
+
+
+        Worker(String command, File logDir, int number, int generation)
+            throws IOException
+        {
+            this.command = command;
+            this.generation = generation;
+            capture = OutputCapture.forWorker(number, logDir);
+            ProcessBuilder builder
+                = new ProcessBuilder(WrapperSession.commandWords(command));
+            try
+            {
+                process = capture.redirectErrors(builder).start();
+            }
+            catch (IOException e)
+            {
+                capture.dispose();
+                throw e;
+            }
+            catch (RuntimeException e)
+            {
+                capture.dispose();
+                throw e;
+            }
+            requests = new BufferedWriter(
+                new OutputStreamWriter(process.getOutputStream()));
+
+            Thread reader = new Thread(new Runnable() {
+                public void run()
+                {
+                    readAnswers();
+                }
+            }, "Wrapper worker " + number);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+
+        private void readAnswers()
+        {
+            BufferedReader reader
+                = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            OutputStream log = null;
+            try
+            {
+                log = new FileOutputStream(capture.getOutputFile());
+                String line;
+                while ((line = reader.readLine()) != null)
+                {
+                    // The log is written before the answer is queued, so
+                    // it's complete by the time the answer is read.
+
+                    if (line.startsWith("DONE "))
+                        answers.add(line);
+                    else
+                        log.write((line + "\n").getBytes());
+                }
+            }
+            catch (IOException e)
+            {
+                // The worker is gone, or its log can't be written.
+            }
+            finally
+            {
+                if (log != null)
+                {
+                    try
+                    {
+                        log.close();
+                    }
+                    catch (IOException e)
+                    {
+                        // Nothing we can do.
+                    }
+                }
+                ended = true;
+                answers.add(END);
+            }
+        }
+
+
+        /**
+         * @return the command line this worker was started with
+         */
+        String getCommand()
+        {
+            return command;
+        }
+
+
+        /**
+         * @return the capture holding the logs of this worker
+         */
+        OutputCapture getCapture()
+        {
+            return capture;
+        }
+
+
+        /**
+         * @return whether the worker is still running and listening
+         */
+        boolean isAlive()
+        {
+            return !ended && process.isAlive();
+        }
+
+
+        /**
+         * Sends a request to the worker.
+         * 
+         * @param request
+         *            the request, without the line break
+         * @throws IOException
+         *             if the worker isn't listening anymore
+         */
+        void send(String request)
+            throws IOException
+        {
+            requests.write(request);
+            requests.write('\n');
+            requests.flush();
+        }
+
+
+        /**
+         * Returns the next answer of the worker.
+         * 
+         * @param milli
+         *            the time to wait at most, or a negative value to wait
+         *            as long as it takes
+         * @return the answer, END if the worker's output has ended, or null
+         *         if no answer came in time
+         * @throws InterruptedException
+         *             if the thread is interrupted while waiting
+         */
+        String nextAnswer(long milli)
+            throws InterruptedException
+        {
+            String answer = (milli < 0 ? answers.take()
+                             : answers.poll(milli, TimeUnit.MILLISECONDS));
+            if (answer == END)
+                answers.add(END);       // For whoever asks next.
+            return answer;
+        }
+
+
+        /**
+         * Ends the worker right away, in the middle of a case, along with
+         * any processes it started, which might otherwise keep its output
+         * open.  Whoever waits for an answer gets END.
+         */
+        void kill()
+        {
+            ended = true;
+            process.descendants().forEach(new Consumer<ProcessHandle>() {
+                public void accept(ProcessHandle child)
+                {
+                    child.destroy();
+                }
+            });
+            process.destroy();
+            answers.add(END);
+        }
+
+
+        /**
+         * Tells the worker to exit by closing its standard input, and ends
+         * it if it's still there after STOP_TIMEOUT milliseconds.  This
+         * doesn't wait for the worker.
+         */
+        void stop()
+        {
+            try
+            {
+                requests.close();
+            }
+            catch (IOException e)
+            {
+                // It isn't listening anymore anyway.
+            }
+            process.onExit()
+                   .completeOnTimeout(process, STOP_TIMEOUT,
+                                      TimeUnit.MILLISECONDS)
+                   .thenRun(new Runnable() {
+                       public void run()
+                       {
+                           process.destroy();
+                           capture.dispose();
+                       }
+                   });
+        }
+    }
+}
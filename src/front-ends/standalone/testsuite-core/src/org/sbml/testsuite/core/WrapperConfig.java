@@ -30,16 +30,11 @@
 package org.sbml.testsuite.core;
 
 import java.io.File;
-import java.io.FilenameFilter;
-import java.io.IOException;
-import java.util.Collections;
+import java.util.List;
 import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.Vector;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import org.sbml.testsuite.core.data.CompareResultSet;
+import java.util.concurrent.CompletableFuture;
+import org.sbml.testsuite.core.data.ComparisonResult;
 import org.sbml.testsuite.core.data.ResultSet;
 import org.simpleframework.xml.Default;
 import org.simpleframework.xml.Element;
@@ -53,6 +48,18 @@ import org.simpleframework.xml.core.Persister;
  * Simulator Wrappers do not have to be simulatable, at the very least
  * it would be possible to just have a name and a directory with test files
  * to compare with the expected results.
+ * 
+ * Only the settings are part of a WrapperConfig; the results computed for
+ * the wrapper and the indexes of its output directory belong to a
+ * WrapperSession.  The methods concerning results forward to the session
+ * returned by getSession(), which is created when it's first needed.
+ * 
+ * The settings keep their setters.  The settings file is read by field
+ * injection, the wrapper editor builds a configuration with the
+ * constructor and then sets the remaining options, and importing a
+ * snapshot points an existing wrapper at it; a session always reads the
+ * current settings.  None of this affects equals() and hashCode(), which
+ * only look at the settings themselves.
  */
 @Default
 public class WrapperConfig
@@ -76,14 +83,26 @@ public class WrapperConfig
     @Element(required = false)
     private boolean                        concurrentThreadsOK;
 
-    @Transient
-    private SortedMap<String, DelayedResult> resultCache
-        = Collections.synchronizedSortedMap(new TreeMap<String, DelayedResult>());
+    @Element(required = false)
+    private String                         snapshotPath;
 
-    @Transient
-    private ConcurrentHashMap<String, File> resultFiles;
+    @Element(required = false)
+    private int                            resultGracePeriod;
 
-    static ExecutorService                 executor = Executors.newFixedThreadPool(20);
+    @Element(required = false)
+    private boolean                        keepOutputLogs;
+
+    @Element(required = false)
+    private boolean                        batchMode;
+
+    @Element(required = false)
+    private boolean                        persistentWorkers;
+
+    @Element(required = false)
+    private int                            workerTimeout;
+
+    @Transient
+    private WrapperSession                 session;
 
 
     /**
@@ -100,7 +119,6 @@ public class WrapperConfig
         this.concurrentThreadsOK = false;
         this.supportsAllVersions = false;
         this.unsupportedTags = new Vector<String>();
-        this.resultFiles = new ConcurrentHashMap<String, File>(1200, (float) 0.75, 4);
     }
 
 
@@ -319,21 +337,34 @@ public class WrapperConfig
     }
 
 
+    /**
+     * Returns the session that holds the results of this wrapper, creating
+     * it when it's first needed.  Other sessions for this configuration can
+     * be created with new WrapperSession(config).
+     * 
+     * @return the session
+     */
+    public synchronized WrapperSession getSession()
+    {
+        if (session == null)
+            session = new WrapperSession(this);
+        return session;
+    }
+
+
     /**
      * Starts the calculation of all results.
      * 
-     * @param suite
-     *            the tests to compare against
+     * @see WrapperSession#beginUpdate(TestSuite, LevelVersion)
      */
-    public void beginUpdate(TestSuite suite, LevelVersion lv)
+    public CompletableFuture<Void> beginUpdate(TestSuite suite,
+                                               LevelVersion lv)
     {
-        for (final TestCase test : suite.getCases())
-        {
-            resultCache.put(test.getId(), new DelayedResult(this, test, lv));
-        }
+        return getSession().beginUpdate(suite, lv);
     }
 
 
+
     /**
      * @return boolean indicating whether this wrapepr is executable. This is
      *         the case when the wrapper executable exists as well as teh output
@@ -354,6 +385,72 @@ public class WrapperConfig
     }
 
 
+    /**
+     * @see WrapperSession#saveVerdicts()
+     */
+    public void saveVerdicts()
+    {
+        getSession().saveVerdicts();
+    }
+
+
+    /**
+     * @see WrapperSession#findLateResultFiles()
+     */
+    public Vector<String> findLateResultFiles()
+    {
+        return getSession().findLateResultFiles();
+    }
+
+
+    /**
+     * @see WrapperSession#getHistory()
+     */
+    public RunHistory getHistory()
+    {
+        return getSession().getHistory();
+    }
+
+
+    /**
+     * Writes the index of the history of this wrapper, if it was opened,
+     * and closes it.
+     */
+    public void closeHistory()
+    {
+        WrapperSession session;
+        synchronized (this)
+        {
+            session = this.session;
+        }
+        if (session != null) session.closeHistory();
+    }
+
+
+    /**
+     * Tells the persistent workers of this wrapper, if any were started, to
+     * exit once they're idle.
+     */
+    public void stopWorkers()
+    {
+        WrapperSession session;
+        synchronized (this)
+        {
+            session = this.session;
+        }
+        if (session != null) session.stopWorkers();
+    }
+
+
+    /**
+     * @see WrapperSession#getNumSkippedEvaluations()
+     */
+    public long getNumSkippedEvaluations()
+    {
+        return getSession().getNumSkippedEvaluations();
+    }
+
+
     /**
      * Deletes the result for the given test
      * 
@@ -362,14 +459,11 @@ public class WrapperConfig
      */
     public void deleteResult(TestCase test)
     {
-        File testFile = getResultFile(test);
-        if (testFile == null) return;
-        testFile.delete();
-        resultFiles.remove(testFile);
-        resultCache.put(test.getId(), new DelayedResult(ResultType.Unknown));
+        getSession().deleteResult(test);
     }
 
 
+
     /**
      * @return the wrapper arguments
      */
@@ -380,16 +474,39 @@ public class WrapperConfig
 
 
     /**
-     * @return the cache of all computed results
+     * @return the cache of all computed results, for all Levels/Versions
+     */
+    public ResultCache getResultCache()
+    {
+        return getSession().getResultCache();
+    }
+
+
+    /**
+     * @return the computed results for the highest Level/Version
      */
     public SortedMap<String, DelayedResult> getCache()
     {
-        return resultCache;
+        return getSession().getCache();
     }
 
 
     /**
-     * returns the cached result for the test with given id
+     * Returns the computed results for the given Level/Version
+     * 
+     * @param lv
+     *            the SBML Level/Version (null = highest)
+     * @return a map with test ids / delayed result objects
+     */
+    public SortedMap<String, DelayedResult> getCache(LevelVersion lv)
+    {
+        return getSession().getCache(lv);
+    }
+
+
+    /**
+     * returns the cached result for the test with given id, for the highest
+     * Level/Version
      * 
      * @param id
      *            the test id
@@ -397,10 +514,7 @@ public class WrapperConfig
      */
     public ResultType getCachedResult(String id)
     {
-        DelayedResult cachedResult = resultCache.get(id);
-        if (cachedResult != null)
-            return cachedResult.getResult();
-        return null;
+        return getSession().getCachedResult(id);
     }
 
 
@@ -414,10 +528,7 @@ public class WrapperConfig
      */
     public ResultType getCachedResult(String id, LevelVersion lv)
     {
-        DelayedResult cachedResult = resultCache.get(id);
-        if (cachedResult != null && cachedResult.getLevelVersion().equals(lv))
-            return cachedResult.getResult();
-        return null;
+        return getSession().getCachedResult(id, lv);
     }
 
 
@@ -428,12 +539,16 @@ public class WrapperConfig
      *            the test case
      * @param testSuiteDir
      *            the test suite directory
+     * @param caseList
+     *            the path of the file listing the cases to run, or null
      * @return expanded argument string
      */
     private String getExpandedArguments(TestCase test, int level, int version,
-                                        String testSuiteDir)
+                                        String testSuiteDir, String caseList)
     {
         String arguments = getArguments();
+        if (caseList != null)
+            arguments = arguments.replace("%f", caseList);
         arguments = arguments.replace("%d", testSuiteDir);
         arguments = arguments.replace("%o", getOutputPath());
         arguments = arguments.replace("%n", test.getId());
@@ -452,8 +567,30 @@ public class WrapperConfig
      *            the test suite directory
      * @return expanded argument string
      */
-    private String getExpandedArguments(TestCase test, LevelVersion lv,
-                                        String testSuiteDir)
+    String getExpandedArguments(TestCase test, LevelVersion lv,
+                                String testSuiteDir)
+    {
+        return getExpandedArguments(test, lv, testSuiteDir, null);
+    }
+
+
+    /**
+     * Expands variables within the argument string for a run of a batch of
+     * cases.  %n, %l and %v refer to the first case of the batch.
+     * 
+     * @param test
+     *            the first test case of the batch
+     * @param lv
+     *            the SBML Level/Version to use (null or 0 = highest)
+     * @param testSuiteDir
+     *            the test suite directory
+     * @param caseList
+     *            the path of the file listing the cases of the batch, for
+     *            %f, or null if there is none
+     * @return expanded argument string
+     */
+    String getExpandedArguments(TestCase test, LevelVersion lv,
+                                String testSuiteDir, String caseList)
     {
         int level;
         int version;
@@ -467,7 +604,26 @@ public class WrapperConfig
             level = test.getHighestSupportedLevel();
             version = test.getHighestSupportedVersion();
         }
-        return getExpandedArguments(test, level, version, testSuiteDir);
+        return getExpandedArguments(test, level, version, testSuiteDir,
+                                    caseList);
+    }
+
+
+    /**
+     * Expands the variables within the argument string that apply to a
+     * persistent worker, which are %d and %o; the rest come with each
+     * request.
+     * 
+     * @param testSuiteDir
+     *            the test suite directory
+     * @return expanded argument string
+     */
+    String getWorkerArguments(String testSuiteDir)
+    {
+        String arguments = getArguments();
+        arguments = arguments.replace("%d", testSuiteDir);
+        arguments = arguments.replace("%o", getOutputPath());
+        return arguments;
     }
 
 
@@ -500,215 +656,169 @@ public class WrapperConfig
 
 
     /**
-     * @return the wrapper executable
+     * @return the results snapshot file this view-only wrapper takes its
+     *         results from, or null if it uses its output directory
      */
-    public String getProgram()
+    public String getSnapshotPath()
     {
-        return program;
+        return snapshotPath;
     }
 
 
     /**
-     * Returns the file for the simulator result file for the given test
-     * 
-     * @param test
-     *            the test
-     * @return simulator result file
+     * @see WrapperSession#getSnapshot()
      */
-    public File getResultFile(final TestCase test)
+    public VerdictSnapshot getSnapshot()
     {
-        final String id = test.getId();
+        return getSession().getSnapshot();
+    }
 
-        // Speediest case: we already know where to look.
 
-        File cachedFile = resultFiles.get(id);
-        if (cachedFile != null)
-            return cachedFile;
 
-        // OK, we haven't tried to read this file yet.  Next speediest case:
-        // the file is named "NNNNN.csv".
+    /**
+     * @return how many milliseconds to wait for the result file of a case
+     *         to appear after the wrapper has exited (0 = don't wait)
+     */
+    public int getResultGracePeriod()
+    {
+        return resultGracePeriod;
+    }
 
-        File hopeful = new File(getOutputPath() + File.separator + id + ".csv");
-        if (hopeful.exists() && hopeful.isFile())
-        {
-            resultFiles.put(id, hopeful);
-            return hopeful;
-        }
 
-        // OK, it's not named "NNNNN.csv" or else it doesn't exist (yet).
-        // Now we have to look for a file name that contains the case id
-        // number and ends in .csv.  This corresponds to what's allowed by
-        // the online SBML Test Suite as of 2013.  If we ever change what's
-        // allowed to be uploaded in the online system, we need to make
-        // corresponding changes here.  The algorithm below is suboptimal,
-        // but it is not clear how else this can be done in Java.  There's no
-        // direct way to test for the existence of a file name pattern.
-
-        final File dir = new File(getOutputPath());
-        final File[] matchingFiles = dir.listFiles(new FilenameFilter() {
-            public boolean accept(final File dir, final String name)
-            {
-                return name.toLowerCase().endsWith(".csv")
-                    && (name.indexOf(id) != -1);
-            }
-        });
-
-        // There should only be one match.  If there's more than one, we're
-        // in a quandary.  We should flag that up as an error, but with the
-        // current code architecture, it's difficult.  So, right now, this
-        // simply takes the first match that's a file (and not, e.g., a dir).
-        // Also, we cache the result in resultFiles.
-
-        if (matchingFiles != null && matchingFiles.length > 0)
-        {
-            for (final File file : matchingFiles)
-                if (file.isFile())
-                {
-                    resultFiles.put(id, file);
-                    return file;
-                }
-        }
+    /**
+     * @return boolean indicating whether the complete output of the wrapper
+     *         for each case is kept in log files in the output directory
+     */
+    public boolean isKeepOutputLogs()
+    {
+        return keepOutputLogs;
+    }
 
-        // If we don't find it, return null to signal the caller.
 
-        return null;
+    /**
+     * @return boolean indicating whether the wrapper runs a list of cases
+     *         per invocation, which is the case if it was set so or if its
+     *         arguments contain %f
+     */
+    public boolean isBatchMode()
+    {
+        if (viewOnly || persistentWorkers) return false;
+        return batchMode || (arguments != null && arguments.contains("%f"));
     }
 
 
     /**
-     * Get the result set for the given test
-     * 
-     * @param test
-     *            the test to get the result for
-     * @return the simulator result for the test
+     * @return whether batch mode was set, regardless of the arguments
+     */
+    public boolean getBatchModeSetting()
+    {
+        return batchMode;
+    }
+
+
+    /**
+     * @return boolean indicating whether the wrapper is started once and
+     *         then kept running, taking one case after another as requests
+     *         on its standard input
+     */
+    public boolean isPersistentWorkers()
+    {
+        return persistentWorkers;
+    }
+
+
+    /**
+     * @return how many milliseconds a persistent worker may take for a
+     *         case before it is stopped and replaced (0 = no limit)
+     */
+    public int getWorkerTimeout()
+    {
+        return workerTimeout;
+    }
+
+
+    /**
+     * @return the wrapper executable
+     */
+    public String getProgram()
+    {
+        return program;
+    }
+
+
+    /**
+     * @see WrapperSession#getResultFile(TestCase)
+     */
+    public File getResultFile(TestCase test)
+    {
+        return getSession().getResultFile(test);
+    }
+
+
+    /**
+     * @see WrapperSession#getResultSet(TestCase)
      */
     public ResultSet getResultSet(TestCase test)
     {
-        File testFile = getResultFile(test);
-        if (testFile == null) return null;
-        return ResultSet.fromFile(testFile);
+        return getSession().getResultSet(test);
     }
 
 
     /**
-     * Gets the result type for the given test.  Uses the cached result
-     * if it exists, or computes it if a cached result doesn't exist.
-     * 
-     * @param test
-     *            the test to get the result type for
-     * @return the result type
+     * @see WrapperSession#getComparison(TestCase)
+     */
+    public ComparisonResult getComparison(TestCase test)
+    {
+        return getSession().getComparison(test);
+    }
+
+
+    /**
+     * @see WrapperSession#getResultType(TestCase)
      */
     public ResultType getResultType(TestCase test)
     {
-        ResultType result = getCachedResult(test.getId());
-        if (result == null)
-        {
-            result = getResultTypeInternal(test, new LevelVersion());
-            resultCache.put(test.getId(), new DelayedResult(result));
-        }
-        return result;
+        return getSession().getResultType(test);
     }
 
 
     /**
-     * Gets the result type for the given test.  Uses the cached result
-     * if it exists, or computes it if a cached result doesn't exist.
-     * 
-     * @param test
-     *            the test to get the result type for
-     * @param lv
-     *            the SBML Level & Version of the test case to use
-     *
-     * @return the result type
+     * @see WrapperSession#getResultType(TestCase, LevelVersion)
      */
     public ResultType getResultType(TestCase test, LevelVersion lv)
     {
-        ResultType result = getCachedResult(test.getId(), lv);
-        if (result == null)
-        {
-            if (lv == null) lv = new LevelVersion(); // Defaults to highest.
-            result = getResultTypeInternal(test, lv);
-            resultCache.put(test.getId(), new DelayedResult(result, lv));
-        }
-        return result;
+        return getSession().getResultType(test, lv);
     }
 
 
     /**
-     * Gets the result type for the given test.  Uses the cached result
-     * if it exists, or computes it if a cached result doesn't exist.
-     * 
-     * @param test
-     *            the test to get the result type for
-     * @param level
-     *            the SBML Level of the test case to use (0 = highest)
-     * @param version
-     *            the Version within the SBML Level to use (0 = highest)
-     *
-     * @return the result type
+     * @see WrapperSession#getResultType(TestCase, int, int)
      */
     public ResultType getResultType(TestCase test, int level, int version)
     {
-        return getResultType(test, new LevelVersion(level, version));
+        return getSession().getResultType(test, level, version);
     }
 
 
     /**
-     * Computes the result type for the given test
-     * 
-     * @param test
-     *            the test
-     * @return the result type
+     * @see WrapperSession#getResultTypeInternal(TestCase, int, int)
      */
     public ResultType getResultTypeInternal(TestCase test, int level, int version)
     {
-        return getResultTypeInternal(test, new LevelVersion(level, version));
+        return getSession().getResultTypeInternal(test, level, version);
     }
 
 
     /**
-     * Computes the result type for the given test
-     * 
-     * @param test
-     *            the test
-     * @return the result type
+     * @see WrapperSession#getResultTypeInternal(TestCase, LevelVersion)
      */
     public ResultType getResultTypeInternal(TestCase test, LevelVersion lv)
     {
-        if (lv == null) lv = test.getHighestSupportedLevelVersion();
-
-        if (lv.getLevel() != 0 && !test.supportsLevelVersion(lv))
-            return ResultType.Unavailable;
-        
-        ResultSet deliveredResult = getResultSet(test);
-        if (deliveredResult == null)           // Didn't produce a result.
-        {
-            if (test.matches(getUnsupportedTags()))
-                return ResultType.Unsupported; // We know why it didn't.
-            else
-                return ResultType.Unknown;     // We don't know why.
-        }
-        if (!deliveredResult.parseable())      // Something's wrong.
-        {
-            return ResultType.Error;
-        }
-
-        // If we get here, the wrapper produced a result.
-
-        if (test.matches(getUnsupportedTags()))
-            return ResultType.CannotSolve;     // We ignore it anyway.
-
-        ResultSet expectedResult = test.getExpectedResult();
-        CompareResultSet set = new CompareResultSet(expectedResult,
-                                                    deliveredResult);
-        if (set.compareUsingTestSuite(test.getSettings().getAbsoluteError(),
-                                      test.getSettings().getRelativeError()))
-            return ResultType.Match;
-        else
-            return ResultType.NoMatch;
+        return getSession().getResultTypeInternal(test, lv);
     }
 
 
+
     /**
      * @return the list of unsupported test / component tags
      */
@@ -761,285 +871,68 @@ public class WrapperConfig
 
 
     /**
-     * Executed the given test using the highest Level+Version of the SBML
-     * file for this test case.
-     * 
-     * @param test
-     *            the test to execute
-     * @param testSuiteDir
-     *            the test cases directory
+     * @see WrapperSession#run(TestCase, String)
      */
-    public RunOutcome run(final TestCase test, final String testSuiteDir)
+    public RunOutcome run(TestCase test, String testSuiteDir)
     {
-        return run(test, 0, 0, testSuiteDir, null, true);
+        return getSession().run(test, testSuiteDir);
     }
 
 
     /**
-     * Executed the given test
-     * 
-     * @param test
-     *            the test to execute
-     * @param level
-     *            the SBML Level of the test case to use (0 = highest)
-     * @param version
-     *            the Version within the SBML Level to use (0 = highest)
-     * @param testSuiteDir
-     *            the test cases directory
-     * @param callback
-     *            a cancellation callback allowing to interrupt the execution
+     * @see WrapperSession#run(TestCase, int, int, String, CancelCallback,
+     *      boolean)
      */
-    public RunOutcome run(final TestCase test, int level, int version,
-                          final String testSuiteDir, 
-                          final CancelCallback callback,
-                          final boolean deleteFirst)
+    public RunOutcome run(TestCase test, int level, int version,
+                          String testSuiteDir, CancelCallback callback,
+                          boolean deleteFirst)
     {
-        return run(test, new LevelVersion(level, version),
-                   testSuiteDir, 250, callback, deleteFirst);
+        return getSession().run(test, level, version, testSuiteDir, callback,
+                                deleteFirst);
     }
 
 
     /**
-     * Executed the given test
-     * 
-     * @param test
-     *            the test to execute
-     * @param level
-     *            the SBML Level of the test case to use (0 = highest)
-     * @param version
-     *            the Version within the SBML Level to use (0 = highest)
-     * @param testSuiteDir
-     *            the test cases directory
-     * @param milli
-     *            milliseconds to wait between calling the callback
-     * @param callback
-     *            a cancellation callback allowing to interrupt the execution
+     * @see WrapperSession#run(TestCase, String, int, CancelCallback, boolean)
      */
-    public RunOutcome run(final TestCase test, final String testSuiteDir,
-                          final int milli, final CancelCallback callback,
-                          final boolean deleteFirst)
+    public RunOutcome run(TestCase test, String testSuiteDir, int milli,
+                          CancelCallback callback, boolean deleteFirst)
     {
-        int level   = test.getHighestSupportedLevel();
-        int version = test.getHighestSupportedVersion();
-        return run(test, new LevelVersion(level, version),
-                   testSuiteDir, milli, callback, deleteFirst);
+        return getSession().run(test, testSuiteDir, milli, callback,
+                                deleteFirst);
     }
 
 
     /**
-     * Executed the given test
-     * 
-     * @param test
-     *            the test to execute
-     * @param level
-     *            the SBML Level of the test case to use (0 = highest)
-     * @param version
-     *            the Version within the SBML Level to use (0 = highest)
-     * @param testSuiteDir
-     *            the test cases directory
-     * @param milli
-     *            milliseconds to wait between calling the callback
-     * @param callback
-     *            a cancellation callback allowing to interrupt the execution
+     * @see WrapperSession#run(TestCase, LevelVersion, String, int,
+     *      CancelCallback, boolean)
      */
-    public RunOutcome run(final TestCase test, LevelVersion lv,
-                          final String testSuiteDir, final int milli,
-                          final CancelCallback callback,
-                          final boolean deleteFirst)
-    {
-        if (viewOnly)
-            return outcomeWithInfo(RunOutcome.Code.success, 
-                                   "This is a view-only wrapper.",
-                                   "", null, null);
-
-        if (lv == null)
-            lv = test.getHighestSupportedLevelVersion();
-
-        String cmd = getProgram() + " " + getExpandedArguments(test, lv, testSuiteDir);
-
-        if (!test.supportsLevelVersion(lv))
-        {
-            addUnavailableToCache(test, lv);
-            return outcomeWithInfo(RunOutcome.Code.success, 
-                                   "Case not available in a version for "
-                                   + "SBML Level " + lv.getLevel()
-                                   + " Version " + lv.getVersion() + ".",
-                                   cmd, null, null);
-        }
-
-        File expectedFile = getResultFile(test);
-        if (deleteFirst && expectedFile != null && expectedFile.exists()
-            && !expectedFile.delete())
-        {
-            addErrorToCache(test, lv);
-            return outcomeWithInfo(RunOutcome.Code.ioError, 
-                                   "Unable to delete output file '"
-                                   + expectedFile.getPath() + "' prior to "
-                                   + "invocation of wrapper. Aborted "
-                                   + "execution of wrapper for case "
-                                   + test.getId() + ".",
-                                   cmd, null, null);
-        }
-
-        Runtime rt              = Runtime.getRuntime();
-        Process process         = null;
-        StreamEater errorEater  = null;
-        StreamEater outputEater = null;
-        try
-        {
-            process = rt.exec(cmd);
-            errorEater = new StreamEater(process.getErrorStream());
-            outputEater = new StreamEater(process.getInputStream());
-            errorEater.start();
-            outputEater.start();
-
-            if (callback == null || milli < 0)
-                process.waitFor();
-            else
-            {
-                while (isRunning(process))
-                {
-                    if (callback != null && callback.cancellationRequested())
-                        return outcomeWithInfo(RunOutcome.Code.interrupted,
-                                               "Interrupted",
-                                               cmd, outputEater, errorEater);
-                    Thread.sleep(milli);
-                }
-            }
-
-            // Did the process exit abnormally?
-
-            if (process.exitValue() != 0)
-            {
-                // If this is a case that's unsupported by the tool, we
-                // don't call this a true error.
-                if (test.matches(getUnsupportedTags()))
-                    addUnsupportedToCache(test, lv);
-                else
-                    addErrorToCache(test, lv);
-
-                // We still return the error info, because that's separate
-                // from the interpretation of the result and we should still
-                // communicate this to the user.
-                return outcomeWithInfo(RunOutcome.Code.unknownError,
-                                       "The wrapper exited with an error",
-                                       cmd, outputEater, errorEater);
-            }
-
-            // It is possible that after the process exits, its output file
-            // may not instantly show up in the file system.  Unfortunately,
-            // sometimes a wrapper never writes the file at all.  We don't
-            // want to fail if we don't *immediately* see the file after the
-            // process exits, but we also don't know if the file will *ever*
-            // show up.  We can't block waiting for it, so the following is a
-            // compromise: we test for a time period and give up after ~1 sec.
-
-            expectedFile = getResultFile(test);
-            if (expectedFile == null || ! expectedFile.exists())
-            {
-                for (int count = 11; count > 0; count--)
-                {
-                    Thread.sleep(100);
-                    expectedFile = getResultFile(test);
-                    if (expectedFile != null && expectedFile.exists()) break;
-                }
-            }
-        }
-        catch (IOException ex)
-        {
-            addErrorToCache(test, lv);
-            return outcomeWithInfo(RunOutcome.Code.ioError, 
-                                   "IO exception occurred when running the wrapper",
-                                   cmd, outputEater, errorEater);
-        }
-        catch (SecurityException ex)
-        {
-            addErrorToCache(test, lv);
-            return outcomeWithInfo(RunOutcome.Code.securityError,
-                                   "Security exception occurred when attempting to run the wrapper",
-                                   cmd, outputEater, errorEater);
-        }
-        catch (IllegalArgumentException ex)
-        {
-            addErrorToCache(test, lv);
-            return outcomeWithInfo(RunOutcome.Code.argumentError,
-                                   "Badly formed wrapper command line",
-                                   cmd, outputEater, errorEater);
-        }
-        catch (InterruptedException ex)
-        {
-            addErrorToCache(test, lv);
-            return outcomeWithInfo(RunOutcome.Code.interrupted,
-                                   "The wrapper process was interrupted unexpectedly",
-                                   cmd, outputEater, errorEater);
-        }
-        catch (Exception e)
-        {
-            addErrorToCache(test, lv);
-            return outcomeWithInfo(RunOutcome.Code.unknownError,
-                                   "An unexpected error upon running the wrapper",
-                                   cmd, outputEater, errorEater);
-        }
-        finally
-        {
-            if (process != null)
-                process.destroy();
-        }
-
-        addResultToCache(test, lv);
-        return outcomeWithInfo(RunOutcome.Code.success, 
-                               "Wrapper completed normally",
-                               cmd, outputEater, errorEater);
-    }
-
-
-    public RunOutcome outcomeWithInfo(RunOutcome.Code code, String msg,
-                                      String cmd, StreamEater outputEater,
-                                      StreamEater errorEater)
+    public RunOutcome run(TestCase test, LevelVersion lv, String testSuiteDir,
+                          int milli, CancelCallback callback,
+                          boolean deleteFirst)
     {
-        String outputText = "";
-        String errorText  = "";
-        
-        if (outputEater != null)
-            outputText = outputEater.getOutput();
-        if (errorEater != null)
-            errorText = errorEater.getOutput();
-
-        msg += ".\n\nCommand line executed:\n"
-            + cmd + "\n\n"
-            + "Output produced on standard output stream:\n"
-            + outputText + "\n\n"
-            + "Output produced on standard error stream:\n"
-            + errorText;
-
-        return new RunOutcome(code, msg);
-    }
-
-
-    public void addResultToCache(final TestCase test, LevelVersion lv)
-    {
-        resultCache.put(test.getId(),
-                        new DelayedResult(getResultTypeInternal(test, lv), lv));
+        return getSession().run(test, lv, testSuiteDir, milli, callback,
+                                deleteFirst);
     }
 
 
-    public void addErrorToCache(final TestCase test, LevelVersion lv)
-    {
-        resultCache.put(test.getId(), new DelayedResult(ResultType.Error, lv));
-    }
-
-
-    public void addUnsupportedToCache(final TestCase test, LevelVersion lv)
+    /**
+     * @see WrapperSession#runBatch(List, LevelVersion, String, int,
+     *      CancelCallback, boolean, WrapperSession.BatchListener)
+     */
+    public SortedMap<String, RunOutcome> runBatch(List<TestCase> tests,
+                                                  LevelVersion lv,
+                                                  String testSuiteDir,
+                                                  int milli,
+                                                  CancelCallback callback,
+                                                  boolean deleteFirst,
+                                                  WrapperSession.BatchListener listener)
     {
-        resultCache.put(test.getId(), new DelayedResult(ResultType.Unsupported, lv));
+        return getSession().runBatch(tests, lv, testSuiteDir, milli, callback,
+                                     deleteFirst, listener);
     }
 
 
-    public void addUnavailableToCache(final TestCase test, LevelVersion lv)
-    {
-        resultCache.put(test.getId(), new DelayedResult(ResultType.Unavailable, lv));
-    }
-
 
     /**
      * Sets the wrapper arguments
@@ -1090,6 +983,95 @@ public class WrapperConfig
     }
 
 
+    /**
+     * Sets the results snapshot file this view-only wrapper takes its
+     * results from
+     * 
+     * @param snapshotPath
+     *            the snapshot file, or null to use the output directory
+     */
+    public void setSnapshotPath(String snapshotPath)
+    {
+        this.snapshotPath = snapshotPath;
+    }
+
+
+    /**
+     * Sets how long to wait for the result file of a case to appear after
+     * the wrapper has exited.  Wrappers that write their output through
+     * another process, or to a network file system, may need this.
+     * 
+     * @param milliseconds
+     *            the time to wait at most (0 = don't wait)
+     */
+    public void setResultGracePeriod(int milliseconds)
+    {
+        this.resultGracePeriod = Math.max(0, milliseconds);
+    }
+
+
+    /**
+     * Sets whether the complete output of the wrapper for each case is kept
+     * in the files "NNNNN-stdout.log" and "NNNNN-stderr.log" in the output
+     * directory.  Either way, the run outcome holds the beginning and the
+     * end of it.
+     * 
+     * @param keepOutputLogs
+     *            whether to keep the logs
+     */
+    public void setKeepOutputLogs(boolean keepOutputLogs)
+    {
+        this.keepOutputLogs = keepOutputLogs;
+    }
+
+
+    /**
+     * Sets whether the wrapper runs a list of cases per invocation.  The
+     * list has a line "NNNNN level version" for each case and is passed in
+     * a file, whose path replaces %f in the arguments, as well as on the
+     * standard input of the wrapper.  Arguments with %f imply this.
+     * 
+     * @param batchMode
+     *            whether the wrapper takes lists of cases
+     */
+    public void setBatchMode(boolean batchMode)
+    {
+        this.batchMode = batchMode;
+    }
+
+
+    /**
+     * Sets whether the wrapper is started once per thread and kept running.
+     * Such a worker reads a line "RUN NNNNN level version casesDir
+     * outputDir" from its standard input for each case, writes the result
+     * file as usual, and answers with a line "DONE NNNNN status" on its
+     * standard output, where a status of 0 or OK means success.  Only %d
+     * and %o are substituted in the arguments.  A worker that exits or
+     * times out is replaced by a new one for the next case; all of them
+     * are told to exit by the end of their standard input.
+     * 
+     * @param persistentWorkers
+     *            whether to keep the wrapper running between cases
+     */
+    public void setPersistentWorkers(boolean persistentWorkers)
+    {
+        this.persistentWorkers = persistentWorkers;
+    }
+
+
+    /**
+     * Sets how long a persistent worker may take for a case before it is
+     * stopped and replaced.
+     * 
+     * @param milliseconds
+     *            the time a case may take at most (0 = no limit)
+     */
+    public void setWorkerTimeout(int milliseconds)
+    {
+        this.workerTimeout = Math.max(0, milliseconds);
+    }
+
+
     /**
      * Sets the wrapper executable
      * 
@@ -1162,23 +1144,10 @@ public class WrapperConfig
     }
 
 
-    /**
-     * Start the calculation of all results.
-     * 
-     * @param suite
-     *            the test suite to compare against
-     * @return a map with test ids / delayed result objects
-     */
-    public SortedMap<String, DelayedResult> updateCache(TestSuite suite,
-                                                        LevelVersion lv)
-    {
-        beginUpdate(suite, lv);
-        return resultCache;
-    }
-
 
     /**
-     * Initializes this wrapper from another one
+     * Initializes the settings of this wrapper from another one.  The
+     * session of the other wrapper, with its results, is not shared.
      * 
      * @param other
      *            other wrapper
@@ -1195,7 +1164,12 @@ public class WrapperConfig
         this.supportsAllVersions = other.supportsAllVersions;
         this.unsupportedTags = new Vector<String>(other.unsupportedTags);
         this.concurrentThreadsOK = other.concurrentThreadsOK;
-        this.resultFiles.putAll(other.resultFiles);
+        this.snapshotPath = other.snapshotPath;
+        this.resultGracePeriod = other.resultGracePeriod;
+        this.keepOutputLogs = other.keepOutputLogs;
+        this.batchMode = other.batchMode;
+        this.persistentWorkers = other.persistentWorkers;
+        this.workerTimeout = other.workerTimeout;
     }
 
 
@@ -1225,19 +1199,22 @@ public class WrapperConfig
         int result = 1;
         result = prime * result
             + ((arguments == null) ? 0 : arguments.hashCode());
+        result = prime * result + (batchMode ? 1231 : 1237);
         result = prime * result + (concurrentThreadsOK ? 1231 : 1237);
+        result = prime * result + (keepOutputLogs ? 1231 : 1237);
         result = prime * result + ((name == null) ? 0 : name.hashCode());
         result = prime * result
             + ((outputPath == null) ? 0 : outputPath.hashCode());
+        result = prime * result + (persistentWorkers ? 1231 : 1237);
         result = prime * result + ((program == null) ? 0 : program.hashCode());
+        result = prime * result + resultGracePeriod;
         result = prime * result
-            + ((resultCache == null) ? 0 : resultCache.hashCode());
-        result = prime * result
-            + ((resultFiles == null) ? 0 : resultFiles.hashCode());
+            + ((snapshotPath == null) ? 0 : snapshotPath.hashCode());
         result = prime * result + (supportsAllVersions ? 1231 : 1237);
         result = prime * result
             + ((unsupportedTags == null) ? 0 : unsupportedTags.hashCode());
         result = prime * result + (viewOnly ? 1231 : 1237);
+        result = prime * result + workerTimeout;
         return result;
     }
 
@@ -1257,7 +1234,9 @@ public class WrapperConfig
             if (other.arguments != null) return false;
         }
         else if (!arguments.equals(other.arguments)) return false;
+        if (batchMode != other.batchMode) return false;
         if (concurrentThreadsOK != other.concurrentThreadsOK) return false;
+        if (keepOutputLogs != other.keepOutputLogs) return false;
         if (name == null)
         {
             if (other.name != null) return false;
@@ -1268,19 +1247,18 @@ public class WrapperConfig
             if (other.outputPath != null) return false;
         }
         else if (!outputPath.equals(other.outputPath)) return false;
+        if (persistentWorkers != other.persistentWorkers) return false;
         if (program == null)
         {
             if (other.program != null) return false;
         }
         else if (!program.equals(other.program)) return false;
-        if (resultCache == null)
-        {
-            if (other.resultCache != null) return false;
-        }
-        if (resultFiles == null)
+        if (resultGracePeriod != other.resultGracePeriod) return false;
+        if (snapshotPath == null)
         {
-            if (other.resultFiles != null) return false;
+            if (other.snapshotPath != null) return false;
         }
+        else if (!snapshotPath.equals(other.snapshotPath)) return false;
         if (supportsAllVersions != other.supportsAllVersions) return false;
         if (unsupportedTags == null)
         {
@@ -1288,30 +1266,7 @@ public class WrapperConfig
         }
         else if (!unsupportedTags.equals(other.unsupportedTags)) return false;
         if (viewOnly != other.viewOnly) return false;
+        if (workerTimeout != other.workerTimeout) return false;
         return true;
     }
-
-
-    /**
-     * Simple test that checks whether a given process is running
-     * 
-     * @param p
-     *            the process
-     * 
-     * @return true, if process is running, false otherwise.
-     */
-    private final static boolean isRunning(final Process p)
-    {
-        if (p == null) return false;
-
-        try
-        {
-            p.exitValue();
-        }
-        catch (IllegalThreadStateException e)
-        {
-            return true;
-        }
-        return false;
-    }
 }
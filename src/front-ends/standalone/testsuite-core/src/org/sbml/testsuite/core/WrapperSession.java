@@ -0,0 +1,2126 @@
+//
+// @file   WrapperSession.java
+// @brief  Results, caches and runs of a wrapper during one session
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+
+package org.sbml.testsuite.core;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sbml.testsuite.core.data.CompareResultSet;
+import org.sbml.testsuite.core.data.ComparisonResult;
+import org.sbml.testsuite.core.data.ResultSet;
+import org.sbml.testsuite.core.data.StreamingComparator;
+
+/**
+ * WrapperSession holds what is known about the results of a wrapper while
+ * the program runs: the cache of computed result types, the index of the
+ * files in the output directory, the journal of evaluated result files and
+ * the history of runs.  It also runs the wrapper.
+ * 
+ * The settings of the wrapper are read from its WrapperConfig every time
+ * they're needed, so a change of the configuration applies to the session
+ * right away; a change of the output path or the name replaces the index,
+ * the journal or the history.  Several sessions can use one configuration,
+ * each with caches of its own.  None of this is saved with the settings.
+ */
+public class WrapperSession
+{
+    private final WrapperConfig config;
+
+    private final ResultCache   resultCache = new ResultCache();
+
+    private OutputIndex         resultFiles;
+
+    private VerdictJournal      verdicts;
+
+    private final AtomicLong    skippedEvaluations = new AtomicLong();
+
+    private RunHistory          history;
+
+    private VerdictSnapshot     snapshot;
+
+    private String              snapshotLoadedFrom;
+
+    private final WorkerPool    workers = new WorkerPool();
+
+    private final ConcurrentSkipListSet<String> unfound
+        = new ConcurrentSkipListSet<String>();
+
+    /**
+     * The pool that computes results, with one thread per processor.  Its
+     * threads are daemon threads, so that pending computations don't keep
+     * the program from exiting.
+     */
+    static final ExecutorService executor
+        = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                                       new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "Result computation "
+                    + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+
+    /**
+     * Constructs a new session for the given wrapper configuration, with
+     * nothing cached yet.
+     * 
+     * @param config
+     *            the configuration of the wrapper
+     */
+    public WrapperSession(WrapperConfig config)
+    {
+        this.config = config;
+    }
+
+
+    /**
+     * @return the configuration of the wrapper of this session
+     */
+    public WrapperConfig getConfig()
+    {
+        return config;
+    }
+
+
+    /**
+     * Starts the calculation of all results.  The cases are handed to the
+     * thread pool in a few batches rather than one by one; the result of
+     * each case is available from the cache as soon as it is known.  A
+     * view-only wrapper with a results snapshot for the Level/Version takes
+     * the results from it instead.
+     * 
+     * @param suite
+     *            the tests to compare against
+     * @param lv
+     *            the SBML Level/Version to use
+     * @return a future that completes when all results are known
+     */
+    public CompletableFuture<Void> beginUpdate(TestSuite suite,
+                                               final LevelVersion lv)
+    {
+        VerdictSnapshot snapshot = getSnapshot(lv);
+        if (snapshot != null)
+        {
+            putCachedResults(lv, snapshot.getResults(suite));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Vector<TestCase> cases = suite.getCases();
+        int numBatches = 4 * Runtime.getRuntime().availableProcessors();
+        int batchSize = Math.max(1, (cases.size() + numBatches - 1) / numBatches);
+
+        Vector<CompletableFuture<Void>> batches
+            = new Vector<CompletableFuture<Void>>();
+        for (int start = 0; start < cases.size(); start += batchSize)
+        {
+            final List<TestCase> batch = new Vector<TestCase>(
+                cases.subList(start, Math.min(cases.size(), start + batchSize)));
+            final Vector<CompletableFuture<ResultType>> futures
+                = new Vector<CompletableFuture<ResultType>>(batch.size());
+            for (TestCase test : batch)
+            {
+                CompletableFuture<ResultType> future
+                    = new CompletableFuture<ResultType>();
+                futures.add(future);
+                resultCache.put(test.getId(), lv, new DelayedResult(future, lv));
+            }
+            batches.add(CompletableFuture.runAsync(new Runnable() {
+                public void run()
+                {
+                    // Any failure, an Error included, completes the
+                    // case's future, so that nobody waits for it forever
+                    // and the rest of the batch is still computed.
+
+                    for (int i = 0; i < batch.size(); i++)
+                    {
+                        try
+                        {
+                            futures.get(i).complete(
+                                getResultTypeInternal(batch.get(i), lv));
+                        }
+                        catch (Throwable e)
+                        {
+                            futures.get(i).completeExceptionally(e);
+                        }
+                    }
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[batches.size()]));
+    }
+
+
+    /**
+     * Start the calculation of all results.
+     * 
+     * @param suite
+     *            the test suite to compare against
+     * @return a map with test ids / delayed result objects
+     */
+    public SortedMap<String, DelayedResult> updateCache(TestSuite suite,
+                                                        LevelVersion lv)
+    {
+        beginUpdate(suite, lv);
+        return resultCache.get(lv);
+    }
+
+
+    /**
+     * Stores a batch of results for the same Level/Version in the cache at
+     * once.
+     * 
+     * @param lv
+     *            the SBML Level/Version of the results
+     * @param results
+     *            a map with test ids / delayed result objects
+     */
+    void putCachedResults(LevelVersion lv, Map<String, DelayedResult> results)
+    {
+        resultCache.putAll(lv, results);
+    }
+
+
+    /**
+     * Stores a batch of results for the same Level/Version in the cache,
+     * keeping the results that were created after the batch was started.
+     * 
+     * @param lv
+     *            the SBML Level/Version of the results
+     * @param results
+     *            a map with test ids / delayed result objects
+     * @param since
+     *            the value of DelayedResult.currentStamp() when the batch
+     *            was started
+     */
+    void putCachedResults(LevelVersion lv, Map<String, DelayedResult> results,
+                          long since)
+    {
+        resultCache.putAllUnlessNewer(lv, results, since);
+    }
+
+
+    /**
+     * Returns the index of the result files in the output directory.  A new
+     * index is started whenever the output path changes.
+     * 
+     * @return the index
+     */
+    synchronized OutputIndex getOutputIndex()
+    {
+        String outputPath = config.getOutputPath();
+        String path = (outputPath == null ? "" : outputPath);
+        if (resultFiles == null || !resultFiles.getDirectory().equals(path))
+            resultFiles = new OutputIndex(path);
+        return resultFiles;
+    }
+
+
+    /**
+     * Returns the journal of the result types computed for the files in the
+     * output directory, loading it when it's first needed.  A new journal
+     * is loaded whenever the output path changes.
+     * 
+     * @return the journal, or null if there is no output directory
+     */
+    synchronized VerdictJournal getVerdictJournal()
+    {
+        String outputPath = config.getOutputPath();
+        if (outputPath == null || outputPath.length() == 0) return null;
+        if (verdicts == null || !verdicts.isFor(outputPath))
+            verdicts = VerdictJournal.load(outputPath, Util.getResultCacheDir());
+        return verdicts;
+    }
+
+
+    /**
+     * Writes the journal of computed result types, if any were added since
+     * it was last written, so that they need not be computed again the next
+     * time the program starts.
+     */
+    public void saveVerdicts()
+    {
+        VerdictJournal journal;
+        synchronized (this)
+        {
+            journal = verdicts;
+        }
+        if (journal != null) journal.save();
+    }
+
+
+    /**
+     * Returns the history of the cases run by this wrapper, opening it when
+     * it's first needed.  A different history is opened whenever the name
+     * of the wrapper changes.
+     * 
+     * @return the history, or null if it can't be opened
+     */
+    public synchronized RunHistory getHistory()
+    {
+        String name = config.getName();
+        if (name == null || name.length() == 0) return null;
+        if (history == null || !history.isFor(name))
+        {
+            if (history != null) history.close();
+            try
+            {
+                history = RunHistory.open(name, Util.getResultCacheDir());
+            }
+            catch (IOException e)
+            {
+                history = null;
+            }
+        }
+        return history;
+    }
+
+
+    /**
+     * Writes the index of the history of this wrapper, if it was opened,
+     * and closes it.
+     */
+    public synchronized void closeHistory()
+    {
+        if (history == null) return;
+        history.close();
+        history = null;
+    }
+
+
+    /**
+     * Tells the persistent workers of this wrapper to exit once they're
+     * idle.  New ones are started if the wrapper runs again.
+     */
+    public void stopWorkers()
+    {
+        workers.close();
+    }
+
+
+    /**
+     * Returns the number of result files whose result type was not computed
+     * because a file with the same content had been evaluated before.
+     * 
+     * @return the number of evaluations skipped
+     */
+    public long getNumSkippedEvaluations()
+    {
+        return skippedEvaluations.get();
+    }
+
+
+    /**
+     * Returns the results snapshot the wrapper takes its results from,
+     * reading it when it's first needed.
+     * 
+     * @return the snapshot, or null if there is none or it can't be read
+     */
+    public synchronized VerdictSnapshot getSnapshot()
+    {
+        String snapshotPath = config.getSnapshotPath();
+        if (snapshotPath == null || snapshotPath.length() == 0) return null;
+        if (!snapshotPath.equals(snapshotLoadedFrom))
+        {
+            snapshotLoadedFrom = snapshotPath;
+            try
+            {
+                snapshot = VerdictSnapshot.read(new File(snapshotPath));
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+                snapshot = null;
+            }
+        }
+        return snapshot;
+    }
+
+
+    /**
+     * Returns the snapshot to take the results for the given SBML
+     * Level/Version from, if this is a view-only wrapper with a snapshot
+     * for it.
+     * 
+     * @param lv
+     *            the SBML Level/Version
+     * @return the snapshot, or null if the results must be computed
+     */
+    VerdictSnapshot getSnapshot(LevelVersion lv)
+    {
+        if (!config.isViewOnly()) return null;
+        VerdictSnapshot snapshot = getSnapshot();
+        return (snapshot != null && snapshot.isFor(lv) ? snapshot : null);
+    }
+
+
+    /**
+     * Forgets the cached results of the test with the given id for all
+     * Levels/Versions, so that they are computed again the next time they
+     * are needed.
+     * 
+     * @param id
+     *            the test id
+     */
+    void invalidate(String id)
+    {
+        resultCache.invalidate(id);
+    }
+
+
+    /**
+     * Deletes the result for the given test
+     * 
+     * @param test
+     *            the test
+     */
+    public void deleteResult(TestCase test)
+    {
+        File testFile = getResultFile(test);
+        if (testFile == null) return;
+        testFile.delete();
+        getOutputIndex().update(testFile.getName());
+        resultCache.invalidate(test.getId());
+    }
+
+
+    /**
+     * @return the cache of all computed results, for all Levels/Versions
+     */
+    public ResultCache getResultCache()
+    {
+        return resultCache;
+    }
+
+
+    /**
+     * @return the computed results for the highest Level/Version
+     */
+    public SortedMap<String, DelayedResult> getCache()
+    {
+        return resultCache.get(new LevelVersion());
+    }
+
+
+    /**
+     * Returns the computed results for the given Level/Version
+     * 
+     * @param lv
+     *            the SBML Level/Version (null = highest)
+     * @return a map with test ids / delayed result objects
+     */
+    public SortedMap<String, DelayedResult> getCache(LevelVersion lv)
+    {
+        return resultCache.get(lv);
+    }
+
+
+    /**
+     * returns the cached result for the test with given id, for the highest
+     * Level/Version
+     * 
+     * @param id
+     *            the test id
+     * @return the result type
+     */
+    public ResultType getCachedResult(String id)
+    {
+        return getCachedResult(id, new LevelVersion());
+    }
+
+
+    /**
+     * Returns the cached result for the test with given id
+     * and level/version, if it exists.
+     * 
+     * @param id
+     *            the test id
+     * @return the result type
+     */
+    public ResultType getCachedResult(String id, LevelVersion lv)
+    {
+        DelayedResult cachedResult = resultCache.get(id, lv);
+        if (cachedResult != null)
+            return cachedResult.getResult();
+        return null;
+    }
+
+
+    /**
+     * Returns the file for the simulator result file for the given test
+     * 
+     * @param test
+     *            the test
+     * @return simulator result file
+     */
+    public File getResultFile(final TestCase test)
+    {
+        // The index lists the output directory once, the first time it's
+        // needed, and is kept up to date after that.
+
+        OutputIndex index = getOutputIndex();
+        File file = index.get(test.getId());
+        if (file != null)
+            return file;
+
+        // The file may have been written since the index was last brought up
+        // to date.  If it's named "NNNNN.csv", we can check for it directly.
+
+        File hopeful = new File(config.getOutputPath(), test.getId() + ".csv");
+        if (hopeful.isFile())
+        {
+            index.update(hopeful.getName());
+            return hopeful;
+        }
+
+        // If we don't find it, return null to signal the caller.
+
+        return null;
+    }
+
+
+    /**
+     * Like getResultFile(), but if there is no result file yet, watches the
+     * output directory for it for up to the given time.  The directory is
+     * only listed again if the watch lost track of the changes; a case
+     * that still has no file is remembered for findLateResultFiles().
+     * 
+     * @param test
+     *            the test
+     * @param milliseconds
+     *            the time to wait at most (0 = don't wait)
+     * @return the result file, or null if there is none
+     */
+    private File awaitResultFile(TestCase test, int milliseconds)
+        throws InterruptedException
+    {
+        File file = getResultFile(test);
+        if ((file != null && file.exists()) || milliseconds <= 0)
+            return remember(test, file);
+
+        long deadline = System.nanoTime() + milliseconds * 1000000L;
+        WatchService watcher = null;
+        try
+        {
+            watcher = FileSystems.getDefault().newWatchService();
+            Paths.get(config.getOutputPath()).register(watcher,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+
+            // The file may have appeared before we started watching.
+
+            file = getResultFile(test);
+            while (file == null || !file.exists())
+            {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) break;
+                WatchKey key = watcher.poll(remaining, TimeUnit.NANOSECONDS);
+                if (key == null) break;
+                boolean overflow = false;
+                for (WatchEvent<?> event : key.pollEvents())
+                {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                        overflow = true;
+                    else
+                        getOutputIndex().update(event.context().toString());
+                }
+                key.reset();
+                if (overflow) getOutputIndex().refresh();
+                file = getResultFile(test);
+            }
+        }
+        catch (IOException e)
+        {
+            // We can't watch the directory; go with what we found.
+        }
+        finally
+        {
+            closeWatcher(watcher);
+        }
+        return remember(test, file);
+    }
+
+
+    /**
+     * Remembers the given case if it has no result file, in case the
+     * wrapper named it other than "NNNNN.csv".
+     */
+    private File remember(TestCase test, File file)
+    {
+        if (file == null || !file.exists()) unfound.add(test.getId());
+        return file;
+    }
+
+
+    /**
+     * Lists the output directory once at the end of a run, to look for the
+     * result files of the cases that had none when they were run.  A file
+     * named other than "NNNNN.csv" is only found by listing the directory,
+     * which would take too long to do after every case.  The cached results
+     * of the cases that turn out to have a file are dropped, so that they
+     * are computed again.
+     * 
+     * @return the ids of the cases whose result file was found
+     */
+    public Vector<String> findLateResultFiles()
+    {
+        Vector<String> found = new Vector<String>();
+        if (unfound.isEmpty()) return found;
+
+        OutputIndex index = getOutputIndex();
+        index.refresh();
+        String id;
+        while ((id = unfound.pollFirst()) != null)
+            if (index.get(id) != null)
+            {
+                invalidate(id);
+                found.add(id);
+            }
+        return found;
+    }
+
+
+    /**
+     * Get the result set for the given test
+     * 
+     * @param test
+     *            the test to get the result for
+     * @return the simulator result for the test
+     */
+    public ResultSet getResultSet(TestCase test)
+    {
+        File testFile = getResultFile(test);
+        if (testFile == null) return null;
+        return ResultSet.fromFile(testFile);
+    }
+
+
+    /**
+     * Compares the simulator result for the given test against the expected
+     * result, reading the result file once and collecting error statistics
+     * along with the verdict.
+     * 
+     * @param test
+     *            the test
+     * @return the comparison, or null if there is no result file
+     */
+    public ComparisonResult getComparison(TestCase test)
+    {
+        ResultSet deliveredResult = getResultSet(test);
+        if (deliveredResult == null) return null;
+        CompareResultSet set = new CompareResultSet(test.getExpectedResult(),
+                                                    deliveredResult);
+        return set.compare(test.getSettings().getAbsoluteError(),
+                           test.getSettings().getRelativeError());
+    }
+
+
+    /**
+     * Gets the result type for the given test.  Uses the cached result
+     * if it exists, or computes it if a cached result doesn't exist.
+     * 
+     * @param test
+     *            the test to get the result type for
+     * @return the result type
+     */
+    public ResultType getResultType(TestCase test)
+    {
+        return getResultType(test, new LevelVersion());
+    }
+
+
+    /**
+     * Gets the result type for the given test.  Uses the cached result
+     * if it exists, or computes it if a cached result doesn't exist.
+     * 
+     * @param test
+     *            the test to get the result type for
+     * @param lv
+     *            the SBML Level & Version of the test case to use
+     * 
+     * @return the result type
+     */
+    public ResultType getResultType(TestCase test, LevelVersion lv)
+    {
+        ResultType result = getCachedResult(test.getId(), lv);
+        if (result == null)
+        {
+            if (lv == null) lv = new LevelVersion(); // Defaults to highest.
+            VerdictSnapshot snapshot = getSnapshot(lv);
+            if (snapshot != null)
+                result = snapshot.getResultType(test);
+            else
+                result = getResultTypeInternal(test, lv);
+            resultCache.put(test.getId(), lv, new DelayedResult(result, lv));
+        }
+        return result;
+    }
+
+
+    /**
+     * Gets the result type for the given test.  Uses the cached result
+     * if it exists, or computes it if a cached result doesn't exist.
+     * 
+     * @param test
+     *            the test to get the result type for
+     * @param level
+     *            the SBML Level of the test case to use (0 = highest)
+     * @param version
+     *            the Version within the SBML Level to use (0 = highest)
+     * 
+     * @return the result type
+     */
+    public ResultType getResultType(TestCase test, int level, int version)
+    {
+        return getResultType(test, new LevelVersion(level, version));
+    }
+
+
+    /**
+     * Computes the result type for the given test
+     * 
+     * @param test
+     *            the test
+     * @return the result type
+     */
+    public ResultType getResultTypeInternal(TestCase test, int level, int version)
+    {
+        return getResultTypeInternal(test, new LevelVersion(level, version));
+    }
+
+
+    /**
+     * Computes the result type for the given test
+     * 
+     * @param test
+     *            the test
+     * @return the result type
+     */
+    public ResultType getResultTypeInternal(TestCase test, LevelVersion lv)
+    {
+        if (lv == null) lv = test.getHighestSupportedLevelVersion();
+
+        if (lv.getLevel() != 0 && !test.supportsLevelVersion(lv))
+            return ResultType.Unavailable;
+
+        return getResultTypeInternal(test, lv, getResultFile(test));
+    }
+
+
+    /**
+     * Computes the result type for the given test from a result file that
+     * the caller has already located.
+     * 
+     * @param test
+     *            the test
+     * @param lv
+     *            the SBML Level & Version of the test case to use
+     * @param deliveredFile
+     *            the simulator result file, or null if there is none
+     * @return the result type
+     */
+    ResultType getResultTypeInternal(TestCase test, LevelVersion lv,
+                                     File deliveredFile)
+    {
+        return getResultTypeInternal(test, lv, deliveredFile, null);
+    }
+
+
+    /**
+     * Computes the result type for the given test from a result file that
+     * the caller has already located, using a comparator for the expected
+     * result that the caller may share between wrappers.
+     * 
+     * @param test
+     *            the test
+     * @param lv
+     *            the SBML Level & Version of the test case to use
+     * @param deliveredFile
+     *            the simulator result file, or null if there is none
+     * @param comparator
+     *            a comparator for the expected result of the test, or null
+     *            to create one if needed
+     * @return the result type
+     */
+    ResultType getResultTypeInternal(TestCase test, LevelVersion lv,
+                                     File deliveredFile,
+                                     StreamingComparator comparator)
+    {
+        if (lv.getLevel() != 0 && !test.supportsLevelVersion(lv))
+            return ResultType.Unavailable;
+
+        if (deliveredFile == null || !deliveredFile.exists())
+            return noResultType(test);         // Didn't produce a result.
+
+        // If we get here, the wrapper produced a result.
+
+        Vector<String> unsupportedTags = config.getUnsupportedTags();
+        if (test.matches(unsupportedTags))
+        {
+            if (!StreamingComparator.isReadable(deliveredFile))
+                return ResultType.Error;       // Something's wrong.
+            return ResultType.CannotSolve;     // We ignore it anyway.
+        }
+
+        // Running a case again often produces exactly the same output.  If
+        // so, the result type recorded for it before still holds.
+
+        VerdictJournal journal = getVerdictJournal();
+        String tags = VerdictJournal.tagsKey(unsupportedTags);
+        long size = deliveredFile.length();
+        long lastModified = deliveredFile.lastModified();
+        Long hash = null;
+        if (journal != null)
+        {
+            try
+            {
+                hash = VerdictJournal.contentHash(deliveredFile);
+            }
+            catch (IOException e)
+            {
+                // The comparator will tell what's wrong with the file.
+            }
+            if (hash != null)
+            {
+                ResultType known = journal.getByContent(test, lv, tags, size,
+                                                        hash);
+                if (known != null)
+                {
+                    skippedEvaluations.incrementAndGet();
+                    journal.put(test, lv, tags, deliveredFile, size,
+                                lastModified, hash, known);
+                    return known;
+                }
+            }
+        }
+
+        // Compare the file while reading it; we don't need the delivered
+        // values beyond the first one that's out of tolerance.
+
+        if (comparator == null)
+            comparator = newComparator(test);
+        ResultType result;
+        switch (comparator.compare(deliveredFile))
+        {
+        case Match:
+            result = ResultType.Match;
+            break;
+        case Unparseable:
+            result = ResultType.Error;         // Something's wrong.
+            break;
+        case Missing:
+            return noResultType(test);         // Vanished in the meantime.
+        default:
+            result = ResultType.NoMatch;
+            break;
+        }
+
+        if (hash != null)
+            journal.put(test, lv, tags, deliveredFile, size, lastModified,
+                        hash, result);
+        return result;
+    }
+
+
+    /**
+     * Returns a comparator for the expected result of the given test, using
+     * the tolerances of the test.
+     * 
+     * @param test
+     *            the test
+     * @return the comparator
+     */
+    static StreamingComparator newComparator(TestCase test)
+    {
+        return new StreamingComparator(test.getExpectedResult(),
+                                       test.getSettings().getAbsoluteError(),
+                                       test.getSettings().getRelativeError());
+    }
+
+
+    /**
+     * Returns the result type for a test for which the wrapper did not
+     * produce a result file.
+     */
+    private ResultType noResultType(TestCase test)
+    {
+        if (test.matches(config.getUnsupportedTags()))
+            return ResultType.Unsupported;     // We know why it didn't.
+        else
+            return ResultType.Unknown;         // We don't know why.
+    }
+
+
+    /**
+     * Executed the given test using the highest Level+Version of the SBML
+     * file for this test case.
+     * 
+     * @param test
+     *            the test to execute
+     * @param testSuiteDir
+     *            the test cases directory
+     */
+    public RunOutcome run(final TestCase test, final String testSuiteDir)
+    {
+        return run(test, 0, 0, testSuiteDir, null, true);
+    }
+
+
+    /**
+     * Executed the given test
+     * 
+     * @param test
+     *            the test to execute
+     * @param level
+     *            the SBML Level of the test case to use (0 = highest)
+     * @param version
+     *            the Version within the SBML Level to use (0 = highest)
+     * @param testSuiteDir
+     *            the test cases directory
+     * @param callback
+     *            a cancellation callback allowing to interrupt the execution;
+     *            a CancelToken stops the wrapper as soon as it's cancelled
+     */
+    public RunOutcome run(final TestCase test, int level, int version,
+                          final String testSuiteDir,
+                          final CancelCallback callback,
+                          final boolean deleteFirst)
+    {
+        return run(test, new LevelVersion(level, version),
+                   testSuiteDir, 250, callback, deleteFirst);
+    }
+
+
+    /**
+     * Executed the given test
+     * 
+     * @param test
+     *            the test to execute
+     * @param testSuiteDir
+     *            the test cases directory
+     * @param milli
+     *            milliseconds between asking the callback whether to
+     *            cancel, unless it's a CancelToken, which tells by itself
+     * @param callback
+     *            a cancellation callback allowing to interrupt the execution
+     */
+    public RunOutcome run(final TestCase test, final String testSuiteDir,
+                          final int milli, final CancelCallback callback,
+                          final boolean deleteFirst)
+    {
+        int level   = test.getHighestSupportedLevel();
+        int version = test.getHighestSupportedVersion();
+        return run(test, new LevelVersion(level, version),
+                   testSuiteDir, milli, callback, deleteFirst);
+    }
+
+
+    /**
+     * Executed the given test
+     * 
+     * @param test
+     *            the test to execute
+     * @param lv
+     *            the SBML Level/Version of the test case to use
+     * @param testSuiteDir
+     *            the test cases directory
+     * @param milli
+     *            milliseconds between asking the callback whether to
+     *            cancel, unless it's a CancelToken, which tells by itself
+     * @param callback
+     *            a cancellation callback allowing to interrupt the execution
+     */
+    public RunOutcome run(final TestCase test, LevelVersion lv,
+                          final String testSuiteDir, final int milli,
+                          final CancelCallback callback,
+                          final boolean deleteFirst)
+    {
+        if (lv == null)
+            lv = test.getHighestSupportedLevelVersion();
+
+        if (config.isBatchMode())
+        {
+            // A batch wrapper reads its cases from a list, even if there's
+            // only one.
+
+            List<TestCase> single = new Vector<TestCase>();
+            single.add(test);
+            RunOutcome outcome = runBatch(single, lv, testSuiteDir, milli,
+                                          callback, deleteFirst, null)
+                                     .get(test.getId());
+            if (outcome != null) return outcome;
+            return outcomeWithInfo(RunOutcome.Code.interrupted,
+                                   "Interrupted", "", null);
+        }
+
+        long started = System.currentTimeMillis();
+        RunOutcome outcome = runCase(test, lv, testSuiteDir, milli, callback,
+                                     deleteFirst);
+        if (!config.isViewOnly())
+            addToHistory(test, lv, outcome, started);
+        return outcome;
+    }
+
+
+    private RunOutcome runCase(final TestCase test, LevelVersion lv,
+                               final String testSuiteDir, final int milli,
+                               final CancelCallback callback,
+                               final boolean deleteFirst)
+    {
+        if (config.isViewOnly())
+            return outcomeWithInfo(RunOutcome.Code.success,
+                                   "This is a view-only wrapper.",
+                                   "", null);
+
+        if (lv == null)
+            lv = test.getHighestSupportedLevelVersion();
+
+        String cmd = config.getProgram() + " "
+            + config.getExpandedArguments(test, lv, testSuiteDir);
+
+        if (!test.supportsLevelVersion(lv))
+        {
+            addUnavailableToCache(test, lv);
+            return outcomeWithInfo(RunOutcome.Code.success,
+                                   "Case not available in a version for "
+                                   + "SBML Level " + lv.getLevel()
+                                   + " Version " + lv.getVersion() + ".",
+                                   cmd, null);
+        }
+
+        File expectedFile = getResultFile(test);
+        if (deleteFirst && expectedFile != null && expectedFile.exists()
+            && !expectedFile.delete())
+        {
+            addErrorToCache(test, lv);
+            return outcomeWithInfo(RunOutcome.Code.ioError,
+                                   "Unable to delete output file '"
+                                   + expectedFile.getPath() + "' prior to "
+                                   + "invocation of wrapper. Aborted "
+                                   + "execution of wrapper for case "
+                                   + test.getId() + ".",
+                                   cmd, null);
+        }
+        if (deleteFirst && expectedFile != null)
+            getOutputIndex().update(expectedFile.getName());
+
+        if (config.isPersistentWorkers())
+            return runOnWorker(test, lv, testSuiteDir, milli, callback);
+
+        // The output of the wrapper goes to files, which are deleted when
+        // we're done unless the user wants to keep them.
+
+        OutputCapture capture;
+        try
+        {
+            File logDir = (config.isKeepOutputLogs()
+                           ? new File(config.getOutputPath()) : null);
+            capture = OutputCapture.forTest(test, logDir);
+        }
+        catch (IOException ex)
+        {
+            addErrorToCache(test, lv);
+            return outcomeWithInfo(RunOutcome.Code.ioError,
+                                   "Unable to create the files for the "
+                                   + "output of the wrapper",
+                                   cmd, null);
+        }
+        try
+        {
+            return runProcess(test, lv, cmd, capture, milli, callback);
+        }
+        finally
+        {
+            capture.dispose();
+        }
+    }
+
+
+    /**
+     * Runs the wrapper for the given test with the given command line,
+     * sending its output to the given capture, and waits for it to finish.
+     */
+    private RunOutcome runProcess(final TestCase test, LevelVersion lv,
+                                  String cmd, OutputCapture capture,
+                                  final int milli,
+                                  final CancelCallback callback)
+    {
+        Process process = null;
+        try
+        {
+            process = capture.redirect(new ProcessBuilder(commandWords(cmd)))
+                             .start();
+
+            if (!awaitExit(process, callback, milli))
+                return outcomeWithInfo(RunOutcome.Code.interrupted,
+                                       "Interrupted",
+                                       cmd, capture);
+
+            // Did the process exit abnormally?
+
+            if (process.exitValue() != 0)
+            {
+                // If this is a case that's unsupported by the tool, we
+                // don't call this a true error.
+                if (test.matches(config.getUnsupportedTags()))
+                    addUnsupportedToCache(test, lv);
+                else
+                    addErrorToCache(test, lv);
+
+                // We still return the error info, because that's separate
+                // from the interpretation of the result and we should still
+                // communicate this to the user.
+                return outcomeWithInfo(RunOutcome.Code.unknownError,
+                                       "The wrapper exited with an error",
+                                       cmd, capture);
+            }
+
+            // A wrapper that exited normally has written its result file,
+            // if it writes one at all; cases it doesn't support often have
+            // none.  Only wrappers configured with a grace period get time
+            // for the file to show up.
+
+            awaitResultFile(test, config.getResultGracePeriod());
+        }
+        catch (IOException ex)
+        {
+            addErrorToCache(test, lv);
+            return outcomeWithInfo(RunOutcome.Code.ioError,
+                                   "IO exception occurred when running the wrapper",
+                                   cmd, capture);
+        }
+        catch (SecurityException ex)
+        {
+            addErrorToCache(test, lv);
+            return outcomeWithInfo(RunOutcome.Code.securityError,
+                                   "Security exception occurred when attempting to run the wrapper",
+                                   cmd, capture);
+        }
+        catch (IllegalArgumentException ex)
+        {
+            addErrorToCache(test, lv);
+            return outcomeWithInfo(RunOutcome.Code.argumentError,
+                                   "Badly formed wrapper command line",
+                                   cmd, capture);
+        }
+        catch (InterruptedException ex)
+        {
+            addErrorToCache(test, lv);
+            return outcomeWithInfo(RunOutcome.Code.interrupted,
+                                   "The wrapper process was interrupted unexpectedly",
+                                   cmd, capture);
+        }
+        catch (Exception e)
+        {
+            addErrorToCache(test, lv);
+            return outcomeWithInfo(RunOutcome.Code.unknownError,
+                                   "An unexpected error upon running the wrapper",
+                                   cmd, capture);
+        }
+        finally
+        {
+            if (process != null)
+                process.destroy();
+        }
+
+        addResultToCache(test, lv);
+        return outcomeWithInfo(RunOutcome.Code.success,
+                               "Wrapper completed normally",
+                               cmd, capture);
+    }
+
+
+    /**
+     * Runs the given test on a persistent worker of this wrapper, starting
+     * one if none is idle, and waits for its answer.  A worker that doesn't
+     * answer within the configured timeout is stopped; the next case gets a
+     * new one.
+     */
+    private RunOutcome runOnWorker(final TestCase test, LevelVersion lv,
+                                   String testSuiteDir, final int milli,
+                                   final CancelCallback callback)
+    {
+        LevelVersion caseLv = (lv.isHighest()
+                               ? test.getHighestSupportedLevelVersion() : lv);
+        String command = config.getProgram() + " "
+            + config.getWorkerArguments(testSuiteDir);
+        String request = "RUN " + test.getId() + " " + caseLv.getLevel()
+            + " " + caseLv.getVersion() + " " + testSuiteDir + " "
+            + config.getOutputPath();
+        String cmd = command + "\n\nRequest sent to the wrapper:\n" + request;
+
+        File logDir = (config.isKeepOutputLogs()
+                       ? new File(config.getOutputPath()) : null);
+        int limit = (config.isConcurrencyAllowed() ? Integer.MAX_VALUE : 1);
+        int timeout = config.getWorkerTimeout();
+
+        WorkerPool.Worker worker = null;
+        Runnable onCancel = null;
+        long outputStart = 0;
+        long errorStart = 0;
+        try
+        {
+            worker = workers.acquire(command, logDir, limit);
+            outputStart = worker.getCapture().getOutputFile().length();
+            errorStart = worker.getCapture().getErrorFile().length();
+
+            if (callback instanceof CancelToken)
+            {
+                final WorkerPool.Worker busy = worker;
+                onCancel = new Runnable() {
+                    public void run()
+                    {
+                        busy.kill();
+                    }
+                };
+                ((CancelToken) callback).addListener(onCancel);
+            }
+            boolean polling = (onCancel == null && callback != null
+                               && milli >= 0);
+
+            worker.send(request);
+            long deadline = System.currentTimeMillis() + timeout;
+            while (true)
+            {
+                long wait = -1;
+                if (timeout > 0)
+                    wait = Math.max(0, deadline - System.currentTimeMillis());
+                if (polling)
+                    wait = (wait < 0 ? milli : Math.min(wait, milli));
+                String answer = worker.nextAnswer(wait);
+
+                if (callback != null && callback.cancellationRequested())
+                {
+                    worker.kill();
+                    return workerOutcome(RunOutcome.Code.interrupted,
+                                         "Interrupted", cmd, worker,
+                                         outputStart, errorStart);
+                }
+                if (answer == null)
+                {
+                    if (timeout <= 0 || System.currentTimeMillis() < deadline)
+                        continue;
+                    worker.kill();
+                    addErrorToCache(test, lv);
+                    return workerOutcome(RunOutcome.Code.unknownError,
+                                         "The wrapper did not finish the case "
+                                         + "within " + timeout + " ms",
+                                         cmd, worker, outputStart, errorStart);
+                }
+
+                String status = null;
+                if (answer != WorkerPool.Worker.END)
+                {
+                    // Answers for other cases are left over from requests
+                    // that were given up on.
+
+                    String[] words = answer.trim().split("\\s+");
+                    if (words.length < 2 || !words[1].equals(test.getId()))
+                        continue;
+                    status = (words.length > 2 ? words[2] : "");
+                    if (status.equals("0") || status.equalsIgnoreCase("OK"))
+                        break;
+                }
+
+                // As with an exit code, a case that's unsupported by the
+                // tool isn't a true error.
+                if (test.matches(config.getUnsupportedTags()))
+                    addUnsupportedToCache(test, lv);
+                else
+                    addErrorToCache(test, lv);
+                return workerOutcome(RunOutcome.Code.unknownError,
+                                     (status == null
+                                      ? "The wrapper exited in the middle of the case"
+                                      : "The wrapper reported status '"
+                                        + status + "'"),
+                                     cmd, worker, outputStart, errorStart);
+            }
+
+            // The outcome takes the output of the case from the logs of the
+            // worker, so it's made before the worker can get the next case.
+
+            awaitResultFile(test, config.getResultGracePeriod());
+            addResultToCache(test, lv);
+            return workerOutcome(RunOutcome.Code.success,
+                                 "Wrapper completed normally",
+                                 cmd, worker, outputStart, errorStart);
+        }
+        catch (IOException ex)
+        {
+            addErrorToCache(test, lv);
+            return workerOutcome(RunOutcome.Code.ioError,
+                                 "IO exception occurred when running the wrapper",
+                                 cmd, worker, outputStart, errorStart);
+        }
+        catch (SecurityException ex)
+        {
+            addErrorToCache(test, lv);
+            return workerOutcome(RunOutcome.Code.securityError,
+                                 "Security exception occurred when attempting to run the wrapper",
+                                 cmd, worker, outputStart, errorStart);
+        }
+        catch (IllegalArgumentException ex)
+        {
+            addErrorToCache(test, lv);
+            return workerOutcome(RunOutcome.Code.argumentError,
+                                 "Badly formed wrapper command line",
+                                 cmd, worker, outputStart, errorStart);
+        }
+        catch (InterruptedException ex)
+        {
+            addErrorToCache(test, lv);
+            return workerOutcome(RunOutcome.Code.interrupted,
+                                 "The wrapper process was interrupted unexpectedly",
+                                 cmd, worker, outputStart, errorStart);
+        }
+        catch (Exception e)
+        {
+            addErrorToCache(test, lv);
+            return workerOutcome(RunOutcome.Code.unknownError,
+                                 "An unexpected error upon running the wrapper",
+                                 cmd, worker, outputStart, errorStart);
+        }
+        finally
+        {
+            if (onCancel != null)
+                ((CancelToken) callback).removeListener(onCancel);
+            if (worker != null)
+                workers.release(worker);
+        }
+    }
+
+
+    /**
+     * Like outcomeWithInfo(), but with what the given worker wrote since
+     * the given positions in its logs.  It must be called before the worker
+     * is released, because the logs end where they are at this point.
+     */
+    private RunOutcome workerOutcome(RunOutcome.Code code, String msg,
+                                     String cmd, WorkerPool.Worker worker,
+                                     long outputStart, long errorStart)
+    {
+        if (worker == null)
+            return outcomeWithInfo(code, msg, cmd, "", "");
+        OutputCapture capture = worker.getCapture();
+        long outputEnd = capture.getOutputFile().length();
+        long errorEnd = capture.getErrorFile().length();
+        return outcomeWithInfo(code, msg, cmd,
+                               capture.getOutputBetween(outputStart, outputEnd),
+                               capture.getErrorsBetween(errorStart, errorEnd));
+    }
+
+
+    /**
+     * Receives the outcomes of the cases of a batch run one at a time, as
+     * the wrapper gets through them.
+     */
+    public interface BatchListener
+    {
+        /**
+         * Called in the thread that runs the batch once the outcome of the
+         * given test is known.
+         * 
+         * @param test
+         *            the test
+         * @param outcome
+         *            the outcome of running it
+         */
+        void caseDone(TestCase test, RunOutcome outcome);
+    }
+
+
+    /**
+     * The largest number of cases given to one invocation of a wrapper in
+     * batch mode.
+     */
+    public static final int MAX_BATCH_SIZE = 100;
+
+
+    /**
+     * Returns how many cases to give to each invocation of a wrapper in
+     * batch mode: few enough that every thread gets several batches, so
+     * progress shows and no thread is left with a long batch at the end,
+     * but at most MAX_BATCH_SIZE.
+     * 
+     * @param numCases
+     *            the number of cases to run
+     * @param numThreads
+     *            the number of batches run at the same time
+     * @return the number of cases per batch
+     */
+    public static int batchSizeFor(int numCases, int numThreads)
+    {
+        int numBatches = 4 * Math.max(1, numThreads);
+        int size = (numCases + numBatches - 1) / numBatches;
+        return Math.max(1, Math.min(MAX_BATCH_SIZE, size));
+    }
+
+
+    /**
+     * Runs the given tests.  A wrapper in batch mode is started once for
+     * every MAX_BATCH_SIZE of them, and again for the rest if it fails on
+     * one; any other wrapper is started once per test.
+     * 
+     * @param tests
+     *            the tests to run, in order
+     * @param lv
+     *            the SBML Level/Version of the test cases to use (null or
+     *            highest = the highest of each case)
+     * @param testSuiteDir
+     *            the test cases directory
+     * @param milli
+     *            milliseconds between asking the callback whether to
+     *            cancel, unless it's a CancelToken, which tells by itself
+     * @param callback
+     *            a cancellation callback allowing to interrupt the execution
+     * @param deleteFirst
+     *            whether to delete the result files of the tests first
+     * @param listener
+     *            told about each outcome as soon as it's known, or null
+     * @return the outcomes by test id; tests that didn't get to run because
+     *         of a cancellation have none
+     */
+    public SortedMap<String, RunOutcome> runBatch(List<TestCase> tests,
+                                                  LevelVersion lv,
+                                                  String testSuiteDir,
+                                                  int milli,
+                                                  CancelCallback callback,
+                                                  boolean deleteFirst,
+                                                  BatchListener listener)
+    {
+        SortedMap<String, RunOutcome> outcomes
+            = new TreeMap<String, RunOutcome>();
+
+        if (!config.isBatchMode())
+        {
+            for (TestCase test : tests)
+            {
+                if (callback != null && callback.cancellationRequested())
+                    break;
+                RunOutcome outcome = run(test, lv, testSuiteDir, milli,
+                                         callback, deleteFirst);
+                outcomes.put(test.getId(), outcome);
+                if (listener != null)
+                    listener.caseDone(test, outcome);
+            }
+            return outcomes;
+        }
+
+        if (lv == null)
+            lv = new LevelVersion();
+
+        // Cases that aren't available at this Level/Version, or whose old
+        // result file is in the way, aren't given to the wrapper.
+
+        Vector<TestCase> pending = new Vector<TestCase>();
+        for (TestCase test : tests)
+        {
+            long started = System.currentTimeMillis();
+            String cmd = config.getProgram() + " "
+                + config.getExpandedArguments(test, lv, testSuiteDir);
+
+            if (!test.supportsLevelVersion(lv))
+            {
+                addUnavailableToCache(test, lv);
+                finish(test, lv, started,
+                       outcomeWithInfo(RunOutcome.Code.success,
+                                       "Case not available in a version for "
+                                       + "SBML Level " + lv.getLevel()
+                                       + " Version " + lv.getVersion() + ".",
+                                       cmd, null),
+                       outcomes, listener);
+                continue;
+            }
+
+            File expectedFile = getResultFile(test);
+            if (deleteFirst && expectedFile != null && expectedFile.exists()
+                && !expectedFile.delete())
+            {
+                addErrorToCache(test, lv);
+                finish(test, lv, started,
+                       outcomeWithInfo(RunOutcome.Code.ioError,
+                                       "Unable to delete output file '"
+                                       + expectedFile.getPath() + "' prior to "
+                                       + "invocation of wrapper. Aborted "
+                                       + "execution of wrapper for case "
+                                       + test.getId() + ".",
+                                       cmd, null),
+                       outcomes, listener);
+                continue;
+            }
+            if (deleteFirst && expectedFile != null)
+                getOutputIndex().update(expectedFile.getName());
+            pending.add(test);
+        }
+
+        while (!pending.isEmpty())
+        {
+            if (callback != null && callback.cancellationRequested())
+                break;
+            List<TestCase> next
+                = pending.subList(0, Math.min(pending.size(), MAX_BATCH_SIZE));
+            BatchRun batch = new BatchRun(next, lv, outcomes, listener);
+            int numSettled = batch.run(testSuiteDir, milli, callback);
+            pending = new Vector<TestCase>(pending.subList(numSettled,
+                                                           pending.size()));
+        }
+        return outcomes;
+    }
+
+
+    /**
+     * Records the outcome of a test of a batch run and passes it on to the
+     * listener.
+     */
+    private void finish(TestCase test, LevelVersion lv, long started,
+                        RunOutcome outcome,
+                        SortedMap<String, RunOutcome> outcomes,
+                        BatchListener listener)
+    {
+        addToHistory(test, lv, outcome, started);
+        outcomes.put(test.getId(), outcome);
+        if (listener != null)
+            listener.caseDone(test, outcome);
+    }
+
+
+    /**
+     * Writes the list of cases for a wrapper in batch mode: a line with the
+     * case id, the SBML Level and the Version for each case.
+     */
+    private static File writeCaseList(List<TestCase> tests, LevelVersion lv)
+        throws IOException
+    {
+        File file = File.createTempFile("sbml-cases-", ".txt");
+        BufferedWriter writer = null;
+        try
+        {
+            writer = new BufferedWriter(new FileWriter(file));
+            for (TestCase test : tests)
+            {
+                LevelVersion caseLv = (lv.isHighest()
+                                       ? test.getHighestSupportedLevelVersion()
+                                       : lv);
+                writer.write(test.getId() + " " + caseLv.getLevel() + " "
+                             + caseLv.getVersion());
+                writer.newLine();
+            }
+            writer.close();
+            return file;
+        }
+        catch (IOException e)
+        {
+            if (writer != null)
+                writer.close();
+            file.delete();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Watches the output directory for new and changed files.
+     * 
+     * @return the watch service, or null if the directory can't be watched
+     */
+    private WatchService watchOutput()
+    {
+        WatchService watcher = null;
+        try
+        {
+            watcher = FileSystems.getDefault().newWatchService();
+            Paths.get(config.getOutputPath()).register(watcher,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+            return watcher;
+        }
+        catch (IOException e)
+        {
+            closeWatcher(watcher);
+            return null;
+        }
+    }
+
+
+    private static void closeWatcher(WatchService watcher)
+    {
+        if (watcher == null) return;
+        try
+        {
+            watcher.close();
+        }
+        catch (IOException e)
+        {
+            // Nothing we can do.
+        }
+    }
+
+
+    /**
+     * One invocation of a wrapper in batch mode and the cases of it that
+     * are settled so far.  The wrapper goes through its list in order, so
+     * once the result file of a case shows up, it's done with the cases
+     * before that one.
+     */
+    private class BatchRun
+    {
+        private final List<TestCase>                batch;
+        private final LevelVersion                  lv;
+        private final SortedMap<String, RunOutcome> outcomes;
+        private final BatchListener                 listener;
+        private final Map<String, Integer>          positions
+            = new HashMap<String, Integer>();
+        private final OutputIndex.Entry[]           oldFiles;
+        private final boolean[]                     written;
+        private String                              cmd = "";
+        private OutputCapture                       capture;
+        private int                                 numSettled;
+        private long                                started
+            = System.currentTimeMillis();
+
+
+        BatchRun(List<TestCase> batch, LevelVersion lv,
+                 SortedMap<String, RunOutcome> outcomes,
+                 BatchListener listener)
+        {
+            this.batch = batch;
+            this.lv = lv;
+            this.outcomes = outcomes;
+            this.listener = listener;
+            for (int i = 0; i < batch.size(); i++)
+                positions.put(batch.get(i).getId(), i);
+            this.oldFiles = new OutputIndex.Entry[batch.size()];
+            this.written = new boolean[batch.size()];
+        }
+
+
+        /**
+         * Runs the wrapper for the cases of the batch and waits for it to
+         * finish.
+         * 
+         * @return the number of cases settled, from the start of the batch;
+         *         the others are left for another invocation
+         */
+        int run(String testSuiteDir, int milli, CancelCallback callback)
+        {
+            File caseList = null;
+            WatchService watcher = null;
+            Process process = null;
+            try
+            {
+                caseList = writeCaseList(batch, lv);
+                cmd = config.getProgram() + " "
+                    + config.getExpandedArguments(batch.get(0), lv,
+                                                  testSuiteDir,
+                                                  caseList.getPath());
+                File logDir = (config.isKeepOutputLogs()
+                               ? new File(config.getOutputPath()) : null);
+                capture = OutputCapture.forBatch(batch, logDir);
+
+                // Watching starts before the wrapper does, so no result
+                // file is missed.
+
+                watcher = watchOutput();
+                for (int i = 0; i < batch.size(); i++)
+                    oldFiles[i] = getOutputIndex().getEntry(batch.get(i).getId());
+                ProcessBuilder builder = new ProcessBuilder(commandWords(cmd));
+                builder.redirectInput(caseList);
+                started = System.currentTimeMillis();
+                process = capture.redirect(builder).start();
+
+                if (!follow(process, watcher, milli, callback))
+                {
+                    settleRest(RunOutcome.Code.interrupted, "Interrupted",
+                               false);
+                    return numSettled;
+                }
+
+                getOutputIndex().refresh();
+                if (process.exitValue() == 0)
+                {
+                    awaitResultFile(batch.get(batch.size() - 1),
+                                    config.getResultGracePeriod());
+                    while (numSettled < batch.size())
+                        settleDone();
+                    return numSettled;
+                }
+
+                // The wrapper failed on the case after the last one it
+                // wrote a result file for.  The cases after the failed one
+                // are left for another invocation.  If it wrote them all,
+                // it failed after the last one, which still counts.
+
+                int failed = numSettled;
+                for (int i = numSettled; i < batch.size(); i++)
+                    if (isFresh(i))
+                        failed = i + 1;
+                if (failed == batch.size())
+                {
+                    while (numSettled < failed - 1)
+                        settleDone();
+                    settleDone("Wrapper completed the case, but exited with "
+                               + "status " + process.exitValue());
+                    return numSettled;
+                }
+                while (numSettled < failed)
+                    settleDone();
+
+                TestCase test = batch.get(numSettled);
+                if (test.matches(config.getUnsupportedTags()))
+                    addUnsupportedToCache(test, lv);
+                else
+                    addErrorToCache(test, lv);
+                settle(RunOutcome.Code.unknownError,
+                       "The wrapper exited with an error");
+            }
+            catch (IOException ex)
+            {
+                settleRest(RunOutcome.Code.ioError,
+                           "IO exception occurred when running the wrapper",
+                           true);
+            }
+            catch (SecurityException ex)
+            {
+                settleRest(RunOutcome.Code.securityError,
+                           "Security exception occurred when attempting to run the wrapper",
+                           true);
+            }
+            catch (IllegalArgumentException ex)
+            {
+                settleRest(RunOutcome.Code.argumentError,
+                           "Badly formed wrapper command line", true);
+            }
+            catch (InterruptedException ex)
+            {
+                settleRest(RunOutcome.Code.interrupted,
+                           "The wrapper process was interrupted unexpectedly",
+                           true);
+            }
+            catch (Exception e)
+            {
+                settleRest(RunOutcome.Code.unknownError,
+                           "An unexpected error upon running the wrapper",
+                           true);
+            }
+            finally
+            {
+                if (process != null)
+                    process.destroy();
+                closeWatcher(watcher);
+                if (capture != null)
+                    capture.dispose();
+                if (caseList != null)
+                    caseList.delete();
+            }
+            return numSettled;
+        }
+
+
+        /**
+         * Settles the cases whose result files show up while the wrapper
+         * runs, until it exits.
+         * 
+         * @return false if the run was cancelled
+         */
+        private boolean follow(final Process process,
+                               final WatchService watcher, int milli,
+                               CancelCallback callback)
+            throws InterruptedException, ExecutionException
+        {
+            if (watcher == null)
+                return awaitExit(process, callback, milli);
+
+            // Closing the watcher when the wrapper exits ends the loop
+            // below.
+
+            process.onExit().thenRun(new Runnable() {
+                public void run()
+                {
+                    closeWatcher(watcher);
+                }
+            });
+
+            Runnable onCancel = null;
+            if (callback instanceof CancelToken)
+            {
+                onCancel = new Runnable() {
+                    public void run()
+                    {
+                        process.destroy();
+                    }
+                };
+                ((CancelToken) callback).addListener(onCancel);
+            }
+            boolean polling = (onCancel == null && callback != null
+                               && milli >= 0);
+            try
+            {
+                while (true)
+                {
+                    WatchKey key;
+                    try
+                    {
+                        key = (polling
+                               ? watcher.poll(milli, TimeUnit.MILLISECONDS)
+                               : watcher.take());
+                    }
+                    catch (ClosedWatchServiceException e)
+                    {
+                        break;
+                    }
+                    if (key == null)
+                    {
+                        if (callback.cancellationRequested())
+                            process.destroy();
+                        continue;
+                    }
+
+                    // An overflow loses the names; the index is refreshed
+                    // once the wrapper has exited anyway.
+
+                    int latest = -1;
+                    for (WatchEvent<?> event : key.pollEvents())
+                    {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                            continue;
+                        String name = event.context().toString();
+                        getOutputIndex().update(name);
+                        for (String id : OutputIndex.idsIn(name))
+                        {
+                            Integer position = positions.get(id);
+                            if (position == null) continue;
+                            written[position] = true;
+                            if (position > latest)
+                                latest = position;
+                        }
+                    }
+                    key.reset();
+                    while (numSettled < latest)
+                        settleDone();
+                }
+                process.waitFor();
+            }
+            finally
+            {
+                if (onCancel != null)
+                    ((CancelToken) callback).removeListener(onCancel);
+            }
+            return callback == null || !callback.cancellationRequested();
+        }
+
+
+        /**
+         * Tells whether the case at the given position of the batch has a
+         * result file written by this run: one that showed up while the
+         * wrapper ran, or that is new or different from the one there was
+         * before.  Modification times alone won't do, since a file system
+         * may keep them in whole seconds.
+         */
+        private boolean isFresh(int position)
+        {
+            OutputIndex.Entry entry
+                = getOutputIndex().getEntry(batch.get(position).getId());
+            if (entry == null) return false;
+            if (written[position]) return true;
+            OutputIndex.Entry old = oldFiles[position];
+            return (old == null || !old.file.equals(entry.file)
+                    || old.size != entry.size
+                    || old.lastModified != entry.lastModified);
+        }
+
+
+        private void settle(RunOutcome.Code code, String msg)
+        {
+            TestCase test = batch.get(numSettled++);
+            finish(test, lv, started,
+                   outcomeWithInfo(code, msg, cmd, capture),
+                   outcomes, listener);
+            started = System.currentTimeMillis();
+        }
+
+
+        private void settleDone()
+        {
+            settleDone("Wrapper completed normally");
+        }
+
+
+        private void settleDone(String msg)
+        {
+            addResultToCache(batch.get(numSettled), lv);
+            settle(RunOutcome.Code.success, msg);
+        }
+
+
+        private void settleRest(RunOutcome.Code code, String msg,
+                                boolean asError)
+        {
+            while (numSettled < batch.size())
+            {
+                if (asError)
+                    addErrorToCache(batch.get(numSettled), lv);
+                settle(code, msg);
+            }
+        }
+    }
+
+
+    /**
+     * Records the result of running the given test in the history of this
+     * wrapper.
+     */
+    private void addToHistory(TestCase test, LevelVersion lv,
+                              RunOutcome outcome, long started)
+    {
+        RunHistory history = getHistory();
+        if (history == null) return;
+
+        ResultType type = null;
+        if (outcome.getCode() != RunOutcome.Code.interrupted)
+            type = getCachedResult(test.getId(), lv);
+        if (type == null) type = ResultType.Unknown;
+
+        // The result file was usually hashed when its result was computed
+        // a moment ago; the journal has the hash then.
+
+        long hash = 0;
+        File file = getResultFile(test);
+        try
+        {
+            if (file != null && file.isFile())
+            {
+                VerdictJournal journal = getVerdictJournal();
+                Long known = null;
+                if (journal != null)
+                    known = journal.getHash(test, lv,
+                        VerdictJournal.tagsKey(config.getUnsupportedTags()),
+                        file, file.length(), file.lastModified());
+                hash = (known != null ? known
+                        : VerdictJournal.contentHash(file));
+            }
+            history.add(test, lv, type, outcome.getCode(), started,
+                        System.currentTimeMillis() - started, hash);
+        }
+        catch (IOException e)
+        {
+            // Nevermind; the history just lacks this run of the case.
+        }
+    }
+
+
+    public RunOutcome outcomeWithInfo(RunOutcome.Code code, String msg,
+                                      String cmd, OutputCapture capture)
+    {
+        String outputText = "";
+        String errorText  = "";
+
+        if (capture != null)
+        {
+            outputText = capture.getOutput();
+            errorText = capture.getErrors();
+        }
+
+        return outcomeWithInfo(code, msg, cmd, outputText, errorText);
+    }
+
+
+    public RunOutcome outcomeWithInfo(RunOutcome.Code code, String msg,
+                                      String cmd, String outputText,
+                                      String errorText)
+    {
+        msg += ".\n\nCommand line executed:\n"
+            + cmd + "\n\n"
+            + "Output produced on standard output stream:\n"
+            + outputText + "\n\n"
+            + "Output produced on standard error stream:\n"
+            + errorText;
+
+        return new RunOutcome(code, msg);
+    }
+
+
+    public void addResultToCache(final TestCase test, LevelVersion lv)
+    {
+        resultCache.put(test.getId(), lv,
+                        new DelayedResult(getResultTypeInternal(test, lv), lv));
+    }
+
+
+    public void addErrorToCache(final TestCase test, LevelVersion lv)
+    {
+        resultCache.put(test.getId(), lv, new DelayedResult(ResultType.Error, lv));
+    }
+
+
+    public void addUnsupportedToCache(final TestCase test, LevelVersion lv)
+    {
+        resultCache.put(test.getId(), lv, new DelayedResult(ResultType.Unsupported, lv));
+    }
+
+
+    public void addUnavailableToCache(final TestCase test, LevelVersion lv)
+    {
+        resultCache.put(test.getId(), lv, new DelayedResult(ResultType.Unavailable, lv));
+    }
+
+
+    /**
+     * @return a string representation of this session
+     */
+    @Override
+    public String toString()
+    {
+        return "WrapperSession [name=" + config.getName() + "]";
+    }
+
+
+    /**
+     * Splits a command line into words at white space, like
+     * Runtime.exec(String) does, so that wrapper arguments keep their
+     * meaning.
+     * 
+     * @param cmd
+     *            the command line
+     * @return the program and its arguments
+     */
+    static String[] commandWords(String cmd)
+    {
+        StringTokenizer tokenizer = new StringTokenizer(cmd);
+        String[] words = new String[tokenizer.countTokens()];
+        for (int i = 0; i < words.length; i++)
+            words[i] = tokenizer.nextToken();
+        if (words.length == 0)
+            throw new IllegalArgumentException("Empty command");
+        return words;
+    }
+
+
+    /**
+     * Waits until the given process exits or the run is cancelled,
+     * whichever comes first.  The wait ends the moment the process exits.
+     * A CancelToken ends it the moment it is cancelled, and destroys the
+     * process right away; any other callback is asked every so many
+     * milliseconds.
+     * 
+     * @param process
+     *            the wrapper process
+     * @param callback
+     *            a cancellation callback, or null to wait for the process
+     *            regardless
+     * @param milli
+     *            milliseconds between asking a callback other than a
+     *            CancelToken (negative = don't ask)
+     * @return true if the process exited, false if the run was cancelled
+     */
+    private static boolean awaitExit(final Process process,
+                                     CancelCallback callback, int milli)
+        throws InterruptedException, ExecutionException
+    {
+        CompletableFuture<Process> exited = process.onExit();
+
+        if (callback instanceof CancelToken)
+        {
+            CancelToken token = (CancelToken) callback;
+            final CompletableFuture<Boolean> done
+                = new CompletableFuture<Boolean>();
+            exited.thenRun(new Runnable() {
+                public void run()
+                {
+                    done.complete(true);
+                }
+            });
+            Runnable onCancel = new Runnable() {
+                public void run()
+                {
+                    if (done.complete(false))
+                        process.destroy();
+                }
+            };
+            token.addListener(onCancel);
+            try
+            {
+                return done.get();
+            }
+            finally
+            {
+                token.removeListener(onCancel);
+            }
+        }
+
+        if (callback == null || milli < 0)
+        {
+            process.waitFor();
+            return true;
+        }
+
+        while (!callback.cancellationRequested())
+        {
+            try
+            {
+                exited.get(milli, TimeUnit.MILLISECONDS);
+                return true;
+            }
+            catch (TimeoutException e)
+            {
+                // Still running; ask the callback again.
+            }
+        }
+        return false;
+    }
+}
@@ -35,6 +35,7 @@ import java.io.PrintStream;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Vector;
 import org.sbml.testsuite.core.TestSuiteSettings;
 
 /**
@@ -45,10 +46,20 @@ public class TestSuiteArguments
     private boolean shouldRun;
     private boolean shouldListReleases;
     private boolean shouldDownload;
+    private boolean shouldSync;
+    private boolean shouldCompare;
+    private boolean shouldExport;
+    private boolean shouldImport;
+    private boolean shouldShowChanges;
+    private boolean shouldShowHistory;
+    private String  runRange;
+    private String  caseId;
+    private String  snapshotFile;
     private String  url;
     private Date    publishDate;
     private String  wrapperName;
     private String  testOrTestRange;
+    private Vector<String> wrapperNames;
 
 
     /**
@@ -81,6 +92,54 @@ public class TestSuiteArguments
                 testOrTestRange = second;
                 i += 2;
             }
+            else if ((current.equals("-s") || current.equals("--sync"))
+                && first != null)
+            {
+                shouldSync = true;
+                wrapperName = first;
+                i += 1;
+            }
+            else if ((current.equals("-m") || current.equals("--matrix"))
+                && first != null)
+            {
+                shouldCompare = true;
+                wrapperNames = new Vector<String>();
+                for (String name : first.split(","))    // Names may have spaces.
+                    if (name.trim().length() > 0)
+                        wrapperNames.add(name.trim());
+                i += 1;
+            }
+            else if ((current.equals("-e") || current.equals("--export"))
+                && first != null && second != null)
+            {
+                shouldExport = true;
+                wrapperName = first;
+                snapshotFile = second;
+                i += 2;
+            }
+            else if ((current.equals("-c") || current.equals("--changes"))
+                && first != null && second != null)
+            {
+                shouldShowChanges = true;
+                wrapperName = first;
+                runRange = second;
+                i += 2;
+            }
+            else if ((current.equals("-y") || current.equals("--history"))
+                && first != null && second != null)
+            {
+                shouldShowHistory = true;
+                wrapperName = first;
+                caseId = second;
+                i += 2;
+            }
+            else if ((current.equals("-i") || current.equals("--import"))
+                && first != null)
+            {
+                shouldImport = true;
+                snapshotFile = first;
+                i += 1;
+            }
             else if (current.equals("-l") || current.equals("--list-releases"))
             {
                 shouldListReleases = true;
@@ -116,12 +175,25 @@ public class TestSuiteArguments
     {
         return ((shouldDownload && url != null)
                 || shouldListReleases
-                || (shouldRun
+                || (shouldCompare && hasWrappers(wrapperNames))
+                || (shouldImport && snapshotFile != null)
+                || ((shouldRun || shouldSync || shouldExport
+                     || shouldShowChanges || shouldShowHistory)
                     && (wrapperName != null
                         && TestSuiteSettings.loadDefault().getWrapper(wrapperName) != null)));
     }
 
 
+    private static boolean hasWrappers(Vector<String> names)
+    {
+        if (names == null || names.isEmpty()) return false;
+        TestSuiteSettings settings = TestSuiteSettings.loadDefault();
+        for (String name : names)
+            if (settings.getWrapper(name) == null) return false;
+        return true;
+    }
+
+
     /**
      * prints the usage information.
      * 
@@ -155,6 +227,12 @@ public class TestSuiteArguments
         stream.println("Usage: ");
         stream.println();
         stream.println(" -r | --run <wrapperName> <test-range>");
+        stream.println(" -s | --sync <wrapperName>");
+        stream.println(" -m | --matrix <wrapperName>,<wrapperName>[,...]");
+        stream.println(" -e | --export <wrapperName> <snapshotFile>");
+        stream.println(" -i | --import <snapshotFile>");
+        stream.println(" -c | --changes <wrapperName> <run>[-<run>]");
+        stream.println(" -y | --history <wrapperName> <caseId>");
         stream.println(" -l | --list-releases");
         stream.println(" -d | --download-release url");
         stream.println();
@@ -185,6 +263,133 @@ public class TestSuiteArguments
     }
 
 
+    /**
+     * If true the results of the given wrapper should be recomputed.
+     * 
+     * @return the shouldSync
+     */
+    public boolean isShouldSync()
+    {
+        return shouldSync;
+    }
+
+
+    /**
+     * Specifies whether the results of the given wrapper should be
+     * recomputed
+     * 
+     * @param shouldSync
+     *            the shouldSync to set
+     */
+    public void setShouldSync(boolean shouldSync)
+    {
+        this.shouldSync = shouldSync;
+    }
+
+
+    /**
+     * If true the results of the given wrappers should be compared.
+     * 
+     * @return the shouldCompare
+     */
+    public boolean isShouldCompare()
+    {
+        return shouldCompare;
+    }
+
+
+    /**
+     * If true the results of the given wrapper should be written to a
+     * snapshot file.
+     * 
+     * @return the shouldExport
+     */
+    public boolean isShouldExport()
+    {
+        return shouldExport;
+    }
+
+
+    /**
+     * If true a snapshot file should be added as a view-only wrapper.
+     * 
+     * @return the shouldImport
+     */
+    public boolean isShouldImport()
+    {
+        return shouldImport;
+    }
+
+
+    /**
+     * If true the cases whose result changed between two runs of the given
+     * wrapper should be listed.
+     * 
+     * @return the shouldShowChanges
+     */
+    public boolean isShouldShowChanges()
+    {
+        return shouldShowChanges;
+    }
+
+
+    /**
+     * If true the past runs of a case by the given wrapper should be
+     * listed.
+     * 
+     * @return the shouldShowHistory
+     */
+    public boolean isShouldShowHistory()
+    {
+        return shouldShowHistory;
+    }
+
+
+    /**
+     * Gets either a single run number, or a range of two run numbers in
+     * the format: from-to.
+     * 
+     * @return the runRange
+     */
+    public String getRunRange()
+    {
+        return runRange;
+    }
+
+
+    /**
+     * Returns the case whose history should be listed
+     * 
+     * @return the caseId
+     */
+    public String getCaseId()
+    {
+        return caseId;
+    }
+
+
+    /**
+     * Returns the snapshot file to export to or import from
+     * 
+     * @return the snapshotFile
+     */
+    public String getSnapshotFile()
+    {
+        return snapshotFile;
+    }
+
+
+    /**
+     * Returns the wrappers to compare
+     * 
+     * @return the wrapperNames
+     */
+    public Vector<String> getWrapperNames()
+    {
+        return wrapperNames;
+    }
+
+
     /**
      * Returns the selected wrapper
      * 
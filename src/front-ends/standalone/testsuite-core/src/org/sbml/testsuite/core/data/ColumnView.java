@@ -0,0 +1,144 @@
+//
+// @file   ColumnView.java
+// @brief  Read-only view of one column of a result set
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+package org.sbml.testsuite.core.data;
+
+/**
+ * A read-only view of one column of data, or of one row when returned by
+ * getRowView().  Views returned by ResultSet share the storage of the
+ * result set, so obtaining one does not copy anything.
+ */
+public abstract class ColumnView
+{
+    /**
+     * @return the number of values in this column
+     */
+    public abstract int size();
+
+
+    /**
+     * Returns the value in the given row
+     *
+     * @param row
+     *            the row index
+     * @return the value
+     */
+    public abstract double get(int row);
+
+
+    /**
+     * @return a new array holding the values of this column
+     */
+    public double[] toArray()
+    {
+        int size = size();
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++)
+            values[i] = get(i);
+        return values;
+    }
+
+
+    /**
+     * Returns the values of this column as an array, without copying them
+     * if the view is backed by an array of exactly the right size.  The
+     * array must not be modified.  This is meant for APIs, such as the
+     * series of SWTChart, that take an array and copy it themselves.
+     *
+     * @return an array holding the values of this column
+     */
+    public double[] asArray()
+    {
+        return toArray();
+    }
+
+
+    /**
+     * Returns a view of the first 'size' values of the given array.
+     *
+     * @param values
+     *            the values
+     * @param size
+     *            the number of values to include
+     * @return the view
+     */
+    public static ColumnView of(final double[] values, final int size)
+    {
+        return new ArrayColumn(values, size);
+    }
+
+
+    /**
+     * A column backed by (a prefix of) an array.
+     */
+    private static final class ArrayColumn
+        extends ColumnView
+    {
+        private final double[] values;
+        private final int      size;
+
+
+        ArrayColumn(double[] values, int size)
+        {
+            this.values = values;
+            this.size = size;
+        }
+
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+
+        @Override
+        public double get(int row)
+        {
+            if (row >= size) throw new IndexOutOfBoundsException("row " + row);
+            return values[row];
+        }
+
+
+        @Override
+        public double[] toArray()
+        {
+            double[] copy = new double[size];
+            System.arraycopy(values, 0, copy, 0, size);
+            return copy;
+        }
+
+
+        @Override
+        public double[] asArray()
+        {
+            if (values.length == size) return values;
+            return toArray();
+        }
+    }
+}
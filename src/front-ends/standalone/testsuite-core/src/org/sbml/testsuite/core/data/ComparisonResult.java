@@ -0,0 +1,345 @@
+//
+// @file   ComparisonResult.java
+// @brief  Verdict and error statistics of a comparison
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+package org.sbml.testsuite.core.data;
+
+import java.util.Vector;
+
+/**
+ * The outcome of comparing a result set against the expected results, as
+ * computed by CompareResultSet.compare(): the verdict, plus per-column
+ * error statistics that are collected in the same pass over the data.
+ * 
+ * For every value, the normalized error is the absolute difference
+ * divided by the tolerance budget (absolute error + relative error *
+ * |expected value|), so a value fails exactly when its normalized error
+ * is greater than 1.  Infinity or NaN where the other side has a finite
+ * value counts as an infinite normalized error.
+ */
+public class ComparisonResult
+{
+    private ResultSet      expected;
+    private ResultSet      given;
+    private double         absoluteError;
+    private double         relativeError;
+    private boolean        requireAllColumns;
+    private Vector<String> columns;
+    private Vector<String> missingColumns;
+    private double[]       maxAbsoluteErrors;
+    private double[]       maxNormalizedErrors;
+    private int            numRows;
+    private int            firstFailingRow    = -1;
+    private String         firstFailingColumn = null;
+
+
+    /**
+     * Compares the given result sets.  Use CompareResultSet.compare().
+     */
+    ComparisonResult(ResultSet expected, ResultSet given,
+                     double absoluteError, double relativeError,
+                     boolean requireAllColumns)
+    {
+        this.expected = expected;
+        this.given = given;
+        this.absoluteError = absoluteError;
+        this.relativeError = relativeError;
+        this.requireAllColumns = requireAllColumns;
+        this.columns = new Vector<String>();
+        this.missingColumns = new Vector<String>();
+        this.maxAbsoluteErrors = new double[0];
+        this.maxNormalizedErrors = new double[0];
+
+        if (expected == null || given == null) return;
+
+        numRows = Math.min(expected.getNumRows(), given.getNumRows());
+
+        int[] aIndex = new int[expected.getHeaders().size()];
+        int[] bIndex = new int[aIndex.length];
+        for (String s : expected.getHeaders())
+        {
+            if (s.equalsIgnoreCase("time")) continue;
+
+            int a = expected.getIndex(s);
+            int b = given.getIndex(s);
+            if (a == -1 || b == -1)
+            {
+                missingColumns.add(s);
+                continue;
+            }
+            aIndex[columns.size()] = a;
+            bIndex[columns.size()] = b;
+            columns.add(s);
+        }
+
+        maxAbsoluteErrors = new double[columns.size()];
+        maxNormalizedErrors = new double[columns.size()];
+        if (numRows == 0) return;
+
+        for (int col = 0; col < columns.size(); col++)
+        {
+            ColumnView aCol = expected.getColumnView(aIndex[col]);
+            ColumnView bCol = given.getColumnView(bIndex[col]);
+            double maxAbsolute   = 0;
+            double maxNormalized = 0;
+
+            for (int row = 0; row < numRows; row++)
+            {
+                double expectedValue = aCol.get(row);
+                double givenValue    = bCol.get(row);
+                boolean ok = CompareResultSet.isWithinTolerance(expectedValue,
+                                                                givenValue,
+                                                                absoluteError,
+                                                                relativeError);
+                double difference = Math.abs(expectedValue - givenValue);
+                double budget = absoluteError + relativeError
+                    * Math.abs(expectedValue);
+                double normalized;
+                if (ok)
+                {
+                    // Matching infinities or NaNs count as no difference.
+                    if (Double.isNaN(difference) || Double.isInfinite(difference))
+                        difference = 0;
+                    normalized = (difference == 0 ? 0 : difference / budget);
+                }
+                else
+                {
+                    if (Double.isNaN(difference))
+                        difference = Double.POSITIVE_INFINITY;
+                    normalized = difference / budget;
+                    if (Double.isNaN(normalized) || normalized <= 1)
+                        normalized = Double.POSITIVE_INFINITY;
+                    if (firstFailingRow == -1 || row < firstFailingRow)
+                    {
+                        firstFailingRow = row;
+                        firstFailingColumn = columns.get(col);
+                    }
+                }
+
+                if (difference > maxAbsolute) maxAbsolute = difference;
+                if (normalized > maxNormalized) maxNormalized = normalized;
+            }
+
+            maxAbsoluteErrors[col] = maxAbsolute;
+            maxNormalizedErrors[col] = maxNormalized;
+        }
+    }
+
+
+    /**
+     * @return true if all values are within tolerance and, if required,
+     *         all expected columns are present; the same verdict as
+     *         CompareResultSet.compareUsingTestSuite()
+     */
+    public boolean isMatch()
+    {
+        return expected != null && given != null && firstFailingRow == -1
+            && !isMissingRows()
+            && (missingColumns.isEmpty() || !requireAllColumns);
+    }
+
+
+    /**
+     * @return true if the given results have no data rows although the
+     *         expected ones do, as when a simulator fails right after
+     *         writing the header
+     */
+    public boolean isMissingRows()
+    {
+        return expected != null && given != null
+            && given.getNumRows() == 0 && expected.getNumRows() > 0;
+    }
+
+
+    /**
+     * @return the expected results
+     */
+    public ResultSet getExpected()
+    {
+        return expected;
+    }
+
+
+    /**
+     * @return the results that were compared against the expected results
+     */
+    public ResultSet getGiven()
+    {
+        return given;
+    }
+
+
+    /**
+     * @return the absolute error used
+     */
+    public double getAbsoluteError()
+    {
+        return absoluteError;
+    }
+
+
+    /**
+     * @return the relative error used
+     */
+    public double getRelativeError()
+    {
+        return relativeError;
+    }
+
+
+    /**
+     * @return the names of the columns that were compared, in the order of
+     *         the expected results
+     */
+    public Vector<String> getColumns()
+    {
+        return columns;
+    }
+
+
+    /**
+     * @return the names of expected columns that the given results lack
+     */
+    public Vector<String> getMissingColumns()
+    {
+        return missingColumns;
+    }
+
+
+    /**
+     * @return the number of rows that were compared
+     */
+    public int getNumRows()
+    {
+        return numRows;
+    }
+
+
+    /**
+     * Returns the largest absolute difference in the given column.
+     * 
+     * @param index
+     *            the index in getColumns()
+     * @return the largest absolute difference
+     */
+    public double getMaxAbsoluteError(int index)
+    {
+        return maxAbsoluteErrors[index];
+    }
+
+
+    /**
+     * Returns the largest normalized error in the given column.
+     * 
+     * @param index
+     *            the index in getColumns()
+     * @return the largest normalized error (greater than 1 means failure)
+     */
+    public double getMaxNormalizedError(int index)
+    {
+        return maxNormalizedErrors[index];
+    }
+
+
+    /**
+     * @return the index in getColumns() of the column with the largest
+     *         normalized error, or -1 if no columns were compared
+     */
+    public int getWorstColumn()
+    {
+        int worst = -1;
+        for (int i = 0; i < maxNormalizedErrors.length; i++)
+            if (worst == -1 || maxNormalizedErrors[i] > maxNormalizedErrors[worst])
+                worst = i;
+        return worst;
+    }
+
+
+    /**
+     * @return the largest normalized error over all columns
+     */
+    public double getMaxNormalizedError()
+    {
+        int worst = getWorstColumn();
+        return (worst == -1 ? 0 : maxNormalizedErrors[worst]);
+    }
+
+
+    /**
+     * @return the first row with a value out of tolerance, or -1 if there
+     *         is none
+     */
+    public int getFirstFailingRow()
+    {
+        return firstFailingRow;
+    }
+
+
+    /**
+     * @return the (first) column with a value out of tolerance in
+     *         getFirstFailingRow(), or null if there is none
+     */
+    public String getFirstFailingColumn()
+    {
+        return firstFailingColumn;
+    }
+
+
+    /**
+     * @return a short, human-readable summary of the comparison, e.g., for
+     *         a tooltip
+     */
+    public String getSummary()
+    {
+        if (expected == null || given == null)
+            return "No results to compare.";
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(isMatch() ? "Within tolerance" : "Not within tolerance");
+        builder.append(" (absolute error " + absoluteError
+                       + ", relative error " + relativeError + ").\n");
+        if (!missingColumns.isEmpty())
+        {
+            builder.append("Missing columns:");
+            for (String column : missingColumns)
+                builder.append(" " + column);
+            builder.append("\n");
+        }
+        if (isMissingRows())
+            builder.append("The results have no data rows.\n");
+        int worst = getWorstColumn();
+        if (worst != -1 && !isMissingRows())
+            builder.append("Largest error: " + maxAbsoluteErrors[worst]
+                           + " in " + columns.get(worst) + ", "
+                           + String.format("%.3g", maxNormalizedErrors[worst])
+                           + " times the tolerance.\n");
+        if (firstFailingRow != -1)
+            builder.append("First failure: row " + (firstFailingRow + 1)
+                           + ", column " + firstFailingColumn + ".\n");
+        return builder.toString();
+    }
+}
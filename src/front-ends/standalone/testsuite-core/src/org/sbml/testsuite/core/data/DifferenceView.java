@@ -0,0 +1,252 @@
+//
+// @file   DifferenceView.java
+// @brief  Lazy view of the differences between two result sets
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+package org.sbml.testsuite.core.data;
+
+import java.util.Vector;
+
+/**
+ * A read-only view of the absolute differences between two result sets.
+ * Nothing is copied; each difference is computed from the two result sets
+ * when it is asked for.
+ * 
+ * The view has a column for each column of the first result set that the
+ * second one has too, matched by name.  The time column is not a
+ * difference: it is taken from the first result set, so that the view
+ * can be plotted against time.  The view can be limited to a subset of
+ * the rows, e.g., the single row of a steady-state result.
+ */
+public class DifferenceView
+    implements ResultTable
+{
+    private ResultSet      a;
+    private ResultSet      b;
+    private Vector<String> headers;
+    private int[]          aIndex;
+    private int[]          bIndex;        // -1 for the time column
+    private int[]          rows;          // null for all rows
+    private int            numRows;
+    private int            timeColumn = -1;
+
+
+    /**
+     * Returns a view of the differences between the given result sets, for
+     * all of the rows they both have.
+     * 
+     * @param a
+     *            result 1
+     * @param b
+     *            result 2
+     * @return the view, or null if either result set is null
+     */
+    public static DifferenceView of(ResultSet a, ResultSet b)
+    {
+        if (a == null || b == null) return null;
+        return new DifferenceView(a, b, null,
+                                  Math.min(a.getNumRows(), b.getNumRows()));
+    }
+
+
+    /**
+     * Returns a view of the differences between the given result sets, for
+     * the given rows only.  Rows that either result set lacks are left out.
+     * 
+     * @param a
+     *            result 1
+     * @param b
+     *            result 2
+     * @param rows
+     *            the indexes of the rows to include, in the order wanted
+     * @return the view, or null if either result set is null
+     */
+    public static DifferenceView of(ResultSet a, ResultSet b, int[] rows)
+    {
+        if (a == null || b == null) return null;
+        int limit = Math.min(a.getNumRows(), b.getNumRows());
+        int[] subset = new int[rows.length];
+        int count = 0;
+        for (int row : rows)
+            if (row >= 0 && row < limit)
+                subset[count++] = row;
+        return new DifferenceView(a, b, subset, count);
+    }
+
+
+    private DifferenceView(ResultSet a, ResultSet b, int[] rows, int numRows)
+    {
+        this.a = a;
+        this.b = b;
+        this.rows = rows;
+        this.numRows = numRows;
+
+        Vector<String> aHeaders = a.getHeaders();
+        headers = new Vector<String>();
+        aIndex = new int[aHeaders.size()];
+        bIndex = new int[aHeaders.size()];
+        if (numRows == 0) return;
+
+        for (int i = 0; i < aHeaders.size() && i < a.getNumColumns(); i++)
+        {
+            String header = aHeaders.get(i);
+            int index = -1;
+            if (header.equalsIgnoreCase("time"))
+            {
+                if (timeColumn != -1) continue;
+                timeColumn = headers.size();
+            }
+            else
+            {
+                index = b.getIndex(header);
+                if (index == -1 || index >= b.getNumColumns()) continue;
+            }
+
+            aIndex[headers.size()] = i;
+            bIndex[headers.size()] = index;
+            headers.add(header);
+        }
+    }
+
+
+    /**
+     * Returns the value in the given row and column of this view.
+     * 
+     * @param row
+     *            the row index
+     * @param column
+     *            the column index
+     * @return the absolute difference, or the time
+     */
+    public double get(int row, int column)
+    {
+        if (row < 0 || row >= numRows)
+            throw new IndexOutOfBoundsException("row " + row);
+        if (column < 0 || column >= headers.size())
+            throw new IndexOutOfBoundsException("column " + column);
+
+        int source = (rows == null ? row : rows[row]);
+        double value = a.getColumnView(aIndex[column]).get(source);
+        if (bIndex[column] == -1)
+            return value;
+        return Math.abs(value - b.getColumnView(bIndex[column]).get(source));
+    }
+
+
+    public Vector<String> getHeaders()
+    {
+        return headers;
+    }
+
+
+    public int getNumColumns()
+    {
+        return headers.size();
+    }
+
+
+    public int getNumRows()
+    {
+        return numRows;
+    }
+
+
+    public ColumnView getColumnView(final int index)
+    {
+        if (index < 0 || index >= headers.size()) return null;
+
+        // Fetch the underlying columns once rather than per value.
+
+        final ColumnView aCol = a.getColumnView(aIndex[index]);
+        final ColumnView bCol = (bIndex[index] == -1 ? null
+                                 : b.getColumnView(bIndex[index]));
+        return new ColumnView() {
+            @Override
+            public int size()
+            {
+                return numRows;
+            }
+
+
+            @Override
+            public double get(int row)
+            {
+                if (row < 0 || row >= numRows)
+                    throw new IndexOutOfBoundsException("row " + row);
+                int source = (rows == null ? row : rows[row]);
+                if (bCol == null) return aCol.get(source);
+                return Math.abs(aCol.get(source) - bCol.get(source));
+            }
+        };
+    }
+
+
+    public ColumnView getRowView(final int row)
+    {
+        if (row < 0 || row >= numRows) return null;
+        return new ColumnView() {
+            @Override
+            public int size()
+            {
+                return headers.size();
+            }
+
+
+            @Override
+            public double get(int column)
+            {
+                return DifferenceView.this.get(row, column);
+            }
+        };
+    }
+
+
+    public ColumnView getTimeColumnView()
+    {
+        return getColumnView(timeColumn);
+    }
+
+
+    /**
+     * Checks the differences for NaN and infinity values.  Unlike for a
+     * ResultSet, this is not known in advance and takes a pass over the
+     * data.
+     */
+    public boolean hasInfinityOrNaN()
+    {
+        for (int col = 0; col < headers.size(); col++)
+        {
+            ColumnView column = getColumnView(col);
+            for (int row = 0; row < numRows; row++)
+            {
+                double value = column.get(row);
+                if (Double.isNaN(value) || Double.isInfinite(value))
+                    return true;
+            }
+        }
+        return false;
+    }
+}
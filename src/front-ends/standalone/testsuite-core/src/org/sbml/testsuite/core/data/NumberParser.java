@@ -0,0 +1,453 @@
+//
+// @file   NumberParser.java
+// @brief  Converts numbers in result files without exceptions
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+package org.sbml.testsuite.core.data;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts the text of a single value in a result file to a double.  The
+ * text can be taken straight from the bytes of a file or from a string.
+ * 
+ * Numbers are accepted in the same notation as Double.parseDouble()
+ * accepts, and converted with the same (correct) rounding.  In addition,
+ * the spellings of infinity and NaN produced by various platforms are
+ * recognized: INF, 1.#INF, -INF, -1.#INF, -1.#IND and anything containing
+ * NaN, all regardless of case.  Instead of throwing an exception, the
+ * parser reports malformed input through its status, so that a file full
+ * of bad values costs no more to read than a file full of good ones.
+ * 
+ * A parser keeps the result of the last conversion, so an instance must
+ * not be shared between threads.
+ */
+public class NumberParser
+{
+    /**
+     * Possible results of a conversion.
+     */
+    public enum Status
+    {
+        /** A number in decimal, scientific or hexadecimal notation. */
+        Number,
+
+        /** One of the special spellings of infinity or NaN. */
+        Special,
+
+        /** Nothing but whitespace. */
+        Empty,
+
+        /** Anything else. */
+        Malformed
+    }
+
+
+    /**
+     * Exact powers of ten, used for the fast path of conversion.
+     */
+    private static final double[] POWERS_OF_TEN = {
+        1e0,  1e1,  1e2,  1e3,  1e4,  1e5,  1e6,  1e7,  1e8,  1e9,  1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21,
+        1e22
+    };
+
+    /**
+     * The number of significant digits that fit into a long for sure.
+     */
+    private static final int      MAX_DIGITS = 18;
+
+    private ByteBuffer   bytes;
+    private CharSequence chars;
+    private Status       status = Status.Empty;
+    private double       value;
+
+
+    /**
+     * Converts the given range of bytes, which are taken to be ASCII.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param start
+     *            start of the value
+     * @param end
+     *            end of the value (exclusive)
+     * @return the status of the conversion
+     */
+    public Status parse(ByteBuffer buffer, int start, int end)
+    {
+        bytes = buffer;
+        chars = null;
+        return parse(start, end);
+    }
+
+
+    /**
+     * Converts the given range of characters.
+     * 
+     * @param text
+     *            the text
+     * @param start
+     *            start of the value
+     * @param end
+     *            end of the value (exclusive)
+     * @return the status of the conversion
+     */
+    public Status parse(CharSequence text, int start, int end)
+    {
+        bytes = null;
+        chars = text;
+        return parse(start, end);
+    }
+
+
+    /**
+     * Converts the given text.
+     * 
+     * @param text
+     *            the text
+     * @return the status of the conversion
+     */
+    public Status parse(CharSequence text)
+    {
+        return parse(text, 0, text.length());
+    }
+
+
+    /**
+     * @return the status of the last conversion
+     */
+    public Status getStatus()
+    {
+        return status;
+    }
+
+
+    /**
+     * @return the value of the last conversion, or 0 if it was Empty or
+     *         Malformed
+     */
+    public double getValue()
+    {
+        return value;
+    }
+
+
+    /**
+     * @return true if the last conversion produced a value
+     */
+    public boolean hasValue()
+    {
+        return status == Status.Number || status == Status.Special;
+    }
+
+
+    /**
+     * Converts the given range of bytes, returning the default value if it
+     * is empty or malformed.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param start
+     *            start of the value
+     * @param end
+     *            end of the value (exclusive)
+     * @param defaultValue
+     *            a default value
+     * @return the double value or default
+     */
+    public double toDouble(ByteBuffer buffer, int start, int end,
+                           double defaultValue)
+    {
+        parse(buffer, start, end);
+        return hasValue() ? value : defaultValue;
+    }
+
+
+    /**
+     * Converts the given text, returning the default value if it is empty
+     * or malformed.
+     * 
+     * @param text
+     *            the text
+     * @param defaultValue
+     *            a default value
+     * @return the double value or default
+     */
+    public double toDouble(CharSequence text, double defaultValue)
+    {
+        parse(text);
+        return hasValue() ? value : defaultValue;
+    }
+
+
+    /**
+     * Does the actual work for the parse() methods.
+     */
+    private Status parse(int start, int end)
+    {
+        value = 0.0;
+
+        while (start < end && at(start) <= ' ')
+            start++;
+        while (end > start && at(end - 1) <= ' ')
+            end--;
+        if (start == end)
+            return status = Status.Empty;
+
+        if (isSpecial(start, end))
+            return status = Status.Special;
+
+        int i = start;
+        boolean negative = false;
+        char c = at(i);
+        if (c == '-' || c == '+')
+        {
+            negative = (c == '-');
+            i++;
+        }
+
+        if (i + 2 < end && at(i) == '0' && (at(i + 1) == 'x' || at(i + 1) == 'X'))
+            return convertHex(start, i + 2, end);
+        if (matches(i, end, "Infinity", false))
+        {
+            value = (negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+            return status = Status.Number;
+        }
+
+        // [+-](digits[.digits*]|.digits)[(e|E)[+-]digits][fFdD]
+        // While checking the syntax, we collect up to MAX_DIGITS significant
+        // digits; if there are no more than that and the exponent is small
+        // enough, we can convert the number exactly ourselves.
+
+        long mantissa    = 0;
+        int  significant = 0;
+        int  exponent    = 0;
+        int  digits      = 0;
+        boolean exact    = true;
+
+        for (; i < end && (c = at(i)) >= '0' && c <= '9'; i++, digits++)
+        {
+            if (significant < MAX_DIGITS)
+            {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) significant++;
+            }
+            else
+                exact = false;
+        }
+        if (i < end && at(i) == '.')
+        {
+            for (i++; i < end && (c = at(i)) >= '0' && c <= '9'; i++, digits++)
+            {
+                if (significant < MAX_DIGITS)
+                {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) significant++;
+                    exponent--;
+                }
+                else
+                    exact = false;
+            }
+        }
+        if (digits == 0)
+            return malformed();
+
+        if (i < end && (at(i) == 'e' || at(i) == 'E'))
+        {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (at(i) == '-' || at(i) == '+'))
+                negativeExponent = (at(i++) == '-');
+            int count = 0;
+            int power = 0;
+            for (; i < end && (c = at(i)) >= '0' && c <= '9'; i++, count++)
+                if (power < 100000)
+                    power = power * 10 + (c - '0');
+            if (count == 0)
+                return malformed();
+            if (power >= 100000)
+                exact = false;
+            exponent += (negativeExponent ? -power : power);
+        }
+        if (i < end && isTypeSuffix(at(i)))
+            i++;
+        if (i != end)
+            return malformed();
+
+        if (exact)
+        {
+            if (mantissa == 0)
+                value = 0.0;
+            else if (mantissa > (1L << 53) || exponent < -22 || exponent > 22)
+                value = Double.NaN;     // Can't be done exactly here.
+            else if (exponent < 0)
+                value = mantissa / POWERS_OF_TEN[-exponent];
+            else
+                value = mantissa * POWERS_OF_TEN[exponent];
+
+            if (!Double.isNaN(value))
+            {
+                if (negative) value = -value;
+                return status = Status.Number;
+            }
+        }
+
+        // Anything the fast path can't do exactly.  The syntax has been
+        // checked, so this cannot throw.
+
+        value = Double.parseDouble(toString(start, end));
+        return status = Status.Number;
+    }
+
+
+    /**
+     * Checks the syntax of a hexadecimal number, 0x[hexdigits][.hexdigits]
+     * followed by a mandatory binary exponent, and converts it.  Such
+     * numbers are rare enough that the conversion itself is left to
+     * Double.parseDouble().
+     */
+    private Status convertHex(int start, int i, int end)
+    {
+        int digits = 0;
+        for (; i < end && isHexDigit(at(i)); i++)
+            digits++;
+        if (i < end && at(i) == '.')
+            for (i++; i < end && isHexDigit(at(i)); i++)
+                digits++;
+        if (digits == 0 || i == end || (at(i) != 'p' && at(i) != 'P'))
+            return malformed();
+
+        i++;
+        if (i < end && (at(i) == '-' || at(i) == '+'))
+            i++;
+        int count = 0;
+        for (; i < end && at(i) >= '0' && at(i) <= '9'; i++)
+            count++;
+        if (count == 0)
+            return malformed();
+        if (i < end && isTypeSuffix(at(i)))
+            i++;
+        if (i != end)
+            return malformed();
+
+        value = Double.parseDouble(toString(start, end));
+        return status = Status.Number;
+    }
+
+
+    /**
+     * Checks for the special spellings of infinity and NaN, and sets the
+     * value accordingly.
+     */
+    private boolean isSpecial(int start, int end)
+    {
+        if (matches(start, end, "INF", true)
+            || matches(start, end, "1.#INF", true))
+            value = Double.POSITIVE_INFINITY;
+        else if (matches(start, end, "-INF", true)
+                 || matches(start, end, "-1.#INF", true))
+            value = Double.NEGATIVE_INFINITY;
+        else if (matches(start, end, "-1.#IND", true)
+                 || containsNaN(start, end))
+            value = Double.NaN;
+        else
+            return false;
+        return true;
+    }
+
+
+    private Status malformed()
+    {
+        value = 0.0;
+        return status = Status.Malformed;
+    }
+
+
+    /**
+     * Returns the character at the given position.
+     */
+    private char at(int i)
+    {
+        if (bytes != null)
+            return (char) (bytes.get(i) & 0xff);
+        else
+            return chars.charAt(i);
+    }
+
+
+    /**
+     * Returns true if the given range equals 'text'.  If 'ignoreCase' is
+     * true, the text must be given in upper case.
+     */
+    private boolean matches(int start, int end, String text, boolean ignoreCase)
+    {
+        if (end - start != text.length()) return false;
+        for (int i = start; i < end; i++)
+        {
+            char c = at(i);
+            if (ignoreCase) c = Character.toUpperCase(c);
+            if (c != text.charAt(i - start)) return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns true if the given range contains "NaN" in any capitalization.
+     */
+    private boolean containsNaN(int start, int end)
+    {
+        for (int i = start; i + 3 <= end; i++)
+            if (matches(i, i + 3, "NAN", true)) return true;
+        return false;
+    }
+
+
+    private static boolean isHexDigit(char c)
+    {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f')
+            || (c >= 'A' && c <= 'F');
+    }
+
+
+    private static boolean isTypeSuffix(char c)
+    {
+        return c == 'f' || c == 'F' || c == 'd' || c == 'D';
+    }
+
+
+    private String toString(int start, int end)
+    {
+        if (chars != null)
+            return chars.subSequence(start, end).toString();
+
+        char[] text = new char[end - start];
+        for (int i = start; i < end; i++)
+            text[i - start] = at(i);
+        return new String(text);
+    }
+}
@@ -33,19 +33,43 @@ package org.sbml.testsuite.core.data;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Locale;
 import java.util.Vector;
 
 /**
- * Class holding CSV data
+ * Class holding CSV data.
+ * 
+ * The data are stored column by column (one array per column), so that
+ * columns can be handed out as views without copying.  The row-major
+ * array returned by getData() is built on demand.
  */
 public class ResultSet
+    implements ResultTable
 {
     private Vector<String> headers;
-    private double[][]     data;
+    private volatile HashMap<String, Integer> headerIndex;
+    private double[][]     columns;
+    private int            numRows;
+    private volatile double[][] data;
     private boolean        hasInfinityOrNaN = false;
     private boolean        parseable = true;
 
+    /**
+     * Files at least this large are memory-mapped; smaller ones are read
+     * into the heap with a single bulk read.  Result files are usually
+     * small, and mapping them is both slower and (on Windows) keeps the
+     * file locked until the mapping is garbage collected, which would get
+     * in the way of deleting old results before rerunning a wrapper.
+     */
+    private static final int       MAPPING_THRESHOLD = 256 * 1024;
+
 
 
     /**
@@ -66,7 +90,8 @@ public class ResultSet
     public ResultSet(File file)
     {
         this();
-        parseFile(file);
+        if (!parseBytes(file))
+            parseFile(file);
     }
 
 
@@ -81,7 +106,33 @@ public class ResultSet
     public ResultSet(Vector<String> headers, double[][] data)
     {
         this.headers = headers;
-        this.data = data;
+        this.headerIndex = indexHeaders(headers);
+        setData(data);
+    }
+
+
+    /**
+     * Creates a new result set with given headers and data stored by
+     * column.  The arrays are used as they are, not copied.
+     * 
+     * @param headers
+     *            the headers
+     * @param columns
+     *            the data, one array per column
+     * @param numRows
+     *            the number of rows, which must not be larger than the
+     *            length of any of the column arrays
+     * @return the result set
+     */
+    public static ResultSet fromColumns(Vector<String> headers,
+                                        double[][] columns, int numRows)
+    {
+        ResultSet result = new ResultSet();
+        result.headers = headers;
+        result.headerIndex = indexHeaders(headers);
+        result.columns = columns;
+        result.numRows = numRows;
+        return result;
     }
 
 
@@ -119,79 +170,52 @@ public class ResultSet
 
 
     /**
-     * Computes a result set with absolute differences between two results
-     * 
-     * @param a
-     *            result 1
-     * @param b
-     *            result 2
-     * @return resultset of absolute differences
-     */
-    public static ResultSet diff(ResultSet a, ResultSet b)
-    {
-        if (a == null || b == null) return null;
-        int numRows = Math.min(a.getNumRows(), b.getNumRows());
-        int numCols = Math.min(a.getNumColumns(), b.getNumColumns());
-
-        double[][] temp = new double[numRows][numCols];
-
-        for (int i = 0; i < numRows; i++)
-        {
-            temp[i][0] = a.getData()[i][0];
-            for (int j = 1; j < numCols; j++)
-            {
-                temp[i][j] = Math.abs(a.getData()[i][j] - b.getData()[i][j]);
-            }
-        }
-
-        Vector<String> heads = (a.getHeaders().size() > b.getHeaders().size() ? b.getHeaders() : a.getHeaders());
-        return new ResultSet(heads, temp);
-    }
-
-
-    /**
-     * Computes a result set with absolute differences between the values
-     * of a single row.
+     * Creates a new result set for the given file.  The file is read as raw
+     * bytes (memory-mapped if it is large) and tokenized directly into the
+     * data arrays.  If that is not possible, the file is read line by line
+     * instead.
      * 
-     * @param a
-     *            result 1
-     * @param b
-     *            result 2
-     * @return resultset of absolute differences
+     * @param filename
+     *            the CSV file
+     * @return the result set
      */
-    public static ResultSet diffRow(ResultSet a, ResultSet b, int row)
+    public static ResultSet fromFile(File file)
     {
-        if (a == null || b == null) return null;
-        if (row < 0 || row > a.getNumRows() || row > b.getNumRows()) return null;
-
-        double[][] aData = a.getData();
-        double[][] bData = b.getData();
-        int numCols      = Math.min(a.getNumColumns(), b.getNumColumns());
-        double[][] temp  = new double[1][numCols];
-
-        for (int j = 0; j < numCols; j++)
-            temp[row][j] = Math.abs(aData[row][j] - bData[row][j]);
-
-        Vector<String> heads = b.getHeaders();
-        if (a.getHeaders().size() <= b.getHeaders().size())
-            heads = a.getHeaders();
-
-        return new ResultSet(heads, temp);
+        if (file == null || !file.exists()) // No such file.
+            return null;
+        return new ResultSet(file);
     }
 
 
     /**
-     * Creates a new result set for the given file
+     * Creates a new result set for the given file, keeping a binary copy
+     * of it in the given cache directory.  If the copy is up to date with
+     * the file (same path, size and modification time), it is loaded
+     * instead of parsing the file.  This is meant for files that rarely
+     * change, such as the expected results of the test cases.
      * 
-     * @param filename
+     * @param file
      *            the CSV file
+     * @param cacheDir
+     *            the directory for binary copies, or null to not use one
      * @return the result set
      */
-    public static ResultSet fromFile(File file)
+    public static ResultSet fromFile(File file, File cacheDir)
     {
-        if (file == null || !file.exists()) // No such file.
-            return null;
-        return new ResultSet(file);
+        if (cacheDir == null || file == null || !file.isFile())
+            return fromFile(file);
+
+        File sidecar = ResultSetSidecar.locate(file, cacheDir);
+        ResultSet result = ResultSetSidecar.read(sidecar, file);
+        if (result != null)
+            return result;
+
+        long size = file.length();
+        long lastModified = file.lastModified();
+        result = new ResultSet(file);
+        if (result.parseable())
+            ResultSetSidecar.write(sidecar, file, size, lastModified, result);
+        return result;
     }
 
 
@@ -219,32 +243,13 @@ public class ResultSet
      */
     private static double saveConvert(String string, double defaultValue)
     {
-        try
-        {
-            String text = string.trim().toUpperCase();
-
-            if (text.equals("INF") || text.equals("1.#INF"))
-                return Double.POSITIVE_INFINITY;
-            if (text.equals("-INF") || text.equals("-1.#INF"))
-                return Double.NEGATIVE_INFINITY;
-
-            // The Wikipedia page for NaN describes many possible variations.
-            // We allow them all, in case applications on different platforms
-            // produce different versions.
-            if (text.contains("NAN") || text.equals("-1.#IND"))
-                return Double.NaN;
-
-            return Double.parseDouble(string);
-        }
-        catch (Exception ex)
-        {
-            return defaultValue;
-        }
+        return new NumberParser().toDouble(string, defaultValue);
     }
 
 
     /**
-     * Returns the column of data for the given index
+     * Returns a copy of the column of data for the given index.  Use
+     * getColumnView() to read a column without copying it.
      * 
      * @param index
      *            the index
@@ -252,17 +257,66 @@ public class ResultSet
      */
     public double[] getColumn(int index)
     {
-        int numColumns = getNumColumns();
-        int numRows = getNumRows();
-        if (index == -1 || index >= numColumns) return null;
+        ColumnView view = getColumnView(index);
+        if (view == null) return null;
+        return view.toArray();
+    }
 
-        double[] col = new double[numRows];
-        for (int i = 0; i < numRows; i++)
-        {
-            col[i] = data[i][index];
-        }
-        return col;
 
+    /**
+     * Returns a read-only view of the column of data for the given index.
+     * The view shares the storage of this result set.
+     * 
+     * @param index
+     *            the index
+     * @return the data column for that index, or null if there is none
+     */
+    public ColumnView getColumnView(int index)
+    {
+        if (index < 0 || index >= getNumColumns()) return null;
+        return ColumnView.of(columns[index], numRows);
+    }
+
+
+    /**
+     * Returns a read-only view of the given row, indexed by column.  The
+     * view shares the storage of this result set.
+     * 
+     * @param row
+     *            the row index
+     * @return the row, or null if the index is out of range
+     */
+    public ColumnView getRowView(final int row)
+    {
+        if (row < 0 || row >= numRows) return null;
+        final double[][] values = columns;
+        return new ColumnView() {
+            @Override
+            public int size()
+            {
+                return values.length;
+            }
+
+
+            @Override
+            public double get(int column)
+            {
+                return values[column][row];
+            }
+        };
+    }
+
+
+    /**
+     * Returns a read-only view of the column of data for the given header.
+     * 
+     * @param header
+     *            the header
+     * @return the data column for that header, or null if there is none
+     */
+    public ColumnView getColumnView(String header)
+    {
+        return getColumnView(getIndex(header));
     }
 
 
@@ -280,16 +334,34 @@ public class ResultSet
 
 
     /**
+     * Returns the data as an array of rows.  This array is built from the
+     * columns the first time it is asked for, so prefer getColumnView()
+     * where possible.
+     * 
      * @return the data
      */
     public double[][] getData()
     {
-        return data;
+        double[][] rows = data;
+        if (rows == null && columns != null)
+        {
+            int numColumns = columns.length;
+            rows = new double[numRows][numColumns];
+            for (int col = 0; col < numColumns; col++)
+            {
+                double[] values = columns[col];
+                for (int row = 0; row < numRows; row++)
+                    rows[row][col] = values[row];
+            }
+            data = rows;
+        }
+        return rows;
     }
 
 
     /**
-     * @return the headers
+     * @return the headers.  These must not be modified directly, because
+     *         they are indexed; use setHeaders() instead.
      */
     public Vector<String> getHeaders()
     {
@@ -298,7 +370,11 @@ public class ResultSet
 
 
     /**
-     * Finds an index for the entry with given header
+     * Finds an index for the entry with given header.  The header is looked
+     * up in a hashed index, ignoring case; a header in square brackets (as
+     * used for concentrations) is also found by its name without the
+     * brackets.  If that fails, the first header that contains the given
+     * text is used, which requires a linear search.
      * 
      * @param header
      *            the header to find
@@ -306,14 +382,20 @@ public class ResultSet
      */
     public int getIndex(String header)
     {
-        for (int i = 0; i < headers.size(); i++)
-        {
-            if (headers.get(i).equalsIgnoreCase(header)) return i;
-        }
-        for (int i = 0; i < headers.size(); i++)
+        if (header == null || headers == null) return -1;
+
+        HashMap<String, Integer> index = headerIndex;
+        if (index == null)
         {
-            if (headers.get(i).equalsIgnoreCase("[" + header + "]")) return i;
+            index = indexHeaders(headers);
+            headerIndex = index;
         }
+
+        Integer position = index.get(normalize(header));
+        if (position != null) return position.intValue();
+
+        // Slow path: the first header containing the text.
+
         for (int i = 0; i < headers.size(); i++)
         {
             if (headers.get(i).contains(header)) return i;
@@ -322,13 +404,60 @@ public class ResultSet
     }
 
 
+    /**
+     * Returns the normalized (case-folded) form of a header, as used as a
+     * key in the header index.
+     * 
+     * @param header
+     *            the header
+     * @return the normalized header
+     */
+    public static String normalize(String header)
+    {
+        return header.toLowerCase(Locale.ENGLISH);
+    }
+
+
+    /**
+     * Builds the map from normalized header names to column positions.
+     * Every header is entered under its normalized name, and headers in
+     * square brackets are entered under their normalized name without the
+     * brackets as well, unless some header already has that name.  When
+     * names collide, the first column wins.
+     * 
+     * @param headers
+     *            the headers
+     * @return the map
+     */
+    private static HashMap<String, Integer> indexHeaders(Vector<String> headers)
+    {
+        if (headers == null) return null;
+
+        int size = headers.size();
+        HashMap<String, Integer> index = new HashMap<String, Integer>(4 * size + 1);
+        for (int i = size - 1; i >= 0; i--)
+            index.put(normalize(headers.get(i)), Integer.valueOf(i));
+        for (int i = 0; i < size; i++)
+        {
+            String key = normalize(headers.get(i));
+            if (key.length() < 2 || key.charAt(0) != '['
+                || key.charAt(key.length() - 1) != ']') continue;
+
+            String name = key.substring(1, key.length() - 1);
+            if (!index.containsKey(name))
+                index.put(name, Integer.valueOf(i));
+        }
+        return index;
+    }
+
+
     /**
      * @return number of columns
      */
     public int getNumColumns()
     {
-        if (data == null || data.length == 0) return 0;
-        return data[0].length;
+        if (columns == null || numRows == 0) return 0;
+        return columns.length;
     }
 
 
@@ -337,8 +466,7 @@ public class ResultSet
      */
     public int getNumRows()
     {
-        if (data == null) return 0;
-        return data.length;
+        return numRows;
     }
 
 
@@ -351,6 +479,15 @@ public class ResultSet
     }
 
 
+    /**
+     * @return a read-only view of the time column
+     */
+    public ColumnView getTimeColumnView()
+    {
+        return getColumnView("time");
+    }
+
+
     /**
      * Returns a boolean indicating whether a column with given header exists
      * 
@@ -404,6 +541,7 @@ public class ResultSet
                 if (current == null || current.length() == 0) continue;
                 headers.add(current);
             }
+            headerIndex = indexHeaders(headers);
 
             Vector<double[]> rows = new Vector<double[]>();
 
@@ -412,8 +550,7 @@ public class ResultSet
                 addRow(rows, headers.size(), line);
             }
 
-            double[][] t = new double[1][0];
-            data = rows.toArray(t);
+            setData(rows.toArray(new double[rows.size()][]));
             reader.close();
 
         }
@@ -428,11 +565,11 @@ public class ResultSet
         // result set appropriately.  We do this here so that callers don't
         // have to keep testing the values themselves.
 
-        int numRows = data.length;
-        int numColumns = data[0].length;
-        for (int row = 0; row < numRows; row++)
-            for (int col = 0; col < numColumns; col++)
-                if (Double.isNaN(data[row][col]) || Double.isInfinite(data[row][col]))
+        int numColumns = getNumColumns();
+        for (int col = 0; col < numColumns; col++)
+            for (int row = 0; row < numRows; row++)
+                if (Double.isNaN(columns[col][row])
+                    || Double.isInfinite(columns[col][row]))
                 {
                     hasInfinityOrNaN = true;
                     return;
@@ -440,6 +577,277 @@ public class ResultSet
     }
 
 
+    /**
+     * Parses the given CSV file by tokenizing its bytes directly, without
+     * creating intermediate strings for anything but the header line.  The
+     * possible results are the same as for parseFile().
+     * 
+     * @param file
+     *            the file
+     * @return false if the file could not be read this way and the caller
+     *         should fall back to parseFile(), true otherwise.
+     */
+    private boolean parseBytes(File file)
+    {
+        if (file == null || !file.exists()) // No such file.
+            return true;
+        else if (!file.canRead() || !file.isFile()) // Something's wrong.
+        {
+            parseable = false;
+            return true;
+        }
+
+        ByteBuffer buffer;
+        try
+        {
+            buffer = readBytes(file);
+        }
+        catch (IOException e)
+        {
+            return false;
+        }
+        if (buffer == null)
+            return false;
+
+        int limit = buffer.limit();
+        if (limit == 0)
+        {
+            // An empty file.  Not good!  Same as in parseFile().
+            parseable = false;
+            return true;
+        }
+
+        // The header line is the only part we turn into strings.
+
+        int end = endOfLine(buffer, 0, limit);
+        headers = parseHeaders(buffer, end);
+        headerIndex = indexHeaders(headers);
+
+        // The columns start out with a guess at the number of rows, and
+        // are grown as needed and trimmed to size at the end.
+
+        int dimensions   = headers.size();
+        int[] separators = new int[dimensions + 1];
+        int capacity     = Math.max(16, limit / (8 * dimensions + 8));
+        int numValues    = 0;
+        double[][] values = new double[dimensions][capacity];
+        NumberParser parser = new NumberParser();
+
+        for (int start = nextLine(buffer, end, limit); start < limit;
+             start = nextLine(buffer, end, limit))
+        {
+            end = endOfLine(buffer, start, limit);
+            if (!splitRow(buffer, start, end, separators, dimensions))
+                continue;
+
+            if (numValues == capacity)
+            {
+                capacity *= 2;
+                for (int i = 0; i < dimensions; i++)
+                    values[i] = resize(values[i], capacity);
+            }
+            for (int i = 0, from = start; i < dimensions; i++)
+            {
+                double value = parser.toDouble(buffer, from, separators[i], 0.0);
+                if (Double.isNaN(value) || Double.isInfinite(value))
+                    hasInfinityOrNaN = true;
+                values[i][numValues] = value;
+                from = separators[i] + 1;
+            }
+            numValues++;
+        }
+
+        if (numValues != capacity)
+            for (int i = 0; i < dimensions; i++)
+                values[i] = resize(values[i], numValues);
+        columns = values;
+        numRows = numValues;
+        data    = null;
+        return true;
+    }
+
+
+    /**
+     * Parses the header line, which ends at 'end', the way parseFile()
+     * does: fields are trimmed and empty ones are dropped.
+     * 
+     * @param buffer
+     *            the buffer holding the file
+     * @param end
+     *            the end of the first line
+     * @return the headers
+     */
+    static Vector<String> parseHeaders(ByteBuffer buffer, int end)
+    {
+        Vector<String> result = new Vector<String>();
+        for (int start = 0, i = 0; i <= end; i++)
+        {
+            if (i < end && buffer.get(i) != ',') continue;
+            String current = decode(buffer, start, i).trim();
+            if (current.length() > 0)
+                result.add(current);
+            start = i + 1;
+        }
+        return result;
+    }
+
+
+    /**
+     * Finds the field separators of the data row between 'start' and 'end'.
+     * Like the String.split() used by addRow(), this ignores trailing empty
+     * fields.  Rows that are blank or have the wrong number of fields are
+     * rejected.  On success, separators[i] is the (exclusive) end of field
+     * i, and field i+1 starts right after it.
+     * 
+     * @param buffer
+     *            the buffer holding the file
+     * @param start
+     *            the start of the row
+     * @param end
+     *            the end of the row (exclusive)
+     * @param separators
+     *            receives the field ends; needs room for dimensions + 1
+     *            entries
+     * @param dimensions
+     *            the expected number of fields
+     * @return true if the row has the expected number of fields
+     */
+    static boolean splitRow(ByteBuffer buffer, int start, int end,
+                            int[] separators, int dimensions)
+    {
+        if (isBlank(buffer, start, end)) return false;
+
+        int count = 0;
+        int last  = end;
+        while (last > start && buffer.get(last - 1) == ',')
+            last--;
+        if (last == start) return false;
+        for (int i = start; i < last && count <= dimensions; i++)
+            if (buffer.get(i) == ',')
+                separators[count++] = i;
+        if (count + 1 != dimensions) return false;
+        separators[count] = last;
+        return true;
+    }
+
+
+    /**
+     * Returns a copy of the given array with the given length.
+     */
+    private static double[] resize(double[] values, int length)
+    {
+        double[] result = new double[length];
+        System.arraycopy(values, 0, result, 0, Math.min(length, values.length));
+        return result;
+    }
+
+
+    /**
+     * Reads the contents of the given file into a byte buffer.  Large files
+     * are memory-mapped, small ones are read with a single bulk read.
+     * 
+     * @param file
+     *            the file
+     * @return the buffer, or null if the file is too large to be buffered
+     * @throws IOException
+     *             if the file could not be read
+     */
+    static ByteBuffer readBytes(File file)
+        throws IOException
+    {
+        return readBytes(file, true);
+    }
+
+
+    /**
+     * Reads the contents of the given file into a byte buffer.
+     * 
+     * @param file
+     *            the file
+     * @param mayMap
+     *            if true, large files are memory-mapped; otherwise, all
+     *            files are read with a single bulk read
+     * @return the buffer, or null if the file is too large to be buffered
+     * @throws IOException
+     *             if the file could not be read
+     */
+    static ByteBuffer readBytes(File file, boolean mayMap)
+        throws IOException
+    {
+        FileInputStream stream = new FileInputStream(file);
+        try
+        {
+            FileChannel channel = stream.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                return null;
+            if (mayMap && size >= MAPPING_THRESHOLD)
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) < 0) break;
+            buffer.flip();
+            return buffer;
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+
+    /**
+     * Returns the position of the end of the line starting at 'start'.
+     */
+    static int endOfLine(ByteBuffer buffer, int start, int limit)
+    {
+        int i = start;
+        while (i < limit && buffer.get(i) != '\n' && buffer.get(i) != '\r')
+            i++;
+        return i;
+    }
+
+
+    /**
+     * Returns the start of the line following the line ending at 'end'.
+     * Like BufferedReader.readLine(), accepts \n, \r and \r\n.
+     */
+    static int nextLine(ByteBuffer buffer, int end, int limit)
+    {
+        if (end < limit && buffer.get(end) == '\r')
+            end++;
+        if (end < limit && buffer.get(end) == '\n')
+            end++;
+        return end;
+    }
+
+
+    /**
+     * Returns true if the given range only contains whitespace, in the
+     * sense of String.trim().
+     */
+    private static boolean isBlank(ByteBuffer buffer, int start, int end)
+    {
+        for (int i = start; i < end; i++)
+            if ((buffer.get(i) & 0xff) > ' ') return false;
+        return true;
+    }
+
+
+    /**
+     * Decodes the given range using the platform charset, as FileReader
+     * would.
+     */
+    private static String decode(ByteBuffer buffer, int start, int end)
+    {
+        byte[] bytes = new byte[end - start];
+        for (int i = start; i < end; i++)
+            bytes[i - start] = buffer.get(i);
+        return new String(bytes, Charset.defaultCharset());
+    }
+
+
     /**
      * Set the data
      * 
@@ -449,6 +857,19 @@ public class ResultSet
     public void setData(double[][] data)
     {
         this.data = data;
+        if (data == null)
+        {
+            columns = null;
+            numRows = 0;
+            return;
+        }
+
+        numRows = data.length;
+        int numColumns = (numRows > 0 ? data[0].length : 0);
+        columns = new double[numColumns][numRows];
+        for (int row = 0; row < numRows; row++)
+            for (int col = 0; col < numColumns; col++)
+                columns[col][row] = data[row][col];
     }
 
 
@@ -461,6 +882,7 @@ public class ResultSet
     public void setHeaders(Vector<String> headers)
     {
         this.headers = headers;
+        this.headerIndex = indexHeaders(headers);
     }
 
 
@@ -472,6 +894,16 @@ public class ResultSet
         return hasInfinityOrNaN;
     }
 
+
+    /**
+     * Sets whether the data contains NaN or infinity values, for result
+     * sets that were not parsed from text.
+     */
+    void setHasInfinityOrNaN(boolean hasInfinityOrNaN)
+    {
+        this.hasInfinityOrNaN = hasInfinityOrNaN;
+    }
+
    
     public boolean parseable()
     {
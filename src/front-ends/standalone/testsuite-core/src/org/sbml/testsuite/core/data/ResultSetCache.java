@@ -0,0 +1,270 @@
+//
+// @file   ResultSetCache.java
+// @brief  Bounded in-memory cache of parsed result files
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+package org.sbml.testsuite.core.data;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * An in-memory cache of result sets read from files, bounded by the
+ * (estimated) number of bytes they occupy.  When the bound is exceeded,
+ * the least recently used result sets are dropped.  A cached result set is
+ * also dropped if its file no longer has the size and modification time it
+ * had when it was read, e.g., because a new test suite archive was
+ * unpacked in the same place.
+ * 
+ * The cache may be used from several threads at once.  Result sets handed
+ * out by it are shared, so callers must not modify them.
+ */
+public class ResultSetCache
+{
+    private final LinkedHashMap<String, Entry> entries;
+    private final File                         sidecarDir;
+    private final long                         maxBytes;
+    private long                               bytes;
+    private long                               hits;
+    private long                               misses;
+
+
+    /**
+     * Constructor
+     * 
+     * @param sidecarDir
+     *            the directory for binary copies of the files (see
+     *            ResultSet.fromFile(File, File)), or null to not use one
+     * @param maxBytes
+     *            the maximum number of bytes the cached result sets may
+     *            occupy
+     */
+    public ResultSetCache(File sidecarDir, long maxBytes)
+    {
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+        this.sidecarDir = sidecarDir;
+        this.maxBytes = maxBytes;
+    }
+
+
+    /**
+     * Returns the result set for the given file, reading the file if it is
+     * not in the cache yet.
+     * 
+     * @param file
+     *            the CSV file
+     * @return the result set, or null if the file does not exist
+     */
+    public ResultSet get(File file)
+    {
+        if (file == null) return null;
+        String key = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+
+        synchronized (this)
+        {
+            Entry cached = entries.get(key);
+            if (cached != null && cached.isCurrent(length, lastModified))
+            {
+                hits++;
+                return cached.result;
+            }
+            if (cached != null)
+                remove(key);
+            misses++;
+        }
+
+        // Read outside the lock, so other threads are not held up.  If two
+        // threads read the same file at once, the first one to finish wins.
+
+        ResultSet result = ResultSet.fromFile(file, sidecarDir);
+        if (result == null || !result.parseable())
+            return result;
+
+        Entry entry = new Entry(result, estimateSize(result), length,
+                                lastModified);
+        synchronized (this)
+        {
+            Entry cached = entries.get(key);
+            if (cached != null && cached.isCurrent(length, lastModified))
+                return cached.result;
+            if (entry.size > maxBytes)
+                return result;
+
+            remove(key);
+            entries.put(key, entry);
+            bytes += entry.size;
+            evict();
+        }
+        return result;
+    }
+
+
+    /**
+     * Removes the result set for the given file from the cache, so that
+     * it will be read again next time.
+     * 
+     * @param file
+     *            the CSV file
+     */
+    public synchronized void invalidate(File file)
+    {
+        if (file == null) return;
+        remove(file.getAbsolutePath());
+    }
+
+
+    /**
+     * Removes all result sets from the cache.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+        bytes = 0;
+    }
+
+
+    /**
+     * @return the number of requests answered from the cache
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+
+    /**
+     * @return the number of requests that had to read a file
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+
+    /**
+     * @return the number of result sets in the cache
+     */
+    public synchronized int getCount()
+    {
+        return entries.size();
+    }
+
+
+    /**
+     * @return the estimated number of bytes taken by the cached result sets
+     */
+    public synchronized long getBytes()
+    {
+        return bytes;
+    }
+
+
+    /**
+     * @return the maximum number of bytes the cached result sets may take
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+
+    /**
+     * @return a summary of the cache statistics
+     */
+    @Override
+    public synchronized String toString()
+    {
+        return "ResultSetCache [" + entries.size() + " result sets, "
+            + (bytes / 1024) + " of " + (maxBytes / 1024) + " KB, " + hits
+            + " hits, " + misses + " misses]";
+    }
+
+
+    /**
+     * Drops least recently used result sets until the cache fits.
+     */
+    private void evict()
+    {
+        Iterator<Entry> it = entries.values().iterator();
+        while (bytes > maxBytes && it.hasNext())
+        {
+            bytes -= it.next().size;
+            it.remove();
+        }
+    }
+
+
+    private void remove(String key)
+    {
+        Entry entry = entries.remove(key);
+        if (entry != null)
+            bytes -= entry.size;
+    }
+
+
+    /**
+     * Estimates the memory taken by the given result set: the column data
+     * plus the headers and some overhead per object.
+     */
+    private static long estimateSize(ResultSet result)
+    {
+        long size = 64 + 24L * result.getNumColumns()
+            + 8L * result.getNumColumns() * result.getNumRows();
+        for (String header : result.getHeaders())
+            size += 120 + 2 * header.length();
+        return size;
+    }
+
+
+    /**
+     * A cached result set, with what we knew about its file when we read it.
+     */
+    private static final class Entry
+    {
+        final ResultSet result;
+        final long      size;
+        final long      length;
+        final long      lastModified;
+
+
+        Entry(ResultSet result, long size, long length, long lastModified)
+        {
+            this.result = result;
+            this.size = size;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+
+        boolean isCurrent(long length, long lastModified)
+        {
+            return this.length == length && this.lastModified == lastModified;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+//
+// @file   ResultSetSidecar.java
+// @brief  Binary copies of result files
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+package org.sbml.testsuite.core.data;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Vector;
+
+/**
+ * Reads and writes binary copies ("sidecars") of parsed result files, so
+ * that files that never change, like the expected results of the test
+ * cases, only have to be parsed as text once.
+ * 
+ * A sidecar is a little-endian file laid out as follows:
+ * 
+ * <pre>
+ *   int     magic number
+ *   int     format version
+ *   long    size of the CSV file
+ *   long    modification time of the CSV file
+ *   int     flags (1 = has infinity or NaN)
+ *   int     number of columns
+ *   int     number of rows
+ *   string  absolute path of the CSV file
+ *   int     number of headers, followed by that many strings
+ *   double  the data, column by column
+ * </pre>
+ * 
+ * where a string is an int byte count followed by UTF-8 bytes.  A sidecar
+ * is only used if the CSV file still has the recorded path, size and
+ * modification time; otherwise the CSV file is parsed again and the
+ * sidecar rewritten.
+ */
+class ResultSetSidecar
+{
+    private static final int    MAGIC          = 0x53545253; // "STRS"
+    private static final int    VERSION        = 1;
+    private static final int    HAS_INF_OR_NAN = 1;
+    private static final String SUFFIX         = ".bin";
+
+
+    /**
+     * Returns the sidecar file for the given CSV file.  The name combines
+     * the name of the CSV file with a hash of its path, so that result
+     * files of different test suite directories don't collide.
+     * 
+     * @param csv
+     *            the CSV file
+     * @param cacheDir
+     *            the directory holding the sidecars
+     * @return the sidecar file, which need not exist
+     */
+    static File locate(File csv, File cacheDir)
+    {
+        String name = csv.getName();
+        if (name.toLowerCase().endsWith(".csv"))
+            name = name.substring(0, name.length() - 4);
+        int hash = csv.getAbsolutePath().hashCode();
+        return new File(cacheDir, name + "-" + Integer.toHexString(hash)
+            + SUFFIX);
+    }
+
+
+    /**
+     * Reads the given sidecar if it is up to date with the CSV file.
+     * 
+     * @param sidecar
+     *            the sidecar file
+     * @param csv
+     *            the CSV file it was made from
+     * @return the result set, or null if the sidecar does not exist, is
+     *         out of date or is damaged
+     */
+    static ResultSet read(File sidecar, File csv)
+    {
+        if (!sidecar.isFile()) return null;
+        try
+        {
+            // Not mapped, since a mapped file can't be replaced on Windows
+            // until the mapping is garbage collected.
+
+            ByteBuffer buffer = ResultSet.readBytes(sidecar, false);
+            if (buffer == null) return null;
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.remaining() < 36
+                || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getLong() != csv.length()
+                || buffer.getLong() != csv.lastModified())
+                return null;
+
+            int flags      = buffer.getInt();
+            int numColumns = buffer.getInt();
+            int numRows    = buffer.getInt();
+            if (!csv.getAbsolutePath().equals(getString(buffer)))
+                return null;
+
+            // The counts are checked against what is left of the file
+            // before anything is allocated for them, so that a damaged
+            // sidecar can't ask for huge or negative arrays.
+
+            int numHeaders = buffer.getInt();
+            if (numHeaders < 0 || numHeaders > buffer.remaining() / 4)
+                return null;
+            Vector<String> headers = new Vector<String>(numHeaders);
+            for (int i = 0; i < numHeaders; i++)
+            {
+                String header = getString(buffer);
+                if (header == null) return null;
+                headers.add(header);
+            }
+
+            if (numColumns < 0 || numRows < 0
+                || (numColumns == 0) != (numRows == 0)
+                || buffer.remaining() != 8L * numColumns * numRows)
+                return null;
+            double[][] columns = new double[numColumns][numRows];
+            for (int i = 0; i < numColumns; i++)
+            {
+                buffer.asDoubleBuffer().get(columns[i]);
+                buffer.position(buffer.position() + 8 * numRows);
+            }
+
+            ResultSet result = ResultSet.fromColumns(headers, columns, numRows);
+            result.setHasInfinityOrNaN((flags & HAS_INF_OR_NAN) != 0);
+            return result;
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+        catch (RuntimeException e)      // Damaged, e.g., cut short.
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * Writes a sidecar for the given result set.  The sidecar is written to
+     * a temporary file first and then renamed, so that readers never see a
+     * partial sidecar.  Failures are ignored; the CSV file will simply be
+     * parsed again next time.
+     * 
+     * @param sidecar
+     *            the sidecar file
+     * @param csv
+     *            the CSV file the result set was read from
+     * @param size
+     *            the size of the CSV file when it was read
+     * @param lastModified
+     *            the modification time of the CSV file when it was read
+     * @param result
+     *            the result set
+     */
+    static void write(File sidecar, File csv, long size, long lastModified,
+                      ResultSet result)
+    {
+        File dir = sidecar.getParentFile();
+        File temp = null;
+        try
+        {
+            if (!dir.isDirectory() && !dir.mkdirs()) return;
+
+            Vector<String> headers = result.getHeaders();
+            int numColumns = result.getNumColumns();
+            int numRows    = (numColumns > 0 ? result.getNumRows() : 0);
+
+            byte[] path = utf8(csv.getAbsolutePath());
+            int length = 36 + 4 + path.length + 4 + 8 * numColumns * numRows;
+            byte[][] names = new byte[headers.size()][];
+            for (int i = 0; i < names.length; i++)
+            {
+                names[i] = utf8(headers.get(i));
+                length += 4 + names[i].length;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(size);
+            buffer.putLong(lastModified);
+            buffer.putInt(result.hasInfinityOrNaN() ? HAS_INF_OR_NAN : 0);
+            buffer.putInt(numColumns);
+            buffer.putInt(numRows);
+            putBytes(buffer, path);
+            buffer.putInt(names.length);
+            for (byte[] name : names)
+                putBytes(buffer, name);
+            for (int i = 0; i < numColumns; i++)
+            {
+                buffer.asDoubleBuffer().put(result.getColumnView(i).asArray(),
+                                            0, numRows);
+                buffer.position(buffer.position() + 8 * numRows);
+            }
+            buffer.flip();
+
+            temp = File.createTempFile("sidecar", ".tmp", dir);
+            FileOutputStream stream = new FileOutputStream(temp);
+            try
+            {
+                FileChannel channel = stream.getChannel();
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+            finally
+            {
+                stream.close();
+            }
+
+            // On some platforms, renameTo() won't replace an existing file.
+            if (!temp.renameTo(sidecar))
+            {
+                sidecar.delete();
+                if (temp.renameTo(sidecar)) temp = null;
+            }
+            else
+                temp = null;
+        }
+        catch (IOException e)
+        {
+            // Nevermind; we'll parse the CSV file next time.
+        }
+        finally
+        {
+            if (temp != null) temp.delete();
+        }
+    }
+
+
+    /**
+     * Reads a string, or returns null if its byte count doesn't fit in the
+     * rest of the buffer.
+     */
+    private static String getString(ByteBuffer buffer)
+        throws UnsupportedEncodingException
+    {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes)
+    {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+
+    private static byte[] utf8(String string)
+        throws UnsupportedEncodingException
+    {
+        return string.getBytes("UTF-8");
+    }
+}
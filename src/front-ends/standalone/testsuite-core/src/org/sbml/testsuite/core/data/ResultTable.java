@@ -0,0 +1,90 @@
+//
+// @file   ResultTable.java
+// @brief  Read-only access to a table of results
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+package org.sbml.testsuite.core.data;
+
+import java.util.Vector;
+
+/**
+ * ResultTable is an interface for read-only tables of results, such as
+ * parsed result files (ResultSet) and the differences between two of them
+ * (DifferenceView).  Code that only reads values, like the plotting code,
+ * should use this interface, so that it can work on views without copying
+ * them into a ResultSet first.
+ */
+public interface ResultTable
+{
+    /**
+     * @return the column headers; these must not be modified
+     */
+    Vector<String> getHeaders();
+
+
+    /**
+     * @return the number of columns
+     */
+    int getNumColumns();
+
+
+    /**
+     * @return the number of rows
+     */
+    int getNumRows();
+
+
+    /**
+     * Returns a read-only view of the given column.
+     * 
+     * @param index
+     *            the column index
+     * @return the column, or null if the index is out of range
+     */
+    ColumnView getColumnView(int index);
+
+
+    /**
+     * Returns a read-only view of the given row, indexed by column.
+     * 
+     * @param row
+     *            the row index
+     * @return the row, or null if the index is out of range
+     */
+    ColumnView getRowView(int row);
+
+
+    /**
+     * @return a read-only view of the time column, or null if there is none
+     */
+    ColumnView getTimeColumnView();
+
+
+    /**
+     * @return true if there lurks a NaN or infinity value in the data.
+     */
+    boolean hasInfinityOrNaN();
+}
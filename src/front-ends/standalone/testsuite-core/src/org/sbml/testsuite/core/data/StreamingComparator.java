@@ -0,0 +1,219 @@
+//
+// @file   StreamingComparator.java
+// @brief  Compares a result file against expected data while reading it
+// @date   Created 2026-10-17
+//
+// ----------------------------------------------------------------------------
+// This file is part of the SBML Testsuite. Please visit http://sbml.org for
+// more information about SBML, and the latest version of the SBML Test Suite.
+//
+// Copyright (C) 2009-2015 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+// 3. University of Heidelberg, Heidelberg, Germany
+//
+// Copyright (C) 2006-2008 by the California Institute of Technology,
+// Pasadena, CA, USA
+//
+// Copyright (C) 2002-2005 jointly by the following organizations:
+// 1. California Institute of Technology, Pasadena, CA, USA
+// 2. Japan Science and Technology Agency, Japan
+//
+// This library is free software; you can redistribute it and/or modify it
+// under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation. A copy of the license agreement is provided
+// in the file named "LICENSE.txt" included with this software distribution
+// and also available online as http://sbml.org/software/libsbml/license.html
+// ----------------------------------------------------------------------------
+
+package org.sbml.testsuite.core.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Vector;
+
+/**
+ * Compares a delivered result file against an expected result set while
+ * reading the file, without building a ResultSet for it.  Only the cells
+ * of columns that are present in the expected results are parsed, and the
+ * comparison stops at the first value that is out of tolerance.  The
+ * verdicts are the same as those of CompareResultSet.compareUsingTestSuite()
+ * applied to the fully parsed file.
+ */
+public class StreamingComparator
+{
+    /**
+     * Possible outcomes of a comparison.
+     */
+    public enum Outcome
+    {
+        /** All values are within tolerance. */
+        Match,
+
+        /** A column is missing or a value is out of tolerance. */
+        NoMatch,
+
+        /** The file exists but cannot be read or is empty. */
+        Unparseable,
+
+        /** The file does not exist. */
+        Missing
+    }
+
+
+    private ResultSet expected;
+    private double    absoluteError;
+    private double    relativeError;
+
+
+    /**
+     * Constructor
+     * 
+     * @param expected
+     *            the expected results
+     * @param absoluteError
+     *            absolute error
+     * @param relativeError
+     *            relative error
+     */
+    public StreamingComparator(ResultSet expected, double absoluteError,
+                               double relativeError)
+    {
+        this.expected = expected;
+        this.absoluteError = absoluteError;
+        this.relativeError = relativeError;
+    }
+
+
+    /**
+     * Compares the given result file against the expected results.
+     * 
+     * @param delivered
+     *            the result file to check
+     * @return the outcome of the comparison
+     */
+    public Outcome compare(File delivered)
+    {
+        if (delivered == null || !delivered.exists())
+            return Outcome.Missing;
+        if (!delivered.canRead() || !delivered.isFile())
+            return Outcome.Unparseable;
+
+        ByteBuffer buffer;
+        try
+        {
+            buffer = ResultSet.readBytes(delivered);
+        }
+        catch (IOException e)
+        {
+            buffer = null;
+        }
+        if (buffer == null)
+            return compare(ResultSet.fromFile(delivered));
+
+        int limit = buffer.limit();
+        if (limit == 0)
+            return Outcome.Unparseable;
+        if (expected == null || expected.getHeaders() == null)
+            return Outcome.NoMatch;
+
+        // Work out which delivered column goes with which expected column.
+        // All expected columns (except time) must be present.
+
+        int end = ResultSet.endOfLine(buffer, 0, limit);
+        Vector<String> headers = ResultSet.parseHeaders(buffer, end);
+        ResultSet given = ResultSet.fromColumns(headers, null, 0);
+
+        Vector<String> expectedHeaders = expected.getHeaders();
+        int[] givenIndex = new int[expectedHeaders.size()];
+        ColumnView[] expectedColumns = new ColumnView[expectedHeaders.size()];
+        int numChecked = 0;
+        for (String s : expectedHeaders)
+        {
+            if (s.equalsIgnoreCase("time")) continue;
+
+            int aIndex = expected.getIndex(s);
+            int bIndex = given.getIndex(s);
+            if (aIndex == -1 || bIndex == -1)
+                return Outcome.NoMatch;
+
+            expectedColumns[numChecked] = expected.getColumnView(aIndex);
+            givenIndex[numChecked] = bIndex;
+            numChecked++;
+        }
+
+        // Now go through the rows, parsing only the cells we need.  Like
+        // compareUsingTestSuite(), we only look at as many rows as both
+        // sides have.
+
+        int dimensions   = headers.size();
+        int[] separators = new int[dimensions + 1];
+        int numRows      = expected.getNumRows();
+        int row          = 0;
+        NumberParser parser = new NumberParser();
+
+        for (int start = ResultSet.nextLine(buffer, end, limit);
+             start < limit && row < numRows;
+             start = ResultSet.nextLine(buffer, end, limit))
+        {
+            end = ResultSet.endOfLine(buffer, start, limit);
+            if (!ResultSet.splitRow(buffer, start, end, separators, dimensions))
+                continue;
+
+            for (int i = 0; i < numChecked; i++)
+            {
+                int index = givenIndex[i];
+                int from  = (index == 0 ? start : separators[index - 1] + 1);
+                double value = parser.toDouble(buffer, from,
+                                               separators[index], 0.0);
+                if (!CompareResultSet.isWithinTolerance(expectedColumns[i].get(row),
+                                                        value, absoluteError,
+                                                        relativeError))
+                    return Outcome.NoMatch;
+            }
+            row++;
+        }
+
+        // A header without data, as left by a simulator that failed right
+        // after writing it, doesn't match anything.
+        if (row == 0 && numRows > 0)
+            return Outcome.NoMatch;
+
+        return Outcome.Match;
+    }
+
+
+    /**
+     * Compares an already parsed result set against the expected results.
+     * This is used for files that cannot be buffered in one piece.
+     */
+    private Outcome compare(ResultSet given)
+    {
+        if (given == null)
+            return Outcome.Missing;
+        if (!given.parseable())
+            return Outcome.Unparseable;
+
+        CompareResultSet set = new CompareResultSet(expected, given);
+        if (set.compareUsingTestSuite(absoluteError, relativeError))
+            return Outcome.Match;
+        else
+            return Outcome.NoMatch;
+    }
+
+
+    /**
+     * Checks whether the given result file is something compare() would
+     * not report as Unparseable, without reading it.
+     * 
+     * @param delivered
+     *            the result file
+     * @return true if the file exists, is readable and is not empty
+     */
+    public static boolean isReadable(File delivered)
+    {
+        return delivered != null && delivered.isFile() && delivered.canRead()
+            && delivered.length() > 0;
+    }
+}
@@ -47,6 +47,7 @@ import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Spinner;
 import org.eclipse.swt.widgets.Text;
 import org.sbml.testsuite.core.TestSuiteSettings;
 import org.sbml.testsuite.core.Util;
@@ -66,6 +67,11 @@ public class EditWrapper
     private final Button btnWrapperAnyLV;
     private final Button btnWrapperThreadsOK;
     private final Button btnWrapperViewOnly;
+    private final Button btnWrapperBatchMode;
+    private final Button btnWrapperPersistent;
+    private final Button btnWrapperKeepLogs;
+    private final Spinner spnGracePeriod;
+    private final Spinner spnWorkerTimeout;
 
     // Fields that we may need to enable/disable.
 
@@ -77,6 +83,8 @@ public class EditWrapper
     private final Label  lblWrapperArguments;
     private final Label  lblUnsupportedTags;
     private final Button cmdEditTags;
+    private final Label  lblGracePeriod;
+    private final Label  lblWorkerTimeout;
 
     private final Color normalTextColor
         = UIUtils.getDefaultLabelForegroundColor();
@@ -85,6 +93,10 @@ public class EditWrapper
 
     private String initialName;
 
+    // Not editable here, but must survive editing the other fields.
+
+    private String  snapshotPath;
+
 
     /**
      * @return the current state as wrapper configuration
@@ -101,6 +113,12 @@ public class EditWrapper
                                                  btnWrapperThreadsOK.getSelection(),
                                                  btnWrapperViewOnly.getSelection()
                                                  );
+        config.setSnapshotPath(snapshotPath);
+        config.setBatchMode(btnWrapperBatchMode.getSelection());
+        config.setPersistentWorkers(btnWrapperPersistent.getSelection());
+        config.setKeepOutputLogs(btnWrapperKeepLogs.getSelection());
+        config.setResultGracePeriod(spnGracePeriod.getSelection());
+        config.setWorkerTimeout(spnWorkerTimeout.getSelection());
 
         return config;
     }
@@ -125,6 +143,12 @@ public class EditWrapper
         btnWrapperAnyLV.setSelection(config.isSupportsAllVersions());
         btnWrapperThreadsOK.setSelection(config.isConcurrencyAllowed());
         btnWrapperViewOnly.setSelection(config.isViewOnly());
+        btnWrapperBatchMode.setSelection(config.getBatchModeSetting());
+        btnWrapperPersistent.setSelection(config.isPersistentWorkers());
+        btnWrapperKeepLogs.setSelection(config.isKeepOutputLogs());
+        spnGracePeriod.setSelection(config.getResultGracePeriod());
+        spnWorkerTimeout.setSelection(config.getWorkerTimeout());
+        snapshotPath = config.getSnapshotPath();
         updateWidgetStates();
     }
 
@@ -232,12 +256,56 @@ public class EditWrapper
         btnWrapperThreadsOK.setText("Wrapper can be run in parallel");
         btnWrapperThreadsOK.addKeyListener(UIUtils.createCloseKeyListener(shell));
 
+        btnWrapperBatchMode = new Button(this, SWT.CHECK);
+        FormData fd_btnWrapperBatchMode = new FormData();
+        fd_btnWrapperBatchMode.top = new FormAttachment(btnWrapperThreadsOK, checkboxSpace);
+        fd_btnWrapperBatchMode.left = new FormAttachment(0, 170 + offset);
+        fd_btnWrapperBatchMode.right = new FormAttachment(100, -31);
+        btnWrapperBatchMode.setLayoutData(fd_btnWrapperBatchMode);
+        btnWrapperBatchMode.setText("Wrapper runs a list of cases per invocation (batch mode)");
+        btnWrapperBatchMode.setToolTipText("The wrapper is started once for up "
+                                           + "to 100 cases, which are listed in "
+                                           + "the file %f and on its standard "
+                                           + "input. Arguments with %f imply this.");
+        btnWrapperBatchMode.addKeyListener(UIUtils.createCloseKeyListener(shell));
+
+        btnWrapperPersistent = new Button(this, SWT.CHECK);
+        FormData fd_btnWrapperPersistent = new FormData();
+        fd_btnWrapperPersistent.top = new FormAttachment(btnWrapperBatchMode, checkboxSpace);
+        fd_btnWrapperPersistent.left = new FormAttachment(0, 170 + offset);
+        fd_btnWrapperPersistent.right = new FormAttachment(100, -31);
+        btnWrapperPersistent.setLayoutData(fd_btnWrapperPersistent);
+        btnWrapperPersistent.setText("Keep the wrapper running between cases (persistent workers)");
+        btnWrapperPersistent.setToolTipText("The wrapper is started once per "
+                                            + "thread and reads a RUN line for "
+                                            + "each case from its standard input. "
+                                            + "See the help for the details.");
+        btnWrapperPersistent.addKeyListener(UIUtils.createCloseKeyListener(shell));
+        btnWrapperPersistent.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent arg0) {
+                updateWidgetStates();
+            }
+        });
+
+        btnWrapperKeepLogs = new Button(this, SWT.CHECK);
+        FormData fd_btnWrapperKeepLogs = new FormData();
+        fd_btnWrapperKeepLogs.top = new FormAttachment(btnWrapperPersistent, checkboxSpace);
+        fd_btnWrapperKeepLogs.left = new FormAttachment(0, 170 + offset);
+        fd_btnWrapperKeepLogs.right = new FormAttachment(100, -31);
+        btnWrapperKeepLogs.setLayoutData(fd_btnWrapperKeepLogs);
+        btnWrapperKeepLogs.setText("Keep the complete wrapper output in log files");
+        btnWrapperKeepLogs.setToolTipText("The output of each case is kept in "
+                                          + "NNNNN-stdout.log and NNNNN-stderr.log "
+                                          + "in the output directory.");
+        btnWrapperKeepLogs.addKeyListener(UIUtils.createCloseKeyListener(shell));
+
         String wrapperToolTip = "Path to the wrapper script or program.";
 
         lblWrapper = new Label(this, SWT.RIGHT);
         lblWrapper.setAlignment(SWT.RIGHT);
         FormData fd_lblWrapper = new FormData();
-        fd_lblWrapper.top = new FormAttachment(btnWrapperThreadsOK, margin + nudge);
+        fd_lblWrapper.top = new FormAttachment(btnWrapperKeepLogs, margin + nudge);
         fd_lblWrapper.right = new FormAttachment(0, 170);
         lblWrapper.setFont(labelFont);
         lblWrapper.setLayoutData(fd_lblWrapper);
@@ -246,7 +314,7 @@ public class EditWrapper
 
         txtWrapper = new Text(this, SWT.BORDER);
         FormData fd_txtWrapper = new FormData();
-        fd_txtWrapper.top = new FormAttachment(btnWrapperThreadsOK, margin);
+        fd_txtWrapper.top = new FormAttachment(btnWrapperKeepLogs, margin);
         fd_txtWrapper.left = new FormAttachment(0, 172);
         fd_txtWrapper.right = new FormAttachment(100, -55);
         txtWrapper.setLayoutData(fd_txtWrapper);
@@ -255,7 +323,7 @@ public class EditWrapper
         cmdBrowseWrapper = new Button(this, SWT.NONE);
         cmdBrowseWrapper.setAlignment(SWT.CENTER);
         FormData fd_cmdBrowseWrapper = new FormData();
-        fd_cmdBrowseWrapper.top = new FormAttachment(btnWrapperThreadsOK, nudge + 1);
+        fd_cmdBrowseWrapper.top = new FormAttachment(btnWrapperKeepLogs, nudge + 1);
         if (UIUtils.isMacOSX())
             fd_cmdBrowseWrapper.right = new FormAttachment(100, 5);
         else
@@ -381,10 +449,56 @@ public class EditWrapper
         fd_txtWrapperArgs.right = new FormAttachment(100, -55);
         txtWrapperArgs.setLayoutData(fd_txtWrapperArgs);
         txtWrapperArgs.addKeyListener(UIUtils.createCloseKeyListener(shell));
-        
+
+        String gracePeriodToolTip = "How long to wait for the result file of "
+            + "a case to appear after the wrapper has exited, in milliseconds "
+            + "(0 = don't wait).";
+
+        lblGracePeriod = new Label(this, SWT.RIGHT);
+        lblGracePeriod.setAlignment(SWT.RIGHT);
+        FormData fd_lblGracePeriod = new FormData();
+        fd_lblGracePeriod.top = new FormAttachment(txtWrapperArgs, margin + nudge);
+        fd_lblGracePeriod.right = new FormAttachment(0, 170);
+        lblGracePeriod.setFont(labelFont);
+        lblGracePeriod.setLayoutData(fd_lblGracePeriod);
+        lblGracePeriod.setText("Result grace period (ms):");
+        lblGracePeriod.setToolTipText(gracePeriodToolTip);
+
+        spnGracePeriod = new Spinner(this, SWT.BORDER);
+        FormData fd_spnGracePeriod = new FormData();
+        fd_spnGracePeriod.top = new FormAttachment(txtWrapperArgs, margin);
+        fd_spnGracePeriod.left = new FormAttachment(0, 172);
+        spnGracePeriod.setLayoutData(fd_spnGracePeriod);
+        spnGracePeriod.setValues(0, 0, 600000, 0, 100, 1000);
+        spnGracePeriod.setToolTipText(gracePeriodToolTip);
+        spnGracePeriod.addKeyListener(UIUtils.createCloseKeyListener(shell));
+
+        String workerTimeoutToolTip = "How long a persistent worker may take "
+            + "for a case before it is stopped and replaced, in milliseconds "
+            + "(0 = no limit).";
+
+        lblWorkerTimeout = new Label(this, SWT.RIGHT);
+        lblWorkerTimeout.setAlignment(SWT.RIGHT);
+        FormData fd_lblWorkerTimeout = new FormData();
+        fd_lblWorkerTimeout.top = new FormAttachment(spnGracePeriod, margin + nudge);
+        fd_lblWorkerTimeout.right = new FormAttachment(0, 170);
+        lblWorkerTimeout.setFont(labelFont);
+        lblWorkerTimeout.setLayoutData(fd_lblWorkerTimeout);
+        lblWorkerTimeout.setText("Worker timeout (ms):");
+        lblWorkerTimeout.setToolTipText(workerTimeoutToolTip);
+
+        spnWorkerTimeout = new Spinner(this, SWT.BORDER);
+        FormData fd_spnWorkerTimeout = new FormData();
+        fd_spnWorkerTimeout.top = new FormAttachment(spnGracePeriod, margin);
+        fd_spnWorkerTimeout.left = new FormAttachment(0, 172);
+        spnWorkerTimeout.setLayoutData(fd_spnWorkerTimeout);
+        spnWorkerTimeout.setValues(0, 0, 3600000, 0, 1000, 10000);
+        spnWorkerTimeout.setToolTipText(workerTimeoutToolTip);
+        spnWorkerTimeout.addKeyListener(UIUtils.createCloseKeyListener(shell));
+
         Label lblUsageInfo1 = new Label(this, SWT.WRAP);
         FormData fd_lblUsageInfo1 = new FormData();
-        fd_lblUsageInfo1.top = new FormAttachment(txtWrapperArgs, 2*margin);
+        fd_lblUsageInfo1.top = new FormAttachment(spnWorkerTimeout, 2*margin);
         fd_lblUsageInfo1.left = new FormAttachment(0, 10);
         fd_lblUsageInfo1.right = new FormAttachment(100, -10);
         lblUsageInfo1.setLayoutData(fd_lblUsageInfo1);
@@ -414,7 +528,8 @@ public class EditWrapper
             + "\n\t%n\t= current test case number (of the form NNNNN)"
             + "\n\t%o\t= directory where the CSV output file should be written"
             + "\n\t%l\t= the SBML Level to be used"
-            + "\n\t%v\t= the SBML Version to be used");
+            + "\n\t%v\t= the SBML Version to be used"
+            + "\n\t%f\t= file listing a batch of cases, one \"NNNNN level version\" per line");
 
         Label lblUsageInfo3 = new Label(this, SWT.WRAP);
         FormData fd_lblUsageInfo3 = new FormData();
@@ -507,6 +622,10 @@ public class EditWrapper
             lblWrapperArguments.setEnabled(false);
             lblWrapperArguments.setForeground(inactiveTextColor);
             txtWrapperArgs.setEnabled(false);
+
+            // How the wrapper is run.
+
+            setRunOptionsEnabled(false);
         }
         else if (wrapperIsViewOnly())
         {
@@ -563,6 +682,10 @@ public class EditWrapper
             lblWrapperArguments.setForeground(inactiveTextColor);
             txtWrapperArgs.setEnabled(false);
             txtWrapperArgs.setText("");
+
+            // How the wrapper is run.
+
+            setRunOptionsEnabled(false);
         }
         else
         {
@@ -614,10 +737,45 @@ public class EditWrapper
             lblWrapperArguments.setEnabled(true);
             lblWrapperArguments.setForeground(normalTextColor);
             txtWrapperArgs.setEnabled(true);
+
+            // How the wrapper is run.
+
+            setRunOptionsEnabled(true);
         }
     }
 
 
+    /**
+     * Enables or disables the options for running the wrapper.  Batch mode
+     * doesn't apply to persistent workers, and the worker timeout only
+     * applies to them.
+     */
+    private void setRunOptionsEnabled(boolean enabled)
+    {
+        boolean persistent = btnWrapperPersistent.getSelection();
+
+        btnWrapperBatchMode.setEnabled(enabled && !persistent);
+        btnWrapperBatchMode.setForeground(enabled && !persistent
+                                          ? normalTextColor : inactiveTextColor);
+        btnWrapperPersistent.setEnabled(enabled);
+        btnWrapperPersistent.setForeground(enabled ? normalTextColor
+                                           : inactiveTextColor);
+        btnWrapperKeepLogs.setEnabled(enabled);
+        btnWrapperKeepLogs.setForeground(enabled ? normalTextColor
+                                         : inactiveTextColor);
+
+        lblGracePeriod.setEnabled(enabled);
+        lblGracePeriod.setForeground(enabled ? normalTextColor
+                                     : inactiveTextColor);
+        spnGracePeriod.setEnabled(enabled);
+
+        lblWorkerTimeout.setEnabled(enabled && persistent);
+        lblWorkerTimeout.setForeground(enabled && persistent
+                                       ? normalTextColor : inactiveTextColor);
+        spnWorkerTimeout.setEnabled(enabled && persistent);
+    }
+
+
     protected void browseForOutputDir()
     {
         DirectoryDialog dlg = new DirectoryDialog(getShell());
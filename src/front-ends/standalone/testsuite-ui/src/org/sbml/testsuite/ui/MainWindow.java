@@ -47,6 +47,9 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
@@ -80,18 +83,27 @@ import org.eclipse.swt.widgets.ToolItem;
 import org.eclipse.swt.widgets.Tree;
 import org.eclipse.swt.widgets.TreeItem;
 import org.eclipse.wb.swt.SWTResourceManager;
-import org.sbml.testsuite.core.CancelCallback;
+import org.sbml.testsuite.core.BulkResync;
+import org.sbml.testsuite.core.CancelToken;
 import org.sbml.testsuite.core.DelayedResult;
 import org.sbml.testsuite.core.FilterFunction;
 import org.sbml.testsuite.core.LevelVersion;
+import org.sbml.testsuite.core.OutputWatcher;
 import org.sbml.testsuite.core.ResultType;
+import org.sbml.testsuite.core.RunHistory;
 import org.sbml.testsuite.core.RunOutcome;
 import org.sbml.testsuite.core.TestCase;
 import org.sbml.testsuite.core.TestSuite;
 import org.sbml.testsuite.core.TestSuiteSettings;
+import org.sbml.testsuite.core.VerdictSnapshot;
 import org.sbml.testsuite.core.Util;
 import org.sbml.testsuite.core.WrapperConfig;
+import org.sbml.testsuite.core.WrapperSession;
+import org.sbml.testsuite.core.data.ColumnView;
+import org.sbml.testsuite.core.data.ComparisonResult;
+import org.sbml.testsuite.core.data.DifferenceView;
 import org.sbml.testsuite.core.data.ResultSet;
+import org.sbml.testsuite.core.data.ResultTable;
 import org.sbml.testsuite.ui.model.MainModel;
 import org.swtchart.Chart;
 import org.swtchart.IBarSeries;
@@ -230,9 +242,13 @@ public class MainWindow
                             else
                                 dropdown.setText(HIGHEST_LV_TEXT);
                             if (model != null)
+                            {
                                 model.getSettings().setLastLevelVersion(currentLV);
+                                loadResultsForLevelVersion();
+                            }
                             addTreeItems();
                             clearPlots();
+                            restartOutputWatcher();
                         }
                     }
                 };
@@ -326,6 +342,8 @@ public class MainWindow
     private MenuItem                  menuItemOpen;
     private MenuItem                  menuItemShowMap;
     private MenuItem                  menuItemRefreshResults;
+    private MenuItem                  menuItemWatchOutput;
+    private MenuItem                  menuItemExportSnapshot;
     private MenuItem                  menuItemSelectAll;
     private MenuItem                  menuItemDeselectAll;
     private MenuItem                  menuItemJumpToCase;
@@ -361,10 +379,15 @@ public class MainWindow
 
     private Tree                      tree;
     private ResultMap                 resultMap;
+    private OutputWatcher             outputWatcher;
+    private CompletableFuture<BulkResync.Report> resync;
+    private WrapperConfig             resyncWrapper;
+    private LevelVersion              resyncLV;
     private FormData                  fd_sashForm;
 
     private LevelVersion              currentLV = new LevelVersion(0, 0);
     private boolean                   running;
+    private CancelToken               runCancellation = new CancelToken();
     private boolean                   restart = true;
     private boolean                   closing;
     private boolean                   deleteFirst = true;
@@ -438,8 +461,8 @@ public class MainWindow
     }
 
 
-    private void addChartForData(Composite composite, boolean isTimeSeries,
-                                 ResultSet result, String title)
+    private Chart addChartForData(Composite composite, boolean isTimeSeries,
+                                  ResultTable result, String title)
     {
         Chart chart = new Chart(composite, SWT.NONE);
         chart.setBackground(backgroundColor);
@@ -488,10 +511,11 @@ public class MainWindow
             chart.getLegend().setVisible(false);
             addNonTimeSeriesChartForData(composite, result, title, chart);
         }
+        return chart;
     }
 
 
-    private void addTimeSeriesChartForData(Composite composite, ResultSet result,
+    private void addTimeSeriesChartForData(Composite composite, ResultTable result,
                                            String title, Chart chart)
     {
         /* The following use of a custom formatter is a hack to avoid getting a
@@ -508,8 +532,12 @@ public class MainWindow
         RightPaddedDecimalFormat fmt = new RightPaddedDecimalFormat("###.##");
         chart.getAxisSet().getXAxis(0).getTick().setFormat(fmt);
 
+        // The column views share the result set's storage, and SWTChart
+        // copies the series it is given, so asArray() avoids a copy here.
+
         ISeriesSet seriesSet = chart.getSeriesSet();
-        double[] time = result.getTimeColumn();
+        ColumnView timeColumn = result.getTimeColumnView();
+        double[] time = (timeColumn != null ? timeColumn.asArray() : null);
 
         double min = Double.MAX_VALUE;
         double max = Double.MIN_VALUE;
@@ -517,7 +545,7 @@ public class MainWindow
         PlotColorGenerator.reset();
         for (int i = 1; i < result.getNumColumns(); i++)
         {
-            double[] ySeries = result.getColumn(i);
+            double[] ySeries = result.getColumnView(i).asArray();
 
             min = Math.min(min, getMin(ySeries));
             max = Math.max(max, getMax(ySeries));
@@ -550,15 +578,16 @@ public class MainWindow
 
 
     private void addNonTimeSeriesChartForData(Composite composite,
-                                              ResultSet result,
+                                              ResultTable result,
                                               String title, Chart chart)
     {
         String[] xAxisLabels = result.getHeaders().toArray(new String[0]);
         chart.getAxisSet().getXAxis(0).enableCategory(true);
         chart.getAxisSet().getXAxis(0).setCategorySeries(xAxisLabels);
 
-        double[][] allData = result.getData();
-        double[] data = allData[0];
+        ColumnView row = result.getRowView(0);
+        if (row == null) return;
+        double[] data = row.asArray();
 
         IBarSeries series
             = (IBarSeries) chart.getSeriesSet().createSeries(SeriesType.BAR,
@@ -611,6 +640,27 @@ public class MainWindow
                 {
                     for (final TestCase test : model.getSuite().getSortedCases())
                     {
+                        // Without a filter, we don't need to wait for results
+                        // that are still being computed: the items are
+                        // updated when the results come in, or all at once
+                        // when a resync in the background is done.
+
+                        if (func == null && isResyncing(wrapper))
+                        {
+                            createCaseItem(test.getId(), ResultType.Unknown);
+                            continue;
+                        }
+
+                        DelayedResult pending
+                            = wrapper.getResultCache().get(test.getId(), currentLV);
+                        if (func == null && pending != null && !pending.isDone())
+                        {
+                            TreeItem item = createCaseItem(test.getId(),
+                                                           ResultType.Unknown);
+                            updateWhenDone(item, pending, viewOnly);
+                            continue;
+                        }
+
                         ResultType result = wrapper.getResultType(test, currentLV);
                         if (func == null || func.filter(test, result))
                         {
@@ -634,6 +684,28 @@ public class MainWindow
     }
 
 
+    private void updateWhenDone(final TreeItem item, DelayedResult pending,
+                                final boolean viewOnly)
+    {
+        final Display display = getDisplay();
+        pending.getFuture().thenAccept(new Consumer<ResultType>() {
+            public void accept(final ResultType result)
+            {
+                if (display.isDisposed()) return;
+                display.asyncExec(new Runnable() {
+                    public void run()
+                    {
+                        if (item.isDisposed()) return;
+                        updateCaseResult(item, result, null);
+                        if (result == ResultType.Unknown && !viewOnly)
+                            markForRerun(item);
+                    }
+                });
+            }
+        });
+    }
+
+
     private void selectTreeItems(final FilterFunction func)
     {
         tree.deselectAll();
@@ -652,7 +724,7 @@ public class MainWindow
                     TestCase test = model.getSuite().get(item.getText());
                     ResultType result = ResultType.Unknown;
                     if (!wrapperIsViewOnly(wrapper))
-                        result = wrapper.getCachedResult(test.getId());
+                        result = wrapper.getCachedResult(test.getId(), currentLV);
                     if (func == null || func.filter(test, result))
                         tree.select(item);
                 }
@@ -738,8 +810,7 @@ public class MainWindow
 
                 model.getSettings().setLastWrapper(newWrapper);
                 model.getSettings().setLastLevelVersion(currentLV);
-                if (newWrapper != null)
-                    newWrapper.beginUpdate(model.getSuite(), currentLV);
+                loadResultsForLevelVersion();
                 clearFilters();
                 deselectAll();
                 if (tree.getItemCount() > 0)
@@ -761,6 +832,8 @@ public class MainWindow
             menuItemShowOnlyReally.setEnabled(false);
             menuItemShowOnlySupported.setEnabled(false);
             menuItemRefreshResults.setEnabled(false);
+            menuItemWatchOutput.setEnabled(false);
+            menuItemExportSnapshot.setEnabled(false);
             menuItemRefreshSelectedResults.setEnabled(false);
             menuItemDeleteSelectedResults.setEnabled(false);
         }
@@ -770,6 +843,8 @@ public class MainWindow
             menuItemShowOnlyReally.setEnabled(true);
             menuItemShowOnlySupported.setEnabled(true);
             menuItemRefreshResults.setEnabled(true);
+            menuItemWatchOutput.setEnabled(true);
+            menuItemExportSnapshot.setEnabled(true);
             menuItemRefreshSelectedResults.setEnabled(true);
             menuItemDeleteSelectedResults.setEnabled(true);
         }
@@ -787,6 +862,131 @@ public class MainWindow
 
         if (resultMap != null)
             resultMap.updateWrapper(newWrapper);
+        restartOutputWatcher();
+    }
+
+
+    private void stopOutputWatcher()
+    {
+        if (outputWatcher != null)
+            outputWatcher.stop();
+        outputWatcher = null;
+    }
+
+
+    /**
+     * (Re)starts watching the output folder of the current wrapper for the
+     * current Level/Version, if the user asked for it.  Results written by
+     * programs other than us then show up as they arrive.
+     */
+    private void restartOutputWatcher()
+    {
+        stopOutputWatcher();
+        if (menuItemWatchOutput == null || !menuItemWatchOutput.getSelection())
+            return;
+
+        WrapperConfig wrapper = model.getLastWrapper();
+        if (wrapperIsNoWrapper(wrapper))
+            return;
+
+        final Display display = getDisplay();
+        outputWatcher = new OutputWatcher(model.getSuite(), currentLV, wrapper,
+                                          new OutputWatcher.Listener() {
+            public void resultsChanged(final SortedMap<String, ResultType> results)
+            {
+                if (display.isDisposed()) return;
+                display.asyncExec(new Runnable() {
+                    public void run()
+                    {
+                        if (tree.isDisposed()) return;
+                        for (TreeItem item : tree.getItems())
+                        {
+                            ResultType result = results.get(item.getText());
+                            if (result != null)
+                                updateCaseResult(item, result, null);
+                        }
+                        updateStatuses();
+                    }
+                });
+            }
+        });
+        try
+        {
+            outputWatcher.start();
+        }
+        catch (IOException e)
+        {
+            outputWatcher = null;
+            menuItemWatchOutput.setSelection(false);
+            Tell.error(shell, "Unable to watch the output folder of wrapper '"
+                       + wrapper.getName() + "'.", e.getMessage());
+        }
+    }
+
+
+    /**
+     * Starts computing the results for the current Level/Version in one go,
+     * unless they were all computed before, and shows them when they are
+     * known.  Results for other Levels/Versions stay cached, so switching
+     * back and forth doesn't cost anything.
+     */
+    private void loadResultsForLevelVersion()
+    {
+        final WrapperConfig wrapper = model.getLastWrapper();
+        if (wrapper == null
+            || wrapper.getCache(currentLV).size() >= model.getSuite().getNumCases())
+            return;
+
+        resyncInBackground(wrapper, new Runnable() {
+            public void run()
+            {
+                addTreeItems();
+            }
+        });
+    }
+
+
+    /**
+     * Recomputes the results of the wrapper for the current Level/Version
+     * on a background thread, so that the window stays responsive.  Until
+     * the resync is done, addTreeItems() shows the cases without waiting
+     * for their results; then the given update runs on the UI thread,
+     * unless another wrapper or Level/Version was chosen in the meantime
+     * or another resync was started since.
+     */
+    private void resyncInBackground(final WrapperConfig wrapper,
+                                    final Runnable whenDone)
+    {
+        final Display display = getDisplay();
+        final LevelVersion lv = currentLV;
+        final CompletableFuture<BulkResync.Report> started
+            = new BulkResync(model.getSuite(), lv, wrapper).start();
+        resync = started;
+        resyncWrapper = wrapper;
+        resyncLV = lv;
+        started.whenComplete(new BiConsumer<BulkResync.Report, Throwable>() {
+            public void accept(BulkResync.Report report, Throwable error)
+            {
+                if (display.isDisposed()) return;
+                display.asyncExec(new Runnable() {
+                    public void run()
+                    {
+                        if (resync != started || shell.isDisposed()) return;
+                        resync = null;
+                        if (wrapper == model.getLastWrapper()
+                            && lv.equals(currentLV))
+                            whenDone.run();
+                    }
+                });
+            }
+        });
+    }
+
+
+    private boolean isResyncing(WrapperConfig wrapper)
+    {
+        return (resync != null && wrapper == resyncWrapper
+                && currentLV.equals(resyncLV));
     }
 
 
@@ -798,13 +998,17 @@ public class MainWindow
 
     private void syncFiles(TreeItem[] selection)
     {
-        WrapperConfig wrapper = model.getLastWrapper();
+        final WrapperConfig wrapper = model.getLastWrapper();
         if (wrapper == null)
             return;
         if (selection == null)          // Sync all.
         {
-            wrapper.beginUpdate(model.getSuite(), currentLV);
-            clearFilters();             // Also causes tree to be updated.
+            resyncInBackground(wrapper, new Runnable() {
+                public void run()
+                {
+                    clearFilters();     // Also causes tree to be updated.
+                }
+            });
         }
         else                            // Sync selected.
         {
@@ -823,13 +1027,19 @@ public class MainWindow
         WrapperConfig wrapper = model.getLastWrapper();
         if (wrapper == null)
             return null;
-        SortedMap<String, DelayedResult> cache = wrapper.getCache();
+        SortedMap<String, DelayedResult> cache = wrapper.getCache(currentLV);
         String lastNotUnknown = null;
         for (Map.Entry<String, DelayedResult> entry : cache.entrySet())
-            if (entry.getValue() != null
-                && entry.getValue().getResult() != ResultType.Unknown
-                && entry.getValue().getResult() != ResultType.Unavailable)
+        {
+            // Results still being computed don't count; we don't want to
+            // block the UI thread waiting for them.
+            ResultType result = (entry.getValue() == null ? null
+                                 : entry.getValue().getResultIfDone());
+            if (result != null
+                && result != ResultType.Unknown
+                && result != ResultType.Unavailable)
                 lastNotUnknown = entry.getKey();
+        }
         return lastNotUnknown;
     }
 
@@ -1130,6 +1340,38 @@ public class MainWindow
         menuItemRefreshResults.setText("Refresh All Test Results\tCtrl+G");
         menuItemRefreshResults.setAccelerator(SWT.MOD1 + 'G');
 
+        menuItemWatchOutput = new MenuItem(menuFileMenuItems, SWT.CHECK);
+        menuItemWatchOutput.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent arg0)
+            {
+                restartOutputWatcher();
+            }
+        });
+        menuItemWatchOutput.setText("Watch Output Folder for New Results");
+
+        new MenuItem(menuFileMenuItems, SWT.SEPARATOR);
+
+        menuItemExportSnapshot = new MenuItem(menuFileMenuItems, SWT.NONE);
+        menuItemExportSnapshot.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent arg0)
+            {
+                exportSnapshot();
+            }
+        });
+        menuItemExportSnapshot.setText("Export Results Snapshot...");
+
+        MenuItem menuItemImportSnapshot = new MenuItem(menuFileMenuItems, SWT.NONE);
+        menuItemImportSnapshot.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent arg0)
+            {
+                importSnapshot();
+            }
+        });
+        menuItemImportSnapshot.setText("Import Results Snapshot...");
+
         new MenuItem(menuFileMenuItems, SWT.SEPARATOR);
 
         menuItemOpen = new MenuItem(menuFileMenuItems, SWT.NONE);
@@ -2162,6 +2404,91 @@ public class MainWindow
     }
 
 
+    private void exportSnapshot()
+    {
+        final WrapperConfig wrapper = model.getLastWrapper();
+        if (wrapper == null) return;
+
+        FileDialog dlg = new FileDialog(shell, SWT.SAVE);
+        dlg.setFilterNames(new String[] {"SBML Test Suite results snapshots",
+            "All files"});
+        dlg.setFilterExtensions(new String[] {"*.snapshot", "*.*"});
+        dlg.setFileName(wrapper.getName() + ".snapshot");
+        dlg.setOverwrite(true);
+        dlg.setText("Export results snapshot");
+        final String fileName = dlg.open();
+        if (fileName == null) return;
+
+        // The results are brought up to date and written in the
+        // background; only a failure is reported back on the UI thread.
+
+        final Display display = getDisplay();
+        VerdictSnapshot.of(model.getSuite(), currentLV, wrapper).whenComplete(
+            new BiConsumer<VerdictSnapshot, Throwable>() {
+                public void accept(VerdictSnapshot snapshot, Throwable error)
+                {
+                    String message = null;
+                    if (error != null)
+                        message = (error.getCause() != null ? error.getCause()
+                                                            : error).toString();
+                    else
+                        try
+                        {
+                            snapshot.write(new File(fileName));
+                        }
+                        catch (IOException e)
+                        {
+                            message = e.getMessage();
+                        }
+                    if (message == null || display.isDisposed()) return;
+
+                    final String reason = message;
+                    display.asyncExec(new Runnable() {
+                        public void run()
+                        {
+                            if (shell.isDisposed()) return;
+                            Tell.error(shell, "Unable to write the results snapshot.",
+                                       reason);
+                        }
+                    });
+                }
+            });
+    }
+
+
+    private void importSnapshot()
+    {
+        FileDialog dlg = new FileDialog(shell, SWT.OPEN);
+        dlg.setFilterNames(new String[] {"SBML Test Suite results snapshots",
+            "All files"});
+        dlg.setFilterExtensions(new String[] {"*.snapshot", "*.*"});
+        dlg.setText("Import results snapshot");
+        String fileName = dlg.open();
+        if (fileName == null) return;
+
+        File file = new File(fileName);
+        VerdictSnapshot snapshot;
+        try
+        {
+            snapshot = VerdictSnapshot.read(file);
+        }
+        catch (IOException e)
+        {
+            Tell.error(shell, "Unable to read the results snapshot.",
+                       e.getMessage());
+            return;
+        }
+
+        // The snapshot becomes the last wrapper, so that updating the list
+        // selects it and loads its results.
+
+        snapshot.importInto(model.getSettings(), file);
+        currentLV = model.getSettings().getLastLevelVersion();
+        lvSelectionMenuListener.select(currentLV);
+        updateWrapperList();
+    }
+
+
     private void resetAll()
     {
         resetForRun();
@@ -2187,6 +2514,7 @@ public class MainWindow
                 if (running)
                 {
                     running = false;
+                    runCancellation.cancel();
                     executor.waitForProcesses(getDisplay());
                     Util.sleep(2000);
                 }
@@ -2202,10 +2530,20 @@ public class MainWindow
     private void quit()
     {
         running = false;
+        runCancellation.cancel();
+        stopOutputWatcher();
         archiveManager.shutdown();
         executor.shutdownNow();
         if (model != null && model.getSettings() != null)
+        {
             model.getSettings().saveAsDefault();
+            for (WrapperConfig wrapper : model.getSettings().getWrappers())
+            {
+                wrapper.saveVerdicts();
+                wrapper.closeHistory();
+                wrapper.stopWorkers();
+            }
+        }
         if (shell != null && ! shell.isDisposed())
         {
             UIUtils.saveWindow(shell, this);
@@ -2724,12 +3062,15 @@ public class MainWindow
         running = newRunState;
         if (running)
         {
+            if (runCancellation.cancellationRequested())
+                runCancellation = new CancelToken();
             buttonRun.setImage(UIUtils.getImageResource("pause.png"));
             buttonRun.setToolTipText("Pause");
             progressSection.setStatus(RunStatus.Running);
         }
         else
         {
+            runCancellation.cancel();
             buttonRun.setImage(UIUtils.getImageResource("run.png"));
             if (restart)
                 buttonRun.setToolTipText("Run selected tests, or continue from pause");
@@ -2861,7 +3202,8 @@ public class MainWindow
         {
             TestCase test = model.getSuite().get(item.getText());
 
-            ResultType result = lastWrapper.getCachedResult(test.getId());
+            ResultType result = lastWrapper.getCachedResult(test.getId(),
+                                                            currentLV);
             if (result == null)
             {
                 continue;
@@ -2887,6 +3229,7 @@ public class MainWindow
         private RunOutcome outcome;
         private LevelVersion levelVersion;
         private boolean deleteFirst;
+        private CancelToken cancellation;
 
         QueuedTestRunner(TestCase theCase, LevelVersion lv, TreeItem item,
                          String path, WrapperConfig wrapper, Display display,
@@ -2900,6 +3243,7 @@ public class MainWindow
             this.outcome = null;
             this.levelVersion = lv;
             this.deleteFirst = deleteFirst;
+            this.cancellation = runCancellation;
         }
 
 
@@ -2912,15 +3256,11 @@ public class MainWindow
             if (!running) return;
 
             // This next call does synchronous execution of the wrapper.
+            // Pausing or quitting cancels the token, which stops the
+            // wrapper right away.
 
-            final CancelCallback callback = new CancelCallback() {
-                    public boolean cancellationRequested()
-                    {
-                        return !running;
-                    }
-                };
             outcome = wrapper.run(testCase, levelVersion, path, 250,
-                                  callback, deleteFirst);
+                                  cancellation, deleteFirst);
 
             final ResultType resultType = wrapper.getResultType(testCase,
                                                                 levelVersion);
@@ -2944,6 +3284,72 @@ public class MainWindow
     }
 
 
+    /**
+     * Runs a batch of cases with one invocation of a wrapper in batch mode,
+     * updating the item of each case as soon as the wrapper is done with it.
+     */
+    class QueuedBatchRunner
+        implements Runnable
+    {
+        private Vector<TestCase> testCases;
+        private Vector<TreeItem> items;
+        private String path;
+        private WrapperConfig wrapper;
+        private Display display;
+        private LevelVersion levelVersion;
+        private boolean deleteFirst;
+        private CancelToken cancellation;
+
+        QueuedBatchRunner(Vector<TestCase> cases, LevelVersion lv,
+                          Vector<TreeItem> items, String path,
+                          WrapperConfig wrapper, Display display,
+                          boolean deleteFirst)
+        {
+            this.testCases = cases;
+            this.items = items;
+            this.path = path;
+            this.wrapper = wrapper;
+            this.display = display;
+            this.levelVersion = lv;
+            this.deleteFirst = deleteFirst;
+            this.cancellation = runCancellation;
+        }
+
+
+        @Override
+        public void run()
+        {
+            if (!running) return;
+
+            wrapper.runBatch(testCases, levelVersion, path, 250, cancellation,
+                             deleteFirst, new WrapperSession.BatchListener() {
+                public void caseDone(TestCase test, final RunOutcome outcome)
+                {
+                    final TreeItem currentItem
+                        = items.get(testCases.indexOf(test));
+                    final ResultType resultType
+                        = wrapper.getResultType(test, levelVersion);
+
+                    display.asyncExec(new Runnable() {
+                        @Override
+                        public void run()
+                        {
+                            if (currentItem.isDisposed()) return;
+
+                            updateCaseItem(currentItem, resultType,
+                                           outcome.getMessage());
+                            progressSection.incrementDoneCount();
+
+                            if (currentItem == lastSelection())
+                                updatePlotsForSelection(currentItem);
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+
     protected void reRunTests(final TreeItem[] selection)
     {
         if (!directoriesOK()) return;
@@ -3005,11 +3411,34 @@ public class MainWindow
         String casesDir = model.getSuite().getCasesDirectory().getAbsolutePath();
         progressSection.setStatus(RunStatus.Running);
         MarkerFile.write(wrapper.getOutputPath(), wrapper.getProgram());
+        RunHistory history = wrapper.getHistory();
+        if (history != null) history.beginRun();
         executor.init(wrapper.isConcurrencyAllowed(), numThreads);
+        int batchSize = WrapperSession.batchSizeFor(selection.length - selectionIndex,
+                                                    wrapper.isConcurrencyAllowed()
+                                                    ? numThreads : 1);
         while (selectionIndex < selection.length)
         {
             if (! running) break;
 
+            if (wrapper.isBatchMode())
+            {
+                // The wrapper is started once for each batch of cases.
+
+                Vector<TestCase> cases = new Vector<TestCase>();
+                Vector<TreeItem> items = new Vector<TreeItem>();
+                int end = Math.min(selection.length, selectionIndex + batchSize);
+                for (; selectionIndex < end; selectionIndex++)
+                {
+                    items.add(selection[selectionIndex]);
+                    cases.add(model.getSuite().get(selection[selectionIndex].getText()));
+                }
+                executor.execute(new QueuedBatchRunner(cases, currentLV, items,
+                                                       casesDir, wrapper,
+                                                       display, deleteFirst));
+                continue;
+            }
+
             TreeItem item = selection[selectionIndex];
             TestCase testCase = model.getSuite().get(item.getText());
             executor.execute(new QueuedTestRunner(testCase, currentLV, item,
@@ -3018,6 +3447,23 @@ public class MainWindow
             selectionIndex++;
         }
         executor.waitForProcesses(getDisplay());
+        if (history != null) history.save();
+
+        // Result files named other than "NNNNN.csv" are only noticed by
+        // listing the output folder, which is done once at the end.
+
+        Vector<String> late = wrapper.findLateResultFiles();
+        if (!late.isEmpty() && !tree.isDisposed())
+        {
+            for (TreeItem item : tree.getItems())
+                if (late.contains(item.getText()))
+                {
+                    TestCase test = model.getSuite().get(item.getText());
+                    updateCaseResult(item, wrapper.getResultType(test, currentLV),
+                                     null);
+                }
+            updateStatuses();
+        }
 
         // At this point, if multithreading is being used, all cases have been
         // queued up but probably have not yet finished execution.  This means
@@ -3526,7 +3972,13 @@ public class MainWindow
             else
             {
                 updateCaseItem(treeItem, result, null);
-                ResultSet actual = wrapper.getResultSet(test);
+
+                // The comparison reads the results once and gives us both
+                // the data to plot and the error statistics for the tooltip.
+
+                ComparisonResult comparison = wrapper.getComparison(test);
+                ResultSet actual = (comparison != null ? comparison.getGiven()
+                                                       : null);
                 if (actual != null)
                 {
                     if (!actual.parseable())
@@ -3549,17 +4001,40 @@ public class MainWindow
                     {
                         addChartForData(cmpGraphs, isTimeSeries, actual,
                                         "Simulator results for #" + itemName);
-                        ResultSet diff;
+                        // Steady-state results have a single row.
+
+                        DifferenceView diff;
                         if (isTimeSeries)
-                            diff = ResultSet.diff(expected, actual);
+                            diff = DifferenceView.of(expected, actual);
                         else
-                            diff = ResultSet.diffRow(expected, actual, 0);
+                            diff = DifferenceView.of(expected, actual,
+                                                     new int[] {0});
 
                         if (diff != null && ! diff.hasInfinityOrNaN())
-                            addChartForData(cmpDifferences, isTimeSeries,
-                                            diff, "Difference plot");
+                        {
+                            Chart chart = addChartForData(cmpDifferences,
+                                                          isTimeSeries, diff,
+                                                          "Difference plot");
+                            chart.getPlotArea().setToolTipText(comparison.getSummary());
+                        }
                     }
                 }
+                else
+                {
+                    // A wrapper viewed from a snapshot has no results to
+                    // plot, but it still knows how far off they were.
+
+                    VerdictSnapshot snapshot = wrapper.getSnapshot();
+                    VerdictSnapshot.Statistics stats = null;
+                    if (snapshot != null && snapshot.isFor(currentLV))
+                        stats = snapshot.getStatistics(test.getId());
+                    if (stats != null)
+                        showMessageNotAvailable(cmpDifferences,
+                                                "Results cannot be plotted "
+                                                + "because only a snapshot "
+                                                + "of them is available.\n\n"
+                                                + stats.getSummary());
+                }
             }
         }
 
@@ -100,7 +100,7 @@ public class PreferenceDialog
      */
     private void createContents()
     {
-        int height = (UIUtils.isLinux() ? 670 : 600);
+        int height = (UIUtils.isLinux() ? 780 : 710);
 
         shell = new Shell(getParent(), getStyle());
         shell.setImage(UIUtils.getImageResource("icon_256x256.png"));
@@ -34,6 +34,7 @@ import java.io.*;
 import java.math.*;
 import java.util.*;
 import java.util.regex.*;
+import org.sbml.testsuite.core.data.NumberParser;
 
 
 public class TestCase
@@ -165,6 +166,7 @@ public class TestCase
         Pattern ignorePattern = Pattern.compile("^#.*|^\\s*$");
         Pattern numberPattern = Pattern.compile("\\s*(\\d+|-INF|INF|NaN)",
                                                 Pattern.CASE_INSENSITIVE);
+        NumberParser numberParser = new NumberParser();
 
         // Don't count element 0, the time point, as a variable.
 
@@ -195,17 +197,21 @@ public class TestCase
                                         + " of " + fileName + ": expected "
                                         + expected + ", but read " + found + ".");
 
+                // The parser knows more spellings of infinity and NaN than
+                // uploads have ever been allowed to use; only INF, -INF and
+                // NaN are accepted here.
+
                 for (int col = 0; col < expected; col++)
                 {
-                    String thisItem = items[col].trim();
-                    if (thisItem.compareToIgnoreCase(NEG_INF_STRING) == 0)
-                        data[dataRow][col] = Double.NEGATIVE_INFINITY;
-                    else if (thisItem.compareToIgnoreCase(POS_INF_STRING) == 0)
-                        data[dataRow][col] = Double.POSITIVE_INFINITY;
-                    else if (thisItem.compareToIgnoreCase(NAN_STRING) == 0)
-                        data[dataRow][col] = Double.NaN;
-                    else
-                        data[dataRow][col] = Double.parseDouble(thisItem);
+                    numberParser.parse(items[col]);
+                    if (! numberParser.hasValue()
+                        || (numberParser.getStatus() == NumberParser.Status.Special
+                            && ! isAllowedSpecial(items[col].trim())))
+                        throw new Exception("Unreadable value '"
+                                            + items[col].trim() + "' in column "
+                                            + (col + 1) + " of row " + fileRow
+                                            + " of " + fileName + ".");
+                    data[dataRow][col] = numberParser.getValue();
                 }
 
                 dataRow++;
@@ -390,6 +396,17 @@ public class TestCase
         return s;
     }
 
+    private static boolean isAllowedSpecial(String item)
+    {
+        // Double.parseDouble() used to take care of the signed NaNs.
+
+        return (item.equalsIgnoreCase(NAN_STRING)
+                || item.equalsIgnoreCase(POS_INF_STRING)
+                || item.equalsIgnoreCase(NEG_INF_STRING)
+                || item.equals("+" + NAN_STRING)
+                || item.equals("-" + NAN_STRING));
+    }
+
     // 
     // -------------------------- Private variables --------------------------- 
     // 